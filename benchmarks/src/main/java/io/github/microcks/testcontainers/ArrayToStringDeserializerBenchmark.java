@@ -0,0 +1,76 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Header;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading headers whose values are sent as a JSON array and joined by {@code ArrayToStringDeserializer}.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrayToStringDeserializerBenchmark {
+
+   @Param({"1", "20"})
+   private int values;
+
+   private final ObjectMapper mapper = new ObjectMapper();
+   private final ObjectReader headersReader = mapper.readerFor(
+         mapper.getTypeFactory().constructCollectionType(List.class, Header.class));
+   private byte[] json;
+
+   @Setup
+   public void setup() {
+      StringBuilder headers = new StringBuilder("[");
+      for (int header = 0; header < 10; header++) {
+         headers.append(header > 0 ? "," : "").append("{\"name\":\"x-header-").append(header).append("\",\"values\":[");
+         for (int value = 0; value < values; value++) {
+            headers.append(value > 0 ? "," : "").append("\"value-").append(value).append('"');
+         }
+         headers.append("]}");
+      }
+      json = headers.append(']').toString().getBytes(StandardCharsets.UTF_8);
+   }
+
+   @Benchmark
+   public List<Header> readHeaders() throws IOException {
+      return headersReader.readValue(json);
+   }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+import io.github.microcks.testcontainers.model.dispatchers.DispatcherEvaluator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many dispatch scenarios can be checked in-process with precompiled {@code DispatcherEvaluator}s, and
+ * what compiling them costs.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatcherEvaluatorBenchmark {
+
+   private static final String ORDER = "{\"customer\":{\"name\":\"Laurent\",\"tier\":\"GOLD\"},\"price\":42.5,"
+         + "\"items\":[{\"name\":\"Eclair\"},{\"name\":\"Millefeuille\"}]}";
+
+   private final Dispatcher equalsDispatcher = Dispatcher.jsonBody("/customer/tier").equalsOperator()
+         .addCase("SILVER", "silver").addCase("GOLD", "gold").defaultCase("regular");
+   private final Dispatcher regexpDispatcher = Dispatcher.jsonBody("/customer/name").regexpOperator()
+         .addCase("^A.*", "a-names").addCase("^L.*", "l-names").defaultCase("others");
+   // Range rules as Microcks stores them: evaluator only needs type and rules.
+   private final Dispatcher rangeDispatcher = rules(Dispatcher.Type.JSON_BODY,
+         "{\"exp\":\"/price\",\"operator\":\"range\",\"cases\":{\"[0;10[\":\"cheap\",\"default\":\"expensive\"}}");
+   private final Dispatcher uriDispatcher = Dispatcher.uri().pathParam("name").queryParam("size").build();
+   private final Dispatcher fallbackDispatcher = Dispatcher.fallback("unknown")
+         .dispatcher(Dispatcher.uri().pathParam("name").build());
+
+   private final DispatcherEvaluator equalsEvaluator = DispatcherEvaluator.compile(equalsDispatcher);
+   private final DispatcherEvaluator regexpEvaluator = DispatcherEvaluator.compile(regexpDispatcher);
+   private final DispatcherEvaluator rangeEvaluator = DispatcherEvaluator.compile(rangeDispatcher);
+   private final DispatcherEvaluator uriEvaluator = DispatcherEvaluator.compile(uriDispatcher, "GET /pastries/{name}");
+   private final DispatcherEvaluator fallbackEvaluator = DispatcherEvaluator.compile(fallbackDispatcher, "GET /pastries/{name}");
+   private final Set<String> knownCriteria = new HashSet<>(Arrays.asList("/name=Eclair", "/name=Millefeuille"));
+
+   @Benchmark
+   public String jsonBodyEquals() {
+      return equalsEvaluator.evaluate("/orders", ORDER);
+   }
+
+   @Benchmark
+   public String jsonBodyRegexp() {
+      return regexpEvaluator.evaluate("/orders", ORDER);
+   }
+
+   @Benchmark
+   public String jsonBodyRange() {
+      return rangeEvaluator.evaluate("/orders", ORDER);
+   }
+
+   @Benchmark
+   public String uriElements() {
+      return uriEvaluator.evaluate("/rest/API+Pastries/0.0.1/pastries/Eclair?size=L&flavor=Chocolate", null);
+   }
+
+   @Benchmark
+   public String fallback() {
+      return fallbackEvaluator.evaluate("/rest/API+Pastries/0.0.1/pastries/Donut", null, knownCriteria);
+   }
+
+   @Benchmark
+   public DispatcherEvaluator compileJsonBody() {
+      return DispatcherEvaluator.compile(regexpDispatcher);
+   }
+
+   private static Dispatcher rules(Dispatcher.Type type, String rules) {
+      return new Dispatcher() {
+         @Override
+         public Type getType() {
+            return type;
+         }
+
+         @Override
+         public String getRules() {
+            return rules;
+         }
+      };
+   }
+}
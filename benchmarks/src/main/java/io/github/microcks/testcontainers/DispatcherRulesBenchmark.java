@@ -0,0 +1,89 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures building each type of dispatcher, which computes its rules, and reading these rules back as done
+ * for every operation update.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatcherRulesBenchmark {
+
+   @Param({"SCRIPT", "URI_PARTS", "URI_PARAMS", "QUERY_ARGS", "JSON_BODY", "FALLBACK"})
+   private String type;
+
+   private Supplier<Dispatcher> factory;
+   private Dispatcher dispatcher;
+
+   @Setup
+   public void setup() {
+      switch (type) {
+         case "SCRIPT":
+            factory = () -> Dispatcher.script("return mockRequest.getRequestHeader('x-size')[0]");
+            break;
+         case "URI_PARTS":
+            factory = () -> Dispatcher.uri().pathParam("name").pathParam("size").build();
+            break;
+         case "URI_PARAMS":
+            factory = () -> Dispatcher.uri().queryParam("page").queryParam("size").build();
+            break;
+         case "QUERY_ARGS":
+            factory = () -> Dispatcher.queryArgs().arg("page").arg("size").build();
+            break;
+         case "JSON_BODY":
+            factory = () -> Dispatcher.jsonBody("/size").equalsOperator()
+                  .addCase("S", "small").addCase("M", "medium").addCase("L", "large").defaultCase("medium");
+            break;
+         default:
+            factory = () -> Dispatcher.fallback("fallback").dispatcher(Dispatcher.jsonBody("/size").regexpOperator()
+                  .addCase("^S", "small").addCase("^L", "large").defaultCase("unknown"));
+      }
+      dispatcher = factory.get();
+   }
+
+   @Benchmark
+   public String buildAndGetRules() {
+      return factory.get().getRules();
+   }
+
+   @Benchmark
+   public String getRules() {
+      return dispatcher.getRules();
+   }
+}
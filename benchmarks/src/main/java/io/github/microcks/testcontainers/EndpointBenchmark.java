@@ -0,0 +1,81 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the building of mock endpoints and topics handed to tests. Containers are never started, their host
+ * and mapped ports are resolved to a local stub server.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndpointBenchmark {
+
+   private StubMicrocksServer server;
+   private MicrocksContainer microcks;
+   private MicrocksAsyncMinionContainer minion;
+
+   @Setup
+   public void setup() throws IOException {
+      server = new StubMicrocksServer();
+      microcks = server.microcksContainer();
+      minion = server.asyncMinionContainer(microcks);
+   }
+
+   @TearDown
+   public void tearDown() {
+      server.close();
+   }
+
+   @Benchmark
+   public String restMockEndpoint() {
+      return microcks.getRestMockEndpoint("API Pastries", "0.0.1");
+   }
+
+   @Benchmark
+   public String grpcMockEndpoint() {
+      return microcks.getGrpcMockEndpoint();
+   }
+
+   @Benchmark
+   public String wsMockEndpoint() {
+      return minion.getWSMockEndpoint("Pastry orders API", "0.1.0", "SUBSCRIBE pastry/orders");
+   }
+
+   @Benchmark
+   public String kafkaMockTopic() {
+      return minion.getKafkaMockTopic("Pastry orders API", "0.1.0", "SUBSCRIBE pastry/orders");
+   }
+}
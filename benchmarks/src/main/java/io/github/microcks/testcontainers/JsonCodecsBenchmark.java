@@ -0,0 +1,99 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing with a new ObjectMapper for each call, as dispatchers used to do, with the shared
+ * {@code JsonCodecs} readers and writers. Run with {@code -prof gc} to compare allocations.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class JsonCodecsBenchmark {
+
+   private final TestRequest testRequest = new TestRequest.Builder()
+         .serviceId("API Pastries:0.0.1")
+         .runnerType(TestRunnerType.OPEN_API_SCHEMA.name())
+         .testEndpoint("http://pastries:8080")
+         .filteredOperations(Collections.singletonList("GET /pastries"))
+         .timeout(2000L)
+         .build();
+
+   private final Dispatcher dispatcher = Dispatcher.fallback("fallback")
+         .dispatcher(Dispatcher.jsonBody("/size").equalsOperator().addCase("S", "small").addCase("L", "large")
+               .defaultCase("medium"));
+
+   @Benchmark
+   public String testRequestWithNewMapper() throws IOException {
+      return new ObjectMapper().writeValueAsString(testRequest);
+   }
+
+   @Benchmark
+   public String testRequestWithSharedWriter() throws IOException {
+      return JsonCodecs.TEST_REQUEST_WRITER.writeValueAsString(testRequest);
+   }
+
+   @Benchmark
+   public String dispatcherRulesWithNewMapper() {
+      // What FallbackDispatcher and JsonBodyDispatcher used to do: one new mapper each.
+      Map<String, Object> cases = new LinkedHashMap<>();
+      cases.put("S", "small");
+      cases.put("L", "large");
+      cases.put("default", "medium");
+      Map<String, Object> jsonBodyRules = new LinkedHashMap<>();
+      jsonBodyRules.put("exp", "/size");
+      jsonBodyRules.put("operator", "equals");
+      jsonBodyRules.put("cases", cases);
+      Map<String, Object> fallbackRules = new LinkedHashMap<>();
+      fallbackRules.put("dispatcher", "JSON_BODY");
+      fallbackRules.put("dispatcherRules", new ObjectMapper().valueToTree(jsonBodyRules).toString());
+      fallbackRules.put("fallback", "fallback");
+      return new ObjectMapper().valueToTree(fallbackRules).toString();
+   }
+
+   @Benchmark
+   public String dispatcherRulesWithSharedWriter() {
+      return dispatcher.getRules();
+   }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Header;
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import io.github.microcks.testcontainers.model.TestStepResult;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization and deserialization of the model objects exchanged on every test: the
+ * TestRequest sent at launch and the TestResult read back once test is done.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelSerdeBenchmark {
+
+   private final ObjectReader testRequestReader = new ObjectMapper().readerFor(TestRequest.class);
+
+   private TestRequest testRequest;
+   private TestResult testResult;
+   private byte[] testRequestJson;
+   private byte[] testResultJson;
+
+   @Setup
+   public void setup() throws IOException {
+      Header header = new Header();
+      header.setName("Authorization");
+      header.setValues("Bearer 1234");
+      Map<String, List<Header>> operationsHeaders = Collections.singletonMap("GET /pastries", Collections.singletonList(header));
+      testRequest = new TestRequest.Builder()
+            .serviceId("API Pastries:0.0.1")
+            .runnerType(TestRunnerType.OPEN_API_SCHEMA.name())
+            .testEndpoint("http://pastries:8080")
+            .filteredOperations(Arrays.asList("GET /pastries", "GET /pastries/{name}"))
+            .operationsHeaders(operationsHeaders)
+            .timeout(2000L)
+            .build();
+      testRequestJson = JsonCodecs.TEST_REQUEST_WRITER.writeValueAsBytes(testRequest);
+
+      testResult = new TestResult();
+      testResult.setId("64f0a5b2c1");
+      testResult.setTestDate(new Date());
+      testResult.setTestedEndpoint("http://pastries:8080");
+      testResult.setServiceId("API Pastries:0.0.1");
+      testResult.setRunnerType(TestRunnerType.OPEN_API_SCHEMA);
+      testResult.setSuccess(true);
+      List<TestCaseResult> testCaseResults = new ArrayList<>();
+      for (int operation = 0; operation < 10; operation++) {
+         TestCaseResult testCaseResult = new TestCaseResult();
+         testCaseResult.setOperationName("GET /pastries/" + operation);
+         for (int step = 0; step < 5; step++) {
+            TestStepResult testStepResult = new TestStepResult();
+            testStepResult.setRequestName("request-" + step);
+            testStepResult.setElapsedTime(step);
+            testCaseResult.getTestStepResults().add(testStepResult);
+         }
+         testCaseResults.add(testCaseResult);
+      }
+      testResult.setTestCaseResults(testCaseResults);
+      testResultJson = new ObjectMapper().writeValueAsBytes(testResult);
+   }
+
+   @Benchmark
+   public byte[] writeTestRequest() throws IOException {
+      return JsonCodecs.TEST_REQUEST_WRITER.writeValueAsBytes(testRequest);
+   }
+
+   @Benchmark
+   public TestRequest readTestRequest() throws IOException {
+      return testRequestReader.readValue(testRequestJson);
+   }
+
+   @Benchmark
+   public TestResult readTestResult() throws IOException {
+      return JsonCodecs.TEST_RESULT_READER.readValue(testResultJson);
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.client.MultipartBody;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of artifact upload bodies from a file, a stream or a buffer, written either to a
+ * stream or to a channel as {@code MicrocksClient} does depending on body size. Bytes are discarded so that only
+ * the body generation is measured.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultipartBodyBenchmark {
+
+   @Param({"16384", "4194304"})
+   private int size;
+
+   private byte[] content;
+   private Path file;
+
+   private final OutputStream discardingStream = new OutputStream() {
+      @Override
+      public void write(int b) {
+         // Discard.
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+         // Discard.
+      }
+   };
+
+   private final WritableByteChannel discardingChannel = new WritableByteChannel() {
+      @Override
+      public int write(ByteBuffer src) {
+         int remaining = src.remaining();
+         src.position(src.limit());
+         return remaining;
+      }
+
+      @Override
+      public boolean isOpen() {
+         return true;
+      }
+
+      @Override
+      public void close() {
+         // Nothing to close.
+      }
+   };
+
+   @Setup
+   public void setup() throws IOException {
+      content = new byte[size];
+      Arrays.fill(content, (byte) 'a');
+      file = Files.createTempFile("microcks-benchmark", ".yaml");
+      Files.write(file, content);
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      Files.deleteIfExists(file);
+   }
+
+   @Benchmark
+   public long fileToStream() throws IOException {
+      MultipartBody body = MultipartBody.ofFile("file", file);
+      body.writeTo(discardingStream);
+      return body.getBytesWritten();
+   }
+
+   @Benchmark
+   public long fileToChannel() throws IOException {
+      MultipartBody body = MultipartBody.ofFile("file", file);
+      body.writeTo(discardingChannel);
+      return body.getBytesWritten();
+   }
+
+   @Benchmark
+   public long streamToStream() throws IOException {
+      MultipartBody body = MultipartBody.ofStream("file", "artifact.yaml", new ByteArrayInputStream(content), size);
+      body.writeTo(discardingStream);
+      return body.getBytesWritten();
+   }
+
+   @Benchmark
+   public long bufferToChannel() throws IOException {
+      MultipartBody body = MultipartBody.ofBuffer("file", "artifact.yaml", ByteBuffer.wrap(content));
+      body.writeTo(discardingChannel);
+      return body.getBytesWritten();
+   }
+}
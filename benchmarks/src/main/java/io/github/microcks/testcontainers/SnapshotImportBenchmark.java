@@ -0,0 +1,101 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares seeding a Microcks repository by uploading each artifact, which Microcks parses again, with importing a
+ * snapshot exported once. Unlike the other suites this one needs Docker: it runs against a real Microcks container.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SnapshotImportBenchmark {
+
+   private static final String IMAGE = "quay.io/microcks/microcks-uber:1.8.0";
+
+   private MicrocksContainer microcks;
+   private Path directory;
+   private Path openApi;
+   private Path postmanCollection;
+   private Path asyncApi;
+   private Path snapshot;
+
+   @Setup
+   public void setup() throws Exception {
+      // Artifacts are packaged within benchmarks jar, extract them as files.
+      directory = Files.createTempDirectory("microcks-snapshot-benchmark");
+      openApi = extract("apipastries-openapi.yaml");
+      postmanCollection = extract("apipastries-postman-collection.json");
+      asyncApi = extract("pastry-orders-asyncapi.yml");
+      snapshot = directory.resolve("snapshot.json");
+
+      microcks = new MicrocksContainer(IMAGE);
+      microcks.start();
+      perArtifactUpload();
+      microcks.exportSnapshot(snapshot);
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      microcks.stop();
+      for (Path file : new Path[] {openApi, postmanCollection, asyncApi, snapshot, directory}) {
+         Files.deleteIfExists(file);
+      }
+   }
+
+   @Benchmark
+   public void perArtifactUpload() throws Exception {
+      microcks.importAsMainArtifact(openApi);
+      microcks.importAsMainArtifact(asyncApi);
+      microcks.importAsSecondaryArtifact(postmanCollection);
+   }
+
+   @Benchmark
+   public void snapshotImport() throws Exception {
+      microcks.importSnapshot(snapshot);
+   }
+
+   private Path extract(String resource) throws IOException {
+      Path file = directory.resolve(resource);
+      try (InputStream is = SnapshotImportBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+         Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return file;
+   }
+}
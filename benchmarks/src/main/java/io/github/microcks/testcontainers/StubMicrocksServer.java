@@ -0,0 +1,157 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import io.github.microcks.testcontainers.model.TestStepResult;
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server answering the few Microcks APIs used by the client (artifact upload, test launch and
+ * test refresh) with canned responses, so that client overhead can be measured without any container. The
+ * containers it hands out only resolve their host and ports to this server, they're never started.
+ * @author laurent
+ */
+class StubMicrocksServer implements Closeable {
+
+   static final String TEST_RESULT_ID = "64f0a5b2c1";
+
+   private final HttpServer server;
+   private final ExecutorService executor = Executors.newFixedThreadPool(4, new NamedThreadFactory("stub-microcks"));
+   private final byte[] launchedTest;
+   private final byte[] finishedTest;
+
+   StubMicrocksServer() throws IOException {
+      ObjectMapper mapper = new ObjectMapper();
+      launchedTest = mapper.writeValueAsBytes(testResult(true));
+      finishedTest = mapper.writeValueAsBytes(testResult(false));
+
+      // JDK server writes headers and body separately: without this, Nagle delays every response by ~40ms.
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/api/artifact/upload", exchange -> respond(exchange, 201, "API Pastries:0.0.1".getBytes(StandardCharsets.UTF_8)));
+      server.createContext("/api/tests", exchange -> {
+         if ("POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 201, launchedTest);
+         } else {
+            respond(exchange, 200, finishedTest);
+         }
+      });
+      server.setExecutor(executor);
+      server.start();
+   }
+
+   int getPort() {
+      return server.getAddress().getPort();
+   }
+
+   String getHttpEndpoint() {
+      return "http://127.0.0.1:" + getPort();
+   }
+
+   /** @return A never started MicrocksContainer whose endpoints target this server. */
+   MicrocksContainer microcksContainer() {
+      return new MicrocksContainer("quay.io/microcks/microcks-uber:nightly") {
+         @Override
+         public String getHost() {
+            return "127.0.0.1";
+         }
+
+         @Override
+         public Integer getMappedPort(int originalPort) {
+            return getPort();
+         }
+      };
+   }
+
+   /** @return A never started MicrocksAsyncMinionContainer whose endpoints target this server. */
+   MicrocksAsyncMinionContainer asyncMinionContainer(MicrocksContainer microcks) {
+      return new MicrocksAsyncMinionContainer(Network.newNetwork(), "quay.io/microcks/microcks-uber-async-minion:nightly", microcks) {
+         @Override
+         public String getHost() {
+            return "127.0.0.1";
+         }
+
+         @Override
+         public Integer getMappedPort(int originalPort) {
+            return getPort();
+         }
+      };
+   }
+
+   @Override
+   public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+   }
+
+   private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+      try (InputStream request = exchange.getRequestBody()) {
+         byte[] buffer = new byte[8192];
+         while (request.read(buffer) != -1) {
+            // Drain request so that connection can be kept alive.
+         }
+      }
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, body.length);
+      try (OutputStream response = exchange.getResponseBody()) {
+         response.write(body);
+      }
+   }
+
+   private static TestResult testResult(boolean inProgress) {
+      TestResult result = new TestResult();
+      result.setId(TEST_RESULT_ID);
+      result.setTestDate(new Date());
+      result.setTestedEndpoint("http://pastries:8080");
+      result.setServiceId("API Pastries:0.0.1");
+      result.setRunnerType(TestRunnerType.OPEN_API_SCHEMA);
+      result.setInProgress(inProgress);
+      result.setSuccess(!inProgress);
+      List<TestCaseResult> testCaseResults = new ArrayList<>();
+      for (int operation = 0; !inProgress && operation < 10; operation++) {
+         TestCaseResult testCaseResult = new TestCaseResult();
+         testCaseResult.setOperationName("GET /pastries/" + operation);
+         TestStepResult testStepResult = new TestStepResult();
+         testStepResult.setRequestName("request-" + operation);
+         testStepResult.setElapsedTime(operation);
+         testCaseResult.getTestStepResults().add(testStepResult);
+         testCaseResults.add(testCaseResult);
+      }
+      result.setTestCaseResults(testCaseResults);
+      return result;
+   }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.client.ClientResponse;
+import io.github.microcks.testcontainers.client.UploadMetrics;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole client round trips against a local stub server answering like Microcks: artifact upload,
+ * test result refresh and a complete {@code testEndpoint} call. The stub answers immediately so that what is
+ * measured is the client overhead (connection pooling, body generation and parsing, polling machinery).
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StubServerRoundTripBenchmark {
+
+   private final TestRequest testRequest = new TestRequest.Builder()
+         .serviceId("API Pastries:0.0.1")
+         .runnerType(TestRunnerType.OPEN_API_SCHEMA.name())
+         .testEndpoint("http://pastries:8080")
+         .filteredOperations(Arrays.asList("GET /pastries", "GET /pastries/{name}"))
+         .timeout(2000L)
+         .build();
+
+   private StubMicrocksServer server;
+   private MicrocksContainer microcks;
+   private ByteBuffer artifact;
+
+   @Setup
+   public void setup() throws IOException {
+      server = new StubMicrocksServer();
+      // Refresh as soon as possible: the stub test is done right after its launch.
+      microcks = server.microcksContainer()
+            .withPollingPolicy(new PollingPolicy.Builder().initialDelay(0).build());
+      byte[] content = new byte[64 * 1024];
+      Arrays.fill(content, (byte) 'a');
+      artifact = ByteBuffer.wrap(content);
+   }
+
+   @TearDown
+   public void tearDown() {
+      microcks.getMicrocksClient().close();
+      server.close();
+   }
+
+   @Benchmark
+   public long importArtifact() throws Exception {
+      UploadMetrics metrics = microcks.importArtifact("pastries.yaml", artifact, true);
+      return metrics.getBytes();
+   }
+
+   @Benchmark
+   public TestResult refreshTestResult() throws IOException {
+      try (ClientResponse response = microcks.getMicrocksClient().get("/api/tests/" + StubMicrocksServer.TEST_RESULT_ID)) {
+         return TestResultReader.read(response.getBody(), TestResultReader.Detail.FULL);
+      }
+   }
+
+   @Benchmark
+   public TestResult testEndpoint() throws Exception {
+      return microcks.testEndpoint(testRequest);
+   }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import io.github.microcks.testcontainers.model.TestStepResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a big in progress TestResult as it used to be done (body buffered line by line then bound with
+ * an ObjectMapper) with the streaming {@code TestResultReader}, with and without step messages. Run with
+ * {@code -prof gc} to compare allocations per poll.
+ * @author laurent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestResultReadingBenchmark {
+
+   @Param({"10", "1000"})
+   private int steps;
+
+   private final ObjectMapper mapper = new ObjectMapper();
+   private byte[] json;
+
+   @Setup
+   public void setup() throws IOException {
+      TestResult result = new TestResult();
+      result.setId("64f0a5b2c1");
+      result.setTestDate(new Date());
+      result.setTestedEndpoint("http://pastries:8080");
+      result.setServiceId("API Pastries:0.0.1");
+      result.setRunnerType(TestRunnerType.OPEN_API_SCHEMA);
+      result.setInProgress(true);
+      List<TestCaseResult> testCaseResults = new ArrayList<>();
+      for (int operation = 0; operation < 10; operation++) {
+         TestCaseResult testCaseResult = new TestCaseResult();
+         testCaseResult.setOperationName("GET /pastries/" + operation);
+         for (int step = 0; step < steps / 10; step++) {
+            TestStepResult testStepResult = new TestStepResult();
+            testStepResult.setRequestName("request-" + step);
+            testStepResult.setElapsedTime(step);
+            testStepResult.setMessage(message(step));
+            testCaseResult.getTestStepResults().add(testStepResult);
+         }
+         testCaseResults.add(testCaseResult);
+      }
+      result.setTestCaseResults(testCaseResults);
+      json = mapper.writeValueAsBytes(result);
+   }
+
+   @Benchmark
+   public TestResult bufferedBinding() throws IOException {
+      StringBuilder content = new StringBuilder();
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            content.append(line.trim());
+         }
+      }
+      return mapper.readValue(content.toString(), TestResult.class);
+   }
+
+   @Benchmark
+   public TestResult streamingFull() throws IOException {
+      return TestResultReader.read(new ByteArrayInputStream(json), TestResultReader.Detail.FULL);
+   }
+
+   @Benchmark
+   public TestResult streamingWithoutMessages() throws IOException {
+      return TestResultReader.read(new ByteArrayInputStream(json), TestResultReader.Detail.NO_STEP_MESSAGES_IN_PROGRESS);
+   }
+
+   @Benchmark
+   public TestResult streamingProgress() throws IOException {
+      return TestResultReader.read(new ByteArrayInputStream(json), TestResultReader.Detail.PROGRESS);
+   }
+
+   private static String message(int step) {
+      StringBuilder message = new StringBuilder("Response of request-").append(step).append(" does not match schema:\n");
+      for (int i = 0; i < 10; i++) {
+         message.append("  $.items[").append(i).append("].price: number expected but got string\n");
+      }
+      return message.toString();
+   }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 digests of the artifacts and secrets imported into a Microcks container. The manifest is stored within
+ * the container itself so that a reused container tells what it already holds and unchanged artifacts are
+ * not uploaded again.
+ * @author laurent
+ */
+class ArtifactManifest {
+
+   /** Where the manifest lives within the Microcks container. */
+   static final String CONTAINER_PATH = "/tmp/microcks-testcontainers-manifest.properties";
+
+   private final Map<String, String> digests = new TreeMap<>();
+
+   void put(ImportReport.Kind kind, String name, String digest) {
+      digests.put(key(kind, name), digest);
+   }
+
+   String get(ImportReport.Kind kind, String name) {
+      return digests.get(key(kind, name));
+   }
+
+   void remove(ImportReport.Kind kind, String name) {
+      digests.remove(key(kind, name));
+   }
+
+   /**
+    * Tell if an artifact or secret has the same digest in both manifests.
+    * @param other Another manifest, typically the one read from a reused container
+    * @param kind The kind of imported thing
+    * @param name The artifact path or secret name
+    * @return true if digest is known and unchanged
+    */
+   boolean isUnchangedIn(ArtifactManifest other, ImportReport.Kind kind, String name) {
+      String digest = get(kind, name);
+      return digest != null && digest.equals(other.get(kind, name));
+   }
+
+   byte[] toBytes() throws IOException {
+      Properties properties = new Properties();
+      properties.putAll(digests);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+         properties.store(writer, "Artifacts imported by microcks-testcontainers");
+      }
+      return out.toByteArray();
+   }
+
+   static ArtifactManifest fromStream(InputStream stream) throws IOException {
+      Properties properties = new Properties();
+      properties.load(new InputStreamReader(stream, StandardCharsets.UTF_8));
+      ArtifactManifest manifest = new ArtifactManifest();
+      properties.stringPropertyNames().forEach(key -> manifest.digests.put(key, properties.getProperty(key)));
+      return manifest;
+   }
+
+   static String sha256(InputStream stream) throws IOException {
+      MessageDigest digest = newDigest();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = stream.read(buffer)) != -1) {
+         digest.update(buffer, 0, read);
+      }
+      return toHex(digest.digest());
+   }
+
+   static String sha256(byte[] content) {
+      return toHex(newDigest().digest(content));
+   }
+
+   private static String key(ImportReport.Kind kind, String name) {
+      return kind.name() + ":" + name;
+   }
+
+   private static MessageDigest newDigest() {
+      try {
+         return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException nsae) {
+         throw new IllegalStateException("SHA-256 is mandatory on every Java platform", nsae);
+      }
+   }
+
+   private static String toHex(byte[] bytes) {
+      StringBuilder hex = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+         hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+   }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+
+import org.testcontainers.lifecycle.Startable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a set of containers following their dependencies. In parallel mode, each container starts as soon as
+ * the ones it depends on are started; in sequential mode, containers are started one after the other in the
+ * order they were added. When a container fails to start, the ones depending on it are not started and the
+ * first failure is thrown once every started container has finished.
+ * @author laurent
+ */
+class ContainerStarter {
+
+   private final boolean parallel;
+   private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+   ContainerStarter(boolean parallel) {
+      this.parallel = parallel;
+   }
+
+   /**
+    * Add a container to start.
+    * @param name         The name of container within ensemble
+    * @param container    The container to start
+    * @param dependencies The names of previously added containers that must be started first
+    * @return this starter
+    */
+   ContainerStarter add(String name, Startable container, String... dependencies) {
+      for (String dependency : dependencies) {
+         if (!nodes.containsKey(dependency)) {
+            throw new IllegalArgumentException(name + " depends on " + dependency + " that has not been added before");
+         }
+      }
+      nodes.put(name, new Node(name, container, Arrays.asList(dependencies)));
+      return this;
+   }
+
+   StartupTimeline start() {
+      long start = System.nanoTime();
+      List<StartupTimeline.Entry> entries = Collections.synchronizedList(new ArrayList<>());
+      RuntimeException failure = parallel ? startInParallel(start, entries) : startSequentially(start, entries);
+      StartupTimeline timeline = new StartupTimeline(entries, millisSince(start), parallel);
+      if (failure != null) {
+         throw failure;
+      }
+      return timeline;
+   }
+
+   private RuntimeException startSequentially(long start, List<StartupTimeline.Entry> entries) {
+      for (Node node : nodes.values()) {
+         RuntimeException failure = timed(node, start, entries);
+         if (failure != null) {
+            return failure;
+         }
+      }
+      return null;
+   }
+
+   private RuntimeException startInParallel(long start, List<StartupTimeline.Entry> entries) {
+      ExecutorService executor = Executors.newFixedThreadPool(nodes.size(), new NamedThreadFactory("microcks-ensemble-start"));
+      try {
+         Map<String, CompletableFuture<Void>> starts = new LinkedHashMap<>();
+         for (Node node : nodes.values()) {
+            CompletableFuture<?>[] dependencies = node.dependencies.stream().map(starts::get).toArray(CompletableFuture[]::new);
+            starts.put(node.name, CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+               RuntimeException failure = timed(node, start, entries);
+               if (failure != null) {
+                  throw failure;
+               }
+            }, executor));
+         }
+         RuntimeException firstFailure = null;
+         for (CompletableFuture<Void> started : starts.values()) {
+            try {
+               started.join();
+            } catch (CompletionException ce) {
+               if (firstFailure == null) {
+                  Throwable cause = Futures.unwrap(ce);
+                  firstFailure = cause instanceof RuntimeException ? (RuntimeException) cause : ce;
+               }
+            }
+         }
+         return firstFailure;
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private static RuntimeException timed(Node node, long start, List<StartupTimeline.Entry> entries) {
+      long nodeStart = System.nanoTime();
+      RuntimeException failure = null;
+      try {
+         node.container.start();
+      } catch (RuntimeException re) {
+         failure = re;
+      }
+      entries.add(new StartupTimeline.Entry(node.name, TimeUnit.NANOSECONDS.toMillis(nodeStart - start),
+            millisSince(nodeStart), failure));
+      return failure;
+   }
+
+   private static long millisSince(long start) {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+   }
+
+   private static class Node {
+
+      private final String name;
+      private final Startable container;
+      private final List<String> dependencies;
+
+      private Node(String name, Startable container, List<String> dependencies) {
+         this.name = name;
+         this.container = container;
+         this.dependencies = dependencies;
+      }
+   }
+}
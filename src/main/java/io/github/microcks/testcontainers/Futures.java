@@ -0,0 +1,69 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for chaining the futures of tests.
+ * @author laurent
+ */
+final class Futures {
+
+   private Futures() {
+      // Utility class.
+   }
+
+   /**
+    * Cancel upstream futures when a downstream one is cancelled, so that cancelling a composed result stops the
+    * tests it's made of.
+    * @param downstream The future handed to caller
+    * @param upstreams  The futures the downstream one depends on
+    */
+   static void propagateCancellation(CompletableFuture<?> downstream, Collection<? extends CompletableFuture<?>> upstreams) {
+      downstream.whenComplete((result, failure) -> {
+         if (downstream.isCancelled()) {
+            upstreams.forEach(upstream -> upstream.cancel(true));
+         }
+      });
+   }
+
+   /**
+    * Complete a future the same way as another one.
+    * @param source The future to mirror
+    * @param target The future to complete
+    * @param <T>    The type of result
+    */
+   static <T> void mirror(CompletableFuture<T> source, CompletableFuture<T> target) {
+      source.whenComplete((result, failure) -> {
+         if (failure != null) {
+            target.completeExceptionally(unwrap(failure));
+         } else {
+            target.complete(result);
+         }
+      });
+   }
+
+   /**
+    * @param failure A failure got from a future stage
+    * @return The actual cause of failure
+    */
+   static Throwable unwrap(Throwable failure) {
+      return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+   }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of artifacts and secrets import done at container startup: timing and failure of each
+ * individual import, gathered in a single report.
+ * @author laurent
+ */
+public class ImportReport {
+
+   /** The different kinds of things imported at startup. */
+   public enum Kind {
+      MAIN_ARTIFACT,
+      SECONDARY_ARTIFACT,
+      SECRET,
+      /** A repository snapshot previously exported from Microcks. */
+      SNAPSHOT
+   }
+
+   /** The status of an individual import. */
+   public enum Status {
+      IMPORTED,
+      /** Already present with the same content in a reused container. */
+      SKIPPED,
+      FAILED
+   }
+
+   private final List<Entry> entries;
+   private final long durationMillis;
+
+   ImportReport(List<Entry> entries, long durationMillis) {
+      this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+      this.durationMillis = durationMillis;
+   }
+
+   /** @return All the individual imports, in completion order. */
+   public List<Entry> getEntries() {
+      return entries;
+   }
+
+   /** @return The wall time of whole import. */
+   public long getDurationMillis() {
+      return durationMillis;
+   }
+
+   /** @return The individual imports that failed. */
+   public List<Entry> getFailures() {
+      return entries.stream().filter(entry -> entry.getStatus() == Status.FAILED).collect(Collectors.toList());
+   }
+
+   /** @return The individual imports that were skipped because already present in container. */
+   public List<Entry> getSkipped() {
+      return entries.stream().filter(entry -> entry.getStatus() == Status.SKIPPED).collect(Collectors.toList());
+   }
+
+   public boolean hasFailures() {
+      return entries.stream().anyMatch(entry -> entry.getStatus() == Status.FAILED);
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder builder = new StringBuilder("ImportReport in ").append(durationMillis).append("ms");
+      for (Entry entry : entries) {
+         builder.append("\n  ").append(entry);
+      }
+      return builder.toString();
+   }
+
+   /** The import of a single artifact or secret. */
+   public static class Entry {
+
+      private final Kind kind;
+      private final String name;
+      private final Status status;
+      private final long durationMillis;
+      private final Throwable failure;
+
+      Entry(Kind kind, String name, Status status, long durationMillis, Throwable failure) {
+         this.kind = kind;
+         this.name = name;
+         this.status = status;
+         this.durationMillis = durationMillis;
+         this.failure = failure;
+      }
+
+      public Kind getKind() {
+         return kind;
+      }
+
+      /** @return The artifact path, the secret name or the snapshot path. */
+      public String getName() {
+         return name;
+      }
+
+      public Status getStatus() {
+         return status;
+      }
+
+      public long getDurationMillis() {
+         return durationMillis;
+      }
+
+      /** @return The cause of failure, null if import succeeded. */
+      public Throwable getFailure() {
+         return failure;
+      }
+
+      @Override
+      public String toString() {
+         return kind + " " + name + ": " + status + " in " + durationMillis + "ms"
+               + (failure != null ? " (" + failure.getMessage() + ")" : "");
+      }
+   }
+}
@@ -15,32 +15,55 @@
  */
 package io.github.microcks.testcontainers;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.github.dockerjava.api.command.InspectContainerResponse;
+import io.github.microcks.testcontainers.client.ClientResponse;
+import io.github.microcks.testcontainers.client.MicrocksClient;
+import io.github.microcks.testcontainers.client.MultipartBody;
+import io.github.microcks.testcontainers.client.RequestBody;
+import io.github.microcks.testcontainers.client.UploadMetrics;
 import io.github.microcks.testcontainers.model.*;
+import io.github.microcks.testcontainers.util.ExecutorMetrics;
+import io.github.microcks.testcontainers.util.InstrumentedExecutor;
+import io.github.microcks.testcontainers.util.TaskExecutors;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
 import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
 import org.testcontainers.shaded.com.fasterxml.jackson.databind.JsonNode;
-import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
-import org.testcontainers.shaded.com.github.dockerjava.core.MediaType;
-import org.testcontainers.shaded.com.google.common.net.HttpHeaders;
-import org.testcontainers.shaded.org.awaitility.Awaitility;
-import org.testcontainers.shaded.org.awaitility.core.ConditionTimeoutException;
 import org.testcontainers.utility.DockerImageName;
 
 import java.io.*;
-import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -58,16 +81,41 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
 
     private static final String MICROCKS_FULL_IMAGE_NAME = "quay.io/microcks/microcks-uber";
     private static final DockerImageName MICROCKS_IMAGE = DockerImageName.parse(MICROCKS_FULL_IMAGE_NAME);
-    private static final String HTTP_UPLOAD_LINE_FEED = "\r\n";
 
     public static final int MICROCKS_HTTP_PORT = 8080;
     public static final int MICROCKS_GRPC_PORT = 9090;
+    public static final int DEFAULT_IMPORT_PARALLELISM = 4;
 
-    private static ObjectMapper mapper;
+    private static final int SERVICES_PAGE_SIZE = 200;
+    private static final int SECRETS_PAGE_SIZE = 200;
+    private static final int DEFAULT_OPERATION_UPDATE_PARALLELISM = 4;
+    private static final int DEFAULT_TEST_EXECUTOR_THREADS = 16;
+    private static final int DEFAULT_BATCH_EXECUTOR_THREADS = 8;
+    private static final int DEFAULT_POLLER_THREADS = 2;
+
+
+    private final DockerImageName imageName;
 
     private Set<String> mainArtifactsToImport;
     private Set<String> secondaryArtifactsToImport;
     private Set<Secret> secrets;
+    private Path snapshot;
+    private int importParallelism = DEFAULT_IMPORT_PARALLELISM;
+    private ImportReport importReport;
+    private volatile RepositoryReset.Baseline baseline;
+
+    private MicrocksClient.Builder clientBuilder = new MicrocksClient.Builder();
+    private MicrocksClient client;
+
+    private InstrumentedExecutor testExecutor;
+    private TaskExecutors.Instrumented ownedTestExecutor;
+    private TaskExecutors.Instrumented batchExecutor;
+    private TestResultPoller poller;
+    private PollingPolicy pollingPolicy = PollingPolicy.DEFAULT;
+    private final Map<TestRunnerType, Integer> runnerConcurrencies = TestSuiteRunner.defaultConcurrencies();
+
+    private final ServiceIndex serviceIndex = new ServiceIndex(this::listServiceIds);
+    private final Map<OperationRef, Dispatcher> appliedDispatchers = new ConcurrentHashMap<>();
 
     /**
      * Build a new MicrocksContainer with its container image name as string. This image must
@@ -88,6 +136,7 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
     public MicrocksContainer(DockerImageName imageName) {
         super(imageName);
         imageName.assertCompatibleWith(MICROCKS_IMAGE);
+        this.imageName = imageName;
 
         withExposedPorts(MICROCKS_HTTP_PORT, MICROCKS_GRPC_PORT);
 
@@ -103,7 +152,7 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
      */
     public MicrocksContainer withMainArtifacts(String... artifacts) {
         if (mainArtifactsToImport == null) {
-            mainArtifactsToImport = new HashSet<>();
+            mainArtifactsToImport = new LinkedHashSet<>();
         }
         mainArtifactsToImport.addAll(Arrays.stream(artifacts).collect(Collectors.toList()));
         return self();
@@ -118,12 +167,24 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
      */
     public MicrocksContainer withSecondaryArtifacts(String... artifacts) {
         if (secondaryArtifactsToImport == null) {
-            secondaryArtifactsToImport = new HashSet<>();
+            secondaryArtifactsToImport = new LinkedHashSet<>();
         }
         secondaryArtifactsToImport.addAll(Arrays.stream(artifacts).collect(Collectors.toList()));
         return self();
     }
 
+    /**
+     * Provide a repository snapshot previously written by {@code exportSnapshot()} that will be imported in one request
+     * once container is started, before artifacts. Services it holds don't have to be parsed again from their artifacts.
+     *
+     * @param snapshot The path of snapshot file
+     * @return self
+     */
+    public MicrocksContainer withSnapshot(Path snapshot) {
+        this.snapshot = snapshot;
+        return self();
+    }
+
     /**
      * Provide Secret that should be imported in Microcks after startup.
      *
@@ -132,22 +193,190 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
      */
     public MicrocksContainer withSecret(Secret secret) {
         if (secrets == null) {
-            secrets = new HashSet<>();
+            secrets = new LinkedHashSet<>();
         }
         secrets.add(secret);
         return self();
     }
 
+    /**
+     * Set how many artifacts and secrets can be imported concurrently once the container is started.
+     *
+     * @param importParallelism The maximum number of concurrent imports (default is 4)
+     * @return self
+     */
+    public MicrocksContainer withImportParallelism(int importParallelism) {
+        if (importParallelism < 1) {
+            throw new IllegalArgumentException("Import parallelism must be positive");
+        }
+        this.importParallelism = importParallelism;
+        return self();
+    }
+
+    /**
+     * Get the report of artifacts and secrets imported at container startup.
+     *
+     * @return The timing and outcome of each startup import, null if nothing had to be imported.
+     */
+    public ImportReport getImportReport() {
+        return importReport;
+    }
+
+    /**
+     * Get the hit/miss counters of the index used to resolve services ids when updating operations.
+     *
+     * @return A snapshot of services index metrics
+     */
+    public ServiceIndexMetrics getServiceIndexMetrics() {
+        return serviceIndex.getMetrics();
+    }
+
+    /**
+     * Customize the pooled Http client used to talk to Microcks APIs (pool size, connect and read timeouts, ...).
+     *
+     * @param clientBuilder A client builder; it is left untouched and can be shared by several containers, each
+     *                      building its client with its own endpoint once started.
+     * @return self
+     */
+    public MicrocksContainer withMicrocksClient(MicrocksClient.Builder clientBuilder) {
+        this.clientBuilder = clientBuilder;
+        return self();
+    }
+
+    /**
+     * Set the executor running asynchronous tests launched with {@code testEndpointAsync(TestRequest)}. It also notifies
+     * progress listeners and completes test futures, so dependent stages run on it. By default, virtual threads are
+     * used on Java 21+ and a bounded pool of daemon threads on older Java versions.
+     *
+     * @param executor The executor to run asynchronous tests on. Caller remains responsible for its lifecycle.
+     * @return self
+     */
+    public synchronized MicrocksContainer withTestExecutor(Executor executor) {
+        this.testExecutor = new InstrumentedExecutor(executor);
+        return self();
+    }
+
+    /**
+     * Get the activity of the executor running asynchronous tests.
+     *
+     * @return A snapshot of queued and in-flight asynchronous tests.
+     */
+    public ExecutorMetrics getTestExecutorMetrics() {
+        return getTestExecutor().getMetrics();
+    }
+
+    /**
+     * Set how progression of launched tests is polled (first refresh delay, backoff, jitter, ...).
+     *
+     * @param pollingPolicy The policy for polling tests progression.
+     * @return self
+     */
+    public MicrocksContainer withPollingPolicy(PollingPolicy pollingPolicy) {
+        this.pollingPolicy = pollingPolicy;
+        return self();
+    }
+
+    /**
+     * Set how many tests using a runner type can run at the same time when launched with {@code testEndpoints()}.
+     * Default is 2 for the slow {@code POSTMAN} and {@code SOAP_UI} runners, 8 for the others.
+     *
+     * @param runnerType  The type of test runner
+     * @param concurrency The maximum number of concurrent tests for this runner type
+     * @return self
+     */
+    public synchronized MicrocksContainer withRunnerConcurrency(TestRunnerType runnerType, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        runnerConcurrencies.put(runnerType, concurrency);
+        return self();
+    }
+
+    /**
+     * Get how progression of a finished test has been polled. Only the most recent tests are remembered.
+     *
+     * @param testResultId The id of a finished test (see {@code TestResult.getId()})
+     * @return The poll count and detection overshoot of test, null if test is unknown or still running.
+     */
+    public TestRunStatistics getTestRunStatistics(String testResultId) {
+        return getPoller().getStatistics(testResultId);
+    }
+
+    /**
+     * Get the activity of the poller tracking progression of launched tests.
+     *
+     * @return A snapshot of poll counts and completion detection latency.
+     */
+    public PollerMetrics getPollerMetrics() {
+        return getPoller().getMetrics();
+    }
+
+    /**
+     * Get the pooled Http client used to talk to this container Microcks APIs. Useful for checking pool metrics.
+     *
+     * @return The client bound to this container Http endpoint.
+     */
+    public synchronized MicrocksClient getMicrocksClient() {
+        if (client == null) {
+            try {
+                client = clientBuilder.build(getHttpEndpoint());
+            } catch (MalformedURLException mue) {
+                throw new IllegalStateException("Cannot build a client for " + getHttpEndpoint(), mue);
+            }
+        }
+        return client;
+    }
+
     @Override
     protected void containerIsStarted(InspectContainerResponse containerInfo) {
-        if (mainArtifactsToImport != null && !mainArtifactsToImport.isEmpty()) {
-            mainArtifactsToImport.stream().forEach((String artifactPath) -> this.importArtifact(artifactPath, true));
+        if (snapshot != null || isNotEmpty(mainArtifactsToImport) || isNotEmpty(secondaryArtifactsToImport) || isNotEmpty(secrets)) {
+            Set<String> mains = nullToEmpty(mainArtifactsToImport);
+            Set<String> secondaries = nullToEmpty(secondaryArtifactsToImport);
+            Set<Secret> secretsToCreate = nullToEmpty(secrets);
+
+            // When container is reused, only import what is not already in there.
+            ArtifactManifest manifest = null;
+            ParallelImporter.ImportFilter filter = ParallelImporter.ImportFilter.ALL;
+            if (isShouldBeReused()) {
+                manifest = computeManifest(mains, secondaries, secretsToCreate);
+                filter = changedSince(readContainerManifest(), manifest, mains, snapshot);
+            }
+
+            importReport = importBaseline(secretsToCreate, filter);
+            log.debug("Startup imports done: {}", importReport);
+
+            if (manifest != null) {
+                writeContainerManifest(manifest, importReport);
+            }
+            checkImportReport(importReport);
+        }
+        try {
+            captureBaseline();
+        } catch (IOException ioe) {
+            log.warn("Cannot capture repository baseline, reset() is not available until captureBaseline() succeeds", ioe);
+        }
+    }
+
+    @Override
+    protected synchronized void containerIsStopping(InspectContainerResponse containerInfo) {
+        if (poller != null) {
+            poller.shutdown();
+            poller = null;
+        }
+        if (ownedTestExecutor != null) {
+            ownedTestExecutor.shutdownNow();
+            if (testExecutor == ownedTestExecutor) {
+                testExecutor = null;
+            }
+            ownedTestExecutor = null;
         }
-        if (secondaryArtifactsToImport != null && !secondaryArtifactsToImport.isEmpty()) {
-            secondaryArtifactsToImport.stream().forEach((String artifactPath) -> this.importArtifact(artifactPath, false));
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+            batchExecutor = null;
         }
-        if (secrets != null && !secrets.isEmpty()) {
-            secrets.stream().forEach((Secret secret) -> this.createSecret(secret));
+        if (client != null) {
+            client.close();
+            client = null;
         }
     }
 
@@ -226,11 +455,135 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
         importArtifact(artifact, false);
     }
 
+    /**
+     * Import an artifact as a primary or main one within the Microcks container. Artifact content is streamed
+     * to the container without being loaded on heap.
+     *
+     * @param artifact The path of artifact (OpenAPI, Postman collection, Protobuf, GraphQL schema, ...)
+     * @return The size and timing of upload
+     * @throws IOException       If file cannot be read of transmission exception occurs.
+     * @throws MicrocksException If artifact cannot be correctly imported in container (probably malformed)
+     */
+    public UploadMetrics importAsMainArtifact(Path artifact) throws IOException, MicrocksException {
+        return importArtifact(artifact, true);
+    }
+
+    /**
+     * Import an artifact as a secondary one within the Microcks container. Artifact content is streamed
+     * to the container without being loaded on heap.
+     *
+     * @param artifact The path of artifact (OpenAPI, Postman collection, Protobuf, GraphQL schema, ...)
+     * @return The size and timing of upload
+     * @throws IOException       If file cannot be read of transmission exception occurs.
+     * @throws MicrocksException If artifact cannot be correctly imported in container (probably malformed)
+     */
+    public UploadMetrics importAsSecondaryArtifact(Path artifact) throws IOException, MicrocksException {
+        return importArtifact(artifact, false);
+    }
+
+    /**
+     * Import an artifact from a stream within the Microcks container. The stream is consumed but not closed.
+     *
+     * @param filename     The name of artifact (Microcks uses its extension to guess the artifact type)
+     * @param content      The artifact content
+     * @param length       The number of bytes of content or -1 if unknown
+     * @param mainArtifact Whether artifact should be imported as a main one or as a secondary one
+     * @return The size and timing of upload
+     * @throws IOException       If stream cannot be read of transmission exception occurs.
+     * @throws MicrocksException If artifact cannot be correctly imported in container (probably malformed)
+     */
+    public UploadMetrics importArtifact(String filename, InputStream content, long length, boolean mainArtifact)
+            throws IOException, MicrocksException {
+        return uploadArtifact(MultipartBody.ofStream("file", filename, content, length), mainArtifact);
+    }
+
+    /**
+     * Import an artifact from an in-memory buffer within the Microcks container. Buffer remaining bytes
+     * are sent, its position is left untouched.
+     *
+     * @param filename     The name of artifact (Microcks uses its extension to guess the artifact type)
+     * @param content      The artifact content
+     * @param mainArtifact Whether artifact should be imported as a main one or as a secondary one
+     * @return The size and timing of upload
+     * @throws IOException       If transmission exception occurs.
+     * @throws MicrocksException If artifact cannot be correctly imported in container (probably malformed)
+     */
+    public UploadMetrics importArtifact(String filename, ByteBuffer content, boolean mainArtifact)
+            throws IOException, MicrocksException {
+        return uploadArtifact(MultipartBody.ofBuffer("file", filename, content), mainArtifact);
+    }
+
+    /**
+     * Export the current Microcks repository (services with their operations, resources and examples) into a snapshot
+     * file. Using it later with {@code withSnapshot()} or {@code importSnapshot()} loads all these services at once,
+     * without parsing their artifacts again.
+     *
+     * @param target The path of snapshot file to write, replaced if it exists
+     * @throws IOException       If transmission exception occurs or file cannot be written
+     * @throws MicrocksException If repository has no service or Microcks fails exporting it
+     */
+    public void exportSnapshot(Path target) throws IOException, MicrocksException {
+        Collection<String> serviceIds = listServiceIds().values();
+        if (serviceIds.isEmpty()) {
+            // Microcks would not export anything meaningful without service ids.
+            throw new MicrocksException("Repository has no service to export");
+        }
+        StringBuilder path = new StringBuilder("/api/export");
+        char separator = '?';
+        for (String serviceId : serviceIds) {
+            path.append(separator).append("serviceIds=").append(URLEncoder.encode(serviceId, "utf-8"));
+            separator = '&';
+        }
+        try (ClientResponse response = getMicrocksClient().get(path.toString())) {
+            if (response.getStatusCode() != 200) {
+                // Read response content for diagnostic purpose.
+                String responseContent = response.getBodyAsString();
+                log.error("Repository has not been correctly exported: {}", responseContent);
+                throw new MicrocksException("Repository has not been correctly exported: " + responseContent);
+            }
+            try (InputStream body = response.getBody()) {
+                Files.copy(body, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Import a repository snapshot previously written by {@code exportSnapshot()} within the Microcks container.
+     *
+     * @param snapshot The path of snapshot file
+     * @return The size and timing of upload
+     * @throws IOException       If transmission exception occurs.
+     * @throws MicrocksException If snapshot cannot be correctly imported in container (probably malformed)
+     */
+    public UploadMetrics importSnapshot(Path snapshot) throws IOException, MicrocksException {
+        long start = System.nanoTime();
+        MultipartBody body = MultipartBody.ofFile("file", snapshot);
+        try (ClientResponse response = getMicrocksClient().post("/api/import", body)) {
+            if (response.getStatusCode() != 201) {
+                // Read response content for diagnostic purpose.
+                String responseContent = response.getBodyAsString();
+                log.error("Snapshot has not been correctly imported: {}", responseContent);
+                throw new MicrocksException("Snapshot has not been correctly imported: " + responseContent);
+            }
+        }
+        serviceIndex.invalidate();
+        appliedDispatchers.clear();
+        UploadMetrics metrics = new UploadMetrics(body.getFilename(), body.getBytesWritten(), System.nanoTime() - start);
+        log.debug("Snapshot has been imported: {}", metrics);
+        return metrics;
+    }
+
     public void updateOperationDispatcher(String service,
                                           String version,
                                           String operationName,
                                           Dispatcher dispatcher) throws MicrocksException {
 
+        OperationRef operation = OperationRef.of(service, version, operationName);
+        if (OperationDispatcherUpdater.isSame(dispatcher, appliedDispatchers.get(operation))) {
+            // Already applied through this container: neither lookup nor update is needed.
+            return;
+        }
+
         Optional<String> serviceId = serviceId(service, version);
 
         if (!serviceId.isPresent()) {
@@ -238,38 +591,100 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
         }
 
         try {
-            String encodedOperation = URLEncoder.encode(operationName, "utf-8");
-            URL url = new URL(getHttpEndpoint() + "/api/services/" + serviceId.get() + "/operation?operationName=" + encodedOperation);
-            HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
-            httpConn.setRequestMethod("PUT");
-            httpConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.getMediaType());
-            httpConn.setRequestProperty(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON.getMediaType());
-            httpConn.setDoOutput(true);
-
-            String requestBody = getMapper().writeValueAsString(new OperationUpdateRequest(dispatcher));
-
-            try (OutputStream os = httpConn.getOutputStream()) {
-                byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-                os.flush();
-            }
+            putOperationDispatcher(serviceId.get(), operationName, new OperationUpdateRequest(dispatcher));
+            appliedDispatchers.put(operation, dispatcher);
+        } catch (Exception e) {
+            appliedDispatchers.remove(operation);
+            log.warn("Error while updating operation: {}", operationName, e);
+        }
+    }
 
-            if (httpConn.getResponseCode() != 200) {
-                String responseContent = readResponse(httpConn.getInputStream());
+    /**
+     * Update the dispatchers of many operations at once. Operations already having the requested dispatcher
+     * and rules are not updated again, the others are updated concurrently.
+     *
+     * @param dispatchers The dispatcher to set on each operation
+     * @return The outcome of each operation update
+     */
+    public OperationUpdateReport updateOperationDispatchers(Map<OperationRef, Dispatcher> dispatchers) {
+        return updateOperationDispatchers(dispatchers, DEFAULT_OPERATION_UPDATE_PARALLELISM);
+    }
 
-                log.error("Operation has not been correctly updated: {}", responseContent);
-                throw new MicrocksException("Operation has not been correctly updated: " + responseContent);
-            }
-            httpConn.disconnect();
-        } catch (Exception e) {
-            log.warn("Error while updating operation: {}", operationName);
+    /**
+     * Update the dispatchers of many operations at once. Operations already having the requested dispatcher
+     * and rules are not updated again, the others are updated concurrently. Applying again a dispatcher that has
+     * been applied through this container is detected without calling Microcks.
+     *
+     * @param dispatchers The dispatcher to set on each operation
+     * @param parallelism The maximum number of updates sent at the same time
+     * @return The outcome of each operation update
+     */
+    public OperationUpdateReport updateOperationDispatchers(Map<OperationRef, Dispatcher> dispatchers, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
         }
+        OperationUpdateReport report = new OperationDispatcherUpdater(getBatchExecutor(), parallelism, this::serviceId,
+                this::currentDispatching, this::putOperationDispatcher, appliedDispatchers).run(dispatchers);
+        log.debug("Operations update done: {}", report);
+        return report;
     }
 
     public void forceOperationResponse(String service, String version, String operationName, String responseKey) throws MicrocksException {
         updateOperationDispatcher(service, version, operationName, Dispatcher.script("return \"" + responseKey + "\""));
     }
 
+    /**
+     * Capture the services and secrets currently in Microcks as the baseline {@code reset()} brings repository
+     * back to. This is done automatically once startup imports are done.
+     *
+     * @throws IOException If services or secrets cannot be listed
+     */
+    public void captureBaseline() throws IOException {
+        baseline = new RepositoryReset.Baseline(new HashSet<>(listServiceIds().values()), listSecrets());
+    }
+
+    /**
+     * Bring Microcks repository back to its baseline, in milliseconds rather than the seconds of a restart: services
+     * and secrets created after baseline are deleted in parallel, then snapshot, main and secondary artifacts provided
+     * at startup are imported again to restore what tests may have changed in baseline services, and secrets provided
+     * at startup that tests deleted are created again. Microcks API does not allow deleting test results: those of
+     * deleted services are left in place but no longer reachable through their service.
+     *
+     * @return The report of deletions and restored artifacts, with reset duration
+     * @throws MicrocksException If some services or secrets cannot be deleted or some artifacts restored
+     */
+    public ResetReport reset() throws MicrocksException {
+        RepositoryReset.Baseline current = baseline;
+        if (current == null) {
+            throw new IllegalStateException("No baseline has been captured, container may not be started");
+        }
+        ResetReport report = new RepositoryReset(getBatchExecutor(), importParallelism).run(current,
+                () -> new HashSet<>(listServiceIds().values()), this::deleteService,
+                () -> listSecrets().keySet(), this::deleteSecret,
+                missingSecretNames -> importBaseline(nullToEmpty(secrets).stream()
+                        .filter(secret -> missingSecretNames.contains(secret.getName())).collect(Collectors.toSet()),
+                        ParallelImporter.ImportFilter.ALL));
+        serviceIndex.invalidate();
+        appliedDispatchers.clear();
+        log.debug("Repository reset done: {}", report);
+        if (report.hasFailures()) {
+            log.error("Repository has not been correctly reset: {}", report);
+            MicrocksException exception = new MicrocksException("Repository has not been correctly reset: "
+                    + report.getFailures().size() + " deletion(s) and " + report.getRestoreReport().getFailures().size()
+                    + " restoration(s) failed");
+            report.getFailures().values().forEach(exception::addSuppressed);
+            report.getRestoreReport().getFailures().forEach(entry -> exception.addSuppressed(entry.getFailure()));
+            throw exception;
+        }
+        try {
+            // A baseline service deleted by a test and restored has a new id.
+            captureBaseline();
+        } catch (IOException ioe) {
+            log.warn("Cannot capture repository baseline after reset, keeping previous one", ioe);
+        }
+        return report;
+    }
+
     /**
      * Launch a conformance test on an endpoint.
      *
@@ -280,7 +695,37 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
      * @throws MicrocksException    If Microcks fails creating a new test giving your request.
      */
     public TestResult testEndpoint(TestRequest testRequest) throws IOException, InterruptedException, MicrocksException {
-        return testEndpoint(getHttpEndpoint(), testRequest);
+        return testEndpoint(testRequest, null);
+    }
+
+    /**
+     * Launch a conformance test on an endpoint, reporting its progression as test cases and steps are completed.
+     *
+     * @param testRequest The test specifications (API under test, endpoint, runner, ...)
+     * @param listener    The listener of test progression
+     * @return The final TestResult containing information on success/failure as well as details on test cases.
+     * @throws IOException          If connection to Microcks container failed (no route to host, low-level network stuffs)
+     * @throws InterruptedException If connection to Microcks container is interrupted
+     * @throws MicrocksException    If Microcks fails creating a new test giving your request.
+     */
+    public TestResult testEndpoint(TestRequest testRequest, TestProgressListener listener)
+            throws IOException, InterruptedException, MicrocksException {
+        long submittedAt = System.currentTimeMillis();
+        TestResult testResult = launchTest(getMicrocksClient(), testRequest);
+        CompletableFuture<TestResult> tracked = getPoller().track(testResult.getId(), submittedAt,
+                testRequest.getTimeout(), pollingPolicy, listener);
+        try {
+            return tracked.get();
+        } catch (InterruptedException ie) {
+            // Stop polling for a test nobody waits for anymore.
+            tracked.cancel(true);
+            throw ie;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException("Error while polling test " + testResult.getId(), ee.getCause());
+        }
     }
 
     /**
@@ -290,13 +735,154 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
      * @return A completable future that will allow to retrieve a TestResult once test is finished.
      */
     public CompletableFuture<TestResult> testEndpointAsync(TestRequest testRequest) {
-        return CompletableFuture.supplyAsync(() -> {
+        return testEndpointAsync(testRequest, getTestExecutor(), null);
+    }
+
+    /**
+     * Launch a conformance test on an endpoint asynchronously, reporting its progression as test cases and
+     * steps are completed.
+     *
+     * @param testRequest The test specifications (API under test, endpoint, runner, ...)
+     * @param listener    The listener of test progression
+     * @return A completable future that will allow to retrieve a TestResult once test is finished.
+     */
+    public CompletableFuture<TestResult> testEndpointAsync(TestRequest testRequest, TestProgressListener listener) {
+        return testEndpointAsync(testRequest, getTestExecutor(), listener);
+    }
+
+    /**
+     * Launch a conformance test on an endpoint asynchronously, using the provided executor. Executor is only
+     * used for launching the test, its progression is then tracked by the container shared poller.
+     *
+     * @param testRequest The test specifications (API under test, endpoint, runner, ...)
+     * @param executor    The executor running the test launch.
+     * @return A completable future that will allow to retrieve a TestResult once test is finished.
+     */
+    public CompletableFuture<TestResult> testEndpointAsync(TestRequest testRequest, Executor executor) {
+        return testEndpointAsync(testRequest, executor, null);
+    }
+
+    private CompletableFuture<TestResult> testEndpointAsync(TestRequest testRequest, Executor executor, TestProgressListener listener) {
+        // Test deadline includes the time spent waiting for the executor.
+        long submittedAt = System.currentTimeMillis();
+        PollingPolicy policy = pollingPolicy;
+        CompletableFuture<TestResult> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    // Cancelled while waiting for the executor: do not launch at all.
+                    getPoller().recordCancellation();
+                    return;
+                }
+                try {
+                    TestResult launched = launchTest(getMicrocksClient(), testRequest);
+                    CompletableFuture<TestResult> tracked = getPoller().track(launched.getId(), submittedAt,
+                            testRequest.getTimeout(), policy, listener);
+                    Futures.mirror(tracked, result);
+                    Futures.propagateCancellation(result, Collections.singletonList(tracked));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            result.completeExceptionally(ree);
+        }
+        return result;
+    }
+
+    /**
+     * Launch a conformance test split into concurrent shards, each shard testing a subset of operations, and
+     * merge the shards results into a single one.
+     *
+     * @param testRequest The test specifications; tested operations are the filtered ones or all the service operations
+     * @param shards      The number of shards to split the test into
+     * @return The merged TestResult. Its id is the comma-separated list of shard ids.
+     * @throws IOException          If connection to Microcks container failed (no route to host, low-level network stuffs)
+     * @throws InterruptedException If waiting for shards is interrupted
+     * @throws MicrocksException    If Microcks fails creating the shards tests or service cannot be found.
+     */
+    public TestResult testEndpointSharded(TestRequest testRequest, int shards) throws IOException, InterruptedException, MicrocksException {
+        try {
+            return testEndpointShardedAsync(testRequest, shards).get();
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof MicrocksException) {
+                throw (MicrocksException) ee.getCause();
+            }
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException("Error while running sharded test", ee.getCause());
+        }
+    }
+
+    /**
+     * Launch a conformance test split into concurrent shards asynchronously, each shard testing a subset of
+     * operations, and merge the shards results into a single one.
+     *
+     * @param testRequest The test specifications; tested operations are the filtered ones or all the service operations
+     * @param shards      The number of shards to split the test into
+     * @return A completable future that will allow to retrieve the merged TestResult once all shards are finished.
+     */
+    public CompletableFuture<TestResult> testEndpointShardedAsync(TestRequest testRequest, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shards must be at least 1");
+        }
+        CompletableFuture<TestResult> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> {
             try {
-                return MicrocksContainer.testEndpoint(getHttpEndpoint(), testRequest);
+                return testedOperations(testRequest);
             } catch (Exception e) {
                 throw new CompletionException(e);
             }
+        }, getTestExecutor()).whenComplete((operations, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(Futures.unwrap(failure));
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            List<CompletableFuture<TestResult>> shardResults = TestSharding.split(testRequest, operations, shards).stream()
+                    .map(this::testEndpointAsync)
+                    .collect(Collectors.toList());
+            Futures.propagateCancellation(result, shardResults);
+            Futures.mirror(CompletableFuture.allOf(shardResults.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> TestSharding.merge(
+                            shardResults.stream().map(CompletableFuture::join).collect(Collectors.toList()), operations)), result);
         });
+        return result;
+    }
+
+    /**
+     * Launch many conformance tests, with a bounded concurrency for each runner type (see {@code withRunnerConcurrency()}),
+     * and wait for all of them to finish.
+     *
+     * @param testRequests The specifications of tests to run
+     * @return The result of each test and a summary for each tested service.
+     * @throws InterruptedException If waiting for tests is interrupted
+     */
+    public TestSuiteResult testEndpoints(List<TestRequest> testRequests) throws InterruptedException {
+        try {
+            return testEndpointsAsync(testRequests).get();
+        } catch (ExecutionException ee) {
+            // Individual test failures are reported within suite result.
+            throw new IllegalStateException("Unexpected error while running tests", ee.getCause());
+        }
+    }
+
+    /**
+     * Launch many conformance tests asynchronously, with a bounded concurrency for each runner type
+     * (see {@code withRunnerConcurrency()}).
+     *
+     * @param testRequests The specifications of tests to run
+     * @return A completable future that will allow to retrieve the result of each test once they're all finished.
+     */
+    public CompletableFuture<TestSuiteResult> testEndpointsAsync(List<TestRequest> testRequests) {
+        Map<TestRunnerType, Integer> concurrencies;
+        synchronized (this) {
+            concurrencies = new EnumMap<>(runnerConcurrencies);
+        }
+        return new TestSuiteRunner(this::testEndpointAsync, concurrencies).run(testRequests);
     }
 
     /**
@@ -310,64 +896,279 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
      * @throws MicrocksException If Microcks fails creating a new test giving your request.
      */
     public static TestResult testEndpoint(String microcksContainerHttpEndpoint, TestRequest testRequest) throws IOException, MicrocksException {
-        String requestBody = getMapper().writeValueAsString(testRequest);
+        try (MicrocksClient client = new MicrocksClient.Builder().endpoint(microcksContainerHttpEndpoint).build()) {
+            return testEndpoint(client, testRequest);
+        }
+    }
 
-        // Build a new client on correct API endpoint.
-        URL url = new URL(microcksContainerHttpEndpoint + "/api/tests");
-        HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
-        httpConn.setRequestMethod("POST");
-        httpConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.getMediaType());
-        httpConn.setDoOutput(true);
+    private static TestResult testEndpoint(MicrocksClient client, TestRequest testRequest) throws IOException, MicrocksException {
+        PollingPolicy policy = PollingPolicy.DEFAULT;
+        long submittedAt = System.currentTimeMillis();
+        long deadline = submittedAt + testRequest.getTimeout() + policy.getTimeoutGrace();
+        final String testResultId = launchTest(client, testRequest).getId();
 
-        try (OutputStream os = httpConn.getOutputStream()) {
-            byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
+        long interval = policy.getInitialDelay();
+        long wait = submittedAt + interval - System.currentTimeMillis();
+        while (true) {
+            try {
+                Thread.sleep(Math.max(0, Math.min(wait, deadline - System.currentTimeMillis())));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while polling test " + testResultId);
+            }
+            // Only check progression, full result is fetched once at the end.
+            TestResult progress = refreshTestResult(client, testResultId, TestResultReader.Detail.PROGRESS);
+            if (!progress.isInProgress()) {
+                return refreshTestResult(client, testResultId, TestResultReader.Detail.FULL);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                log.info("Test on {} is still in progress after its timeout", testRequest.getTestEndpoint());
+                return refreshTestResult(client, testResultId, TestResultReader.Detail.FULL);
+            }
+            interval = policy.nextInterval(interval);
+            wait = policy.withJitter(interval);
         }
+    }
+
+    private static TestResult launchTest(MicrocksClient client, TestRequest testRequest) throws IOException, MicrocksException {
+        String requestBody = JsonCodecs.TEST_REQUEST_WRITER.writeValueAsString(testRequest);
 
-        StringBuilder responseContent = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(httpConn.getInputStream(), StandardCharsets.UTF_8))) {
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                responseContent.append(responseLine.trim());
+        try (ClientResponse response = client.post("/api/tests", RequestBody.json(requestBody))) {
+            int statusCode = response.getStatusCode();
+            if (statusCode == 201) {
+                TestResult testResult = TestResultReader.read(response.getBody(), TestResultReader.Detail.FULL);
+                log.debug("Got Test Result: {}, now polling for progression", testResult.getId());
+                return testResult;
             }
+            String errorResponse = response.getBodyAsString();
+            log.error("Couldn't launch on new test on Microcks with status {} ", statusCode);
+            log.error("Error response body is {}", errorResponse);
+            throw new MicrocksException("Couldn't launch on new test on Microcks (status " + statusCode + "): "
+                    + errorResponse + ". Please check Microcks container logs");
         }
+    }
+
+    /**
+     * Tell that a test may have progressed (typically because a runner reported a test case result) so that it's
+     * refreshed right away.
+     *
+     * @param testResultId The id of test that may have progressed
+     */
+    void testProgressed(String testResultId) {
+        TestResultPoller currentPoller;
+        synchronized (this) {
+            currentPoller = poller;
+        }
+        if (currentPoller != null) {
+            currentPoller.wake(testResultId);
+        }
+    }
+
+    private synchronized TestResultPoller getPoller() {
+        if (poller == null) {
+            poller = new TestResultPoller((testResultId, detail) -> refreshTestResult(getMicrocksClient(), testResultId, detail),
+                    task -> getTestExecutor().execute(task), DEFAULT_POLLER_THREADS);
+        }
+        return poller;
+    }
+
+    private synchronized InstrumentedExecutor getBatchExecutor() {
+        if (batchExecutor == null) {
+            batchExecutor = TaskExecutors.newBlockingTaskExecutor("microcks-batch", DEFAULT_BATCH_EXECUTOR_THREADS);
+        }
+        return batchExecutor;
+    }
+
+    private synchronized InstrumentedExecutor getTestExecutor() {
+        if (testExecutor == null) {
+            ownedTestExecutor = TaskExecutors.newBlockingTaskExecutor("microcks-test", DEFAULT_TEST_EXECUTOR_THREADS);
+            testExecutor = ownedTestExecutor;
+        }
+        return testExecutor;
+    }
+
+    /**
+     * Compute a key identifying what this container is made of and how it is wired: image, environment, artifacts,
+     * secrets, network, exposed ports and host access. Two containers with the same key are interchangeable and can
+     * be shared. Secrets only appear as digests.
+     *
+     * @return The sharing key of this container configuration
+     */
+    String sharingKey() {
+        StringBuilder key = new StringBuilder(contentKey());
+        if (getNetwork() != null) {
+            key.append("|network=").append(networkKey(getNetwork()));
+        }
+        return key.append(wiringKey(this)).toString();
+    }
+
+    /**
+     * Compute the part of the sharing key that describes what this container is made of: image, environment,
+     * artifacts and secrets. Network wiring is left out so that an ensemble can account for it on its own.
+     *
+     * @return The content key of this container configuration
+     */
+    String contentKey() {
+        StringBuilder key = new StringBuilder(imageName.asCanonicalNameString())
+                .append("|env=").append(new TreeMap<>(getEnvMap()))
+                .append("|main=").append(new TreeSet<>(nullToEmpty(mainArtifactsToImport)))
+                .append("|secondary=").append(new TreeSet<>(nullToEmpty(secondaryArtifactsToImport)))
+                .append("|secrets=");
+        Set<String> secretDigests = new TreeSet<>();
+        for (Secret secret : nullToEmpty(secrets)) {
+            try {
+                secretDigests.add(ArtifactManifest.sha256(JsonCodecs.SECRET_WRITER.writeValueAsBytes(secret)));
+            } catch (IOException ioe) {
+                // Cannot tell if another secret is the same: make this configuration unique.
+                secretDigests.add(secret.getName() + "@" + System.identityHashCode(this));
+            }
+        }
+        key.append(secretDigests);
+        if (snapshot != null) {
+            try (InputStream is = Files.newInputStream(snapshot)) {
+                key.append("|snapshot=").append(ArtifactManifest.sha256(is));
+            } catch (IOException ioe) {
+                key.append("|snapshot=").append(snapshot.toAbsolutePath());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Describe the exposed ports, fixed port bindings and host access of a container, as part of a sharing key.
+     */
+    static String wiringKey(GenericContainer<?> container) {
+        return "|ports=" + new TreeSet<>(container.getExposedPorts()) + new TreeSet<>(container.getPortBindings())
+                + "|hostAccess=" + container.isHostAccessible();
+    }
 
-        if (httpConn.getResponseCode() == 201) {
-            httpConn.disconnect();
+    /**
+     * Identify a network in a sharing key. Networks built by Testcontainers have a name that does not require
+     * to create them in Docker; other implementations are identified by their Docker id.
+     */
+    static String networkKey(Network network) {
+        if (network instanceof Network.NetworkImpl) {
+            return ((Network.NetworkImpl) network).getName();
+        }
+        return network.getId();
+    }
 
-            TestResult testResult = getMapper().readValue(responseContent.toString(), TestResult.class);
-            log.debug("Got Test Result: {}, now polling for progression", testResult.getId());
+    private ImportReport importBaseline(Set<Secret> secretsToCreate, ParallelImporter.ImportFilter filter) {
+        long start = System.nanoTime();
+        List<ImportReport.Entry> entries = new ArrayList<>();
+        // Secondary artifacts may complete services of snapshot, so it comes first.
+        if (snapshot != null) {
+            String name = snapshot.toString();
+            entries.add(filter.shouldImport(ImportReport.Kind.SNAPSHOT, name)
+                    ? ParallelImporter.timed(ImportReport.Kind.SNAPSHOT, name, () -> importSnapshot(snapshot))
+                    : ParallelImporter.skipped(ImportReport.Kind.SNAPSHOT, name));
+        }
+        entries.addAll(new ParallelImporter(getBatchExecutor(), importParallelism).run(nullToEmpty(mainArtifactsToImport),
+                nullToEmpty(secondaryArtifactsToImport), secretsToCreate, this::importArtifact, this::createSecret, filter)
+                .getEntries());
+        return new ImportReport(entries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 
-            final String testResultId = testResult.getId();
+    private ArtifactManifest computeManifest(Set<String> mains, Set<String> secondaries, Set<Secret> secretsToCreate) {
+        ArtifactManifest manifest = new ArtifactManifest();
+        for (String artifact : mains) {
+            putArtifactDigest(manifest, ImportReport.Kind.MAIN_ARTIFACT, artifact);
+        }
+        for (String artifact : secondaries) {
+            putArtifactDigest(manifest, ImportReport.Kind.SECONDARY_ARTIFACT, artifact);
+        }
+        if (snapshot != null) {
+            try (InputStream is = Files.newInputStream(snapshot)) {
+                manifest.put(ImportReport.Kind.SNAPSHOT, snapshot.toString(), ArtifactManifest.sha256(is));
+            } catch (IOException ioe) {
+                log.debug("Cannot compute digest of snapshot {}", snapshot);
+            }
+        }
+        for (Secret secret : secretsToCreate) {
             try {
-                Awaitility.await()
-                        .atMost(testRequest.getTimeout() + 1000, TimeUnit.MILLISECONDS)
-                        .pollDelay(100, TimeUnit.MILLISECONDS)
-                        .pollInterval(200, TimeUnit.MILLISECONDS)
-                        .until(() -> !refreshTestResult(microcksContainerHttpEndpoint, testResultId).isInProgress());
-            } catch (ConditionTimeoutException timeoutException) {
-                log.info("Caught a ConditionTimeoutException for test on {}", testRequest.getTestEndpoint());
+                manifest.put(ImportReport.Kind.SECRET, secret.getName(), ArtifactManifest.sha256(JsonCodecs.SECRET_WRITER.writeValueAsBytes(secret)));
+            } catch (IOException ioe) {
+                log.debug("Cannot compute digest of secret {}", secret.getName());
             }
+        }
+        return manifest;
+    }
 
-            // Return the final result.
-            return refreshTestResult(microcksContainerHttpEndpoint, testResultId);
+    private static void putArtifactDigest(ArtifactManifest manifest, ImportReport.Kind kind, String artifactPath) {
+        URL resource = resolveArtifact(artifactPath);
+        if (resource != null) {
+            try (InputStream is = resource.openStream()) {
+                manifest.put(kind, artifactPath, ArtifactManifest.sha256(is));
+            } catch (IOException ioe) {
+                log.debug("Cannot compute digest of artifact {}", artifactPath);
+            }
         }
-        if (log.isErrorEnabled()) {
-            log.error("Couldn't launch on new test on Microcks with status {} ", httpConn.getResponseCode());
-            log.error("Error response body is {}", responseContent);
+    }
+
+    private static ParallelImporter.ImportFilter changedSince(ArtifactManifest previous, ArtifactManifest current, Set<String> mains,
+                                                              Path snapshot) {
+        // Re-importing a main artifact or snapshot may reset what secondary artifacts brought, so import them again.
+        boolean mainsChanged = mains.stream()
+                .anyMatch(artifact -> !current.isUnchangedIn(previous, ImportReport.Kind.MAIN_ARTIFACT, artifact))
+                || (snapshot != null && !current.isUnchangedIn(previous, ImportReport.Kind.SNAPSHOT, snapshot.toString()));
+        return (kind, name) -> (kind == ImportReport.Kind.SECONDARY_ARTIFACT && mainsChanged)
+                || !current.isUnchangedIn(previous, kind, name);
+    }
+
+    private ArtifactManifest readContainerManifest() {
+        try {
+            return copyFileFromContainer(ArtifactManifest.CONTAINER_PATH, ArtifactManifest::fromStream);
+        } catch (Exception e) {
+            // No manifest: this is a fresh container.
+            return new ArtifactManifest();
         }
-        httpConn.disconnect();
-        throw new MicrocksException("Couldn't launch on new test on Microcks. Please check Microcks container logs");
     }
 
-    private void importArtifact(String artifactPath, boolean mainArtifact) {
+    private void writeContainerManifest(ArtifactManifest manifest, ImportReport report) {
+        report.getFailures().forEach(entry -> manifest.remove(entry.getKind(), entry.getName()));
+        try {
+            copyFileToContainer(Transferable.of(manifest.toBytes()), ArtifactManifest.CONTAINER_PATH);
+        } catch (Exception e) {
+            log.warn("Cannot store artifacts manifest in container, next reuse will import everything again", e);
+        }
+    }
+
+    private static void checkImportReport(ImportReport report) {
+        List<ImportReport.Entry> failures = report.getFailures();
+        if (failures.isEmpty()) {
+            return;
+        }
+        log.error("Some artifacts or secrets cannot be imported: {}", report);
+        String names = failures.stream().map(ImportReport.Entry::getName).collect(Collectors.joining(", "));
+        boolean artifactFailed = failures.stream().anyMatch(entry -> entry.getKind() != ImportReport.Kind.SECRET);
+        RuntimeException exception = artifactFailed ?
+                new ArtifactLoadException("Error while importing artifacts: " + names, failures.get(0).getFailure()) :
+                new SecretCreationException("Error while creating Secrets: " + names, failures.get(0).getFailure());
+        failures.stream().skip(1).forEach(entry -> exception.addSuppressed(entry.getFailure()));
+        throw exception;
+    }
+
+    private static boolean isNotEmpty(Set<?> set) {
+        return set != null && !set.isEmpty();
+    }
+
+    private static <T> Set<T> nullToEmpty(Set<T> set) {
+        return set != null ? set : Collections.emptySet();
+    }
+
+    private static URL resolveArtifact(String artifactPath) {
         URL resource = Thread.currentThread().getContextClassLoader().getResource(artifactPath);
         if (resource == null) {
             resource = MicrocksContainer.class.getClassLoader().getResource(artifactPath);
-            if (resource == null) {
-                log.warn("Could not load classpath artifact: {}", artifactPath);
-                throw new ArtifactLoadException("Error while importing artifact: " + artifactPath);
-            }
+        }
+        return resource;
+    }
+
+    private void importArtifact(String artifactPath, boolean mainArtifact) {
+        URL resource = resolveArtifact(artifactPath);
+        if (resource == null) {
+            log.warn("Could not load classpath artifact: {}", artifactPath);
+            throw new ArtifactLoadException("Error while importing artifact: " + artifactPath);
         }
         try {
             importArtifact(new File(resource.getFile()), mainArtifact);
@@ -381,174 +1182,181 @@ public class MicrocksContainer extends GenericContainer<MicrocksContainer> {
         if (!artifact.exists()) {
             throw new IOException("Artifact " + artifact.getPath() + " does not exist or can't be read.");
         }
+        importArtifact(artifact.toPath(), mainArtifact);
+    }
 
-        // Creates a unique boundary based on time stamp
-        String boundary = "===" + System.currentTimeMillis() + "===";
-
-        URL url = new URL(getHttpEndpoint() + "/api/artifact/upload" + (mainArtifact ? "" : "?mainArtifact=false"));
-        HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
-        httpConn.setUseCaches(false);
-        httpConn.setDoOutput(true);
-        httpConn.setDoInput(true);
-        httpConn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-
-        try (OutputStream os = httpConn.getOutputStream();
-             PrintWriter writer = new PrintWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), true);
-             FileInputStream is = new FileInputStream(artifact)) {
-
-            writer.append("--" + boundary)
-                    .append(HTTP_UPLOAD_LINE_FEED)
-                    .append("Content-Disposition: form-data; name=\"file\"; filename=\"" + artifact.getName() + "\"")
-                    .append(HTTP_UPLOAD_LINE_FEED)
-                    .append("Content-Type: application/octet-stream")
-                    .append(HTTP_UPLOAD_LINE_FEED)
-                    .append("Content-Transfer-Encoding: binary")
-                    .append(HTTP_UPLOAD_LINE_FEED)
-                    .append(HTTP_UPLOAD_LINE_FEED);
-            writer.flush();
-
-            byte[] buffer = new byte[4096];
-            int bytesRead = -1;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                os.write(buffer, 0, bytesRead);
-            }
-            os.flush();
-
-            // Finalize writer with a boundary before flushing.
-            writer.append(HTTP_UPLOAD_LINE_FEED)
-                    .append("--" + boundary + "--")
-                    .append(HTTP_UPLOAD_LINE_FEED).flush();
+    private UploadMetrics importArtifact(Path artifact, boolean mainArtifact) throws IOException, MicrocksException {
+        if (!Files.isReadable(artifact)) {
+            throw new IOException("Artifact " + artifact + " does not exist or can't be read.");
         }
+        return uploadArtifact(MultipartBody.ofFile("file", artifact), mainArtifact);
+    }
 
-        if (httpConn.getResponseCode() != 201) {
-            // Read response content for diagnostic purpose.
-            StringBuilder responseContent = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(httpConn.getInputStream(), StandardCharsets.UTF_8))) {
-                String responseLine = null;
-                while ((responseLine = br.readLine()) != null) {
-                    responseContent.append(responseLine.trim());
-                }
+    private UploadMetrics uploadArtifact(MultipartBody body, boolean mainArtifact) throws IOException, MicrocksException {
+        long start = System.nanoTime();
+        try (ClientResponse response = getMicrocksClient().post("/api/artifact/upload" + (mainArtifact ? "" : "?mainArtifact=false"), body)) {
+            if (response.getStatusCode() != 201) {
+                // Read response content for diagnostic purpose.
+                String responseContent = response.getBodyAsString();
+                log.error("Artifact has not been correctly imported: {}", responseContent);
+                throw new MicrocksException("Artifact has not been correctly imported: " + responseContent);
             }
-            // Disconnect Http connection.
-            httpConn.disconnect();
-
-            log.error("Artifact has not been correctly imported: {}", responseContent);
-            throw new MicrocksException("Artifact has not been correctly imported: " + responseContent);
         }
-        // Disconnect Http connection.
-        httpConn.disconnect();
+        // Artifact may have brought new services or versions, or reset dispatchers.
+        serviceIndex.invalidate();
+        appliedDispatchers.clear();
+        UploadMetrics metrics = new UploadMetrics(body.getFilename(), body.getBytesWritten(), System.nanoTime() - start);
+        log.debug("Artifact has been imported: {}", metrics);
+        return metrics;
     }
 
     private Optional<String> serviceId(String service, String version) {
-        JsonNode response = null;
         try {
-            String encodedService = URLEncoder.encode(service, "utf-8");
-            String encodedVersion = URLEncoder.encode(version, "utf-8");
-            URL url = new URL(getHttpEndpoint() + "/api/services/search?name=" + encodedService + "&version=" + encodedVersion);
-            HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
-            httpConn.setRequestMethod("GET");
-            httpConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.getMediaType());
-            httpConn.setRequestProperty(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON.getMediaType());
-            httpConn.setDoOutput(true);
-
-            if (httpConn.getResponseCode() != 200) {
-                String errorResponse = readResponse(httpConn.getInputStream());
-                log.error("Service has not been correctly retrieved: {}", errorResponse);
-            } else {
-                response = new ObjectMapper().readTree(httpConn.getInputStream());
-            }
-            httpConn.disconnect();
+            return serviceIndex.serviceId(service, version);
         } catch (Exception e) {
             log.warn("Error while retrieving service: {}", service);
+            return Optional.empty();
         }
+    }
 
-        if (response != null && response.isArray() && response.size() > 0)
-            return Optional.ofNullable(response.at("/0/id").textValue());
-        else
-            return Optional.empty();
+    private List<String> testedOperations(TestRequest testRequest) throws IOException, MicrocksException {
+        if (testRequest.getFilteredOperations() != null && !testRequest.getFilteredOperations().isEmpty()) {
+            return testRequest.getFilteredOperations();
+        }
+        // Service id in test request is "name:version".
+        String service = testRequest.getServiceId();
+        int separator = service.lastIndexOf(':');
+        Optional<String> serviceId = separator > 0
+                ? serviceId(service.substring(0, separator), service.substring(separator + 1)) : Optional.empty();
+        if (!serviceId.isPresent()) {
+            throw new MicrocksException("Service not found: " + service);
+        }
+        return new ArrayList<>(currentDispatching(serviceId.get()).keySet());
     }
 
-    private String readResponse(InputStream inputStream) throws IOException {
-        StringBuilder responseContent = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            String responseLine = null;
-            while ((responseLine = br.readLine()) != null) {
-                responseContent.append(responseLine.trim());
+    private Map<String, OperationUpdateRequest> currentDispatching(String serviceId) throws IOException {
+        try (ClientResponse response = getMicrocksClient().get("/api/services/" + serviceId + "?messages=false")) {
+            if (response.getStatusCode() != 200) {
+                throw new IOException("Service has not been correctly retrieved: " + response.getBodyAsString());
+            }
+            Map<String, OperationUpdateRequest> dispatching = new LinkedHashMap<>();
+            for (JsonNode operation : JsonCodecs.TREE_READER.readTree(response.getBody()).path("operations")) {
+                dispatching.put(operation.path("name").asText(), new OperationUpdateRequest(
+                        operation.path("dispatcher").textValue(), operation.path("dispatcherRules").textValue()));
             }
+            return dispatching;
         }
-        return responseContent.toString();
     }
 
-    private void createSecret(Secret secret) {
-        try {
-            URL url = new URL(getHttpEndpoint() + "/api/secrets");
-            HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
-            httpConn.setRequestMethod("POST");
-            httpConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.getMediaType());
-            httpConn.setRequestProperty(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON.getMediaType());
-            httpConn.setDoOutput(true);
-
-            String requestBody = getMapper().writeValueAsString(secret);
-
-            try (OutputStream os = httpConn.getOutputStream()) {
-                byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-                os.flush();
+    private void putOperationDispatcher(String serviceId, String operationName, OperationUpdateRequest request)
+            throws IOException, MicrocksException {
+        String encodedOperation = URLEncoder.encode(operationName, "utf-8");
+        String requestBody = JsonCodecs.OPERATION_UPDATE_REQUEST_WRITER.writeValueAsString(request);
+
+        try (ClientResponse response = getMicrocksClient().put("/api/services/" + serviceId
+                + "/operation?operationName=" + encodedOperation, RequestBody.json(requestBody))) {
+            if (response.getStatusCode() != 200) {
+                String responseContent = response.getBodyAsString();
+
+                log.error("Operation has not been correctly updated: {}", responseContent);
+                throw new MicrocksException("Operation has not been correctly updated: " + responseContent);
             }
+        }
+    }
 
-            if (httpConn.getResponseCode() != 201) {
-                // Read response content for diagnostic purpose.
-                StringBuilder responseContent = new StringBuilder();
-                try (BufferedReader br = new BufferedReader(new InputStreamReader(httpConn.getInputStream(), StandardCharsets.UTF_8))) {
-                    String responseLine = null;
-                    while ((responseLine = br.readLine()) != null) {
-                        responseContent.append(responseLine.trim());
-                    }
+    private Map<String, String> listServiceIds() throws IOException {
+        Map<String, String> serviceIds = new HashMap<>();
+        int page = 0;
+        int pageSize;
+        do {
+            try (ClientResponse response = getMicrocksClient().get("/api/services?page=" + page + "&size=" + SERVICES_PAGE_SIZE)) {
+                if (response.getStatusCode() != 200) {
+                    String errorResponse = response.getBodyAsString();
+                    log.error("Services have not been correctly listed: {}", errorResponse);
+                    throw new IOException("Services have not been correctly listed: " + errorResponse);
+                }
+                JsonNode services = JsonCodecs.TREE_READER.readTree(response.getBody());
+                for (JsonNode service : services) {
+                    serviceIds.put(ServiceIndex.key(service.path("name").asText(), service.path("version").asText()),
+                            service.path("id").asText());
                 }
-                // Disconnect Http connection.
-                httpConn.disconnect();
+                pageSize = services.size();
+            }
+            page++;
+        } while (pageSize == SERVICES_PAGE_SIZE);
+        return serviceIds;
+    }
 
-                log.error("Secret has not been correctly created: {}", responseContent);
-                throw new MicrocksException("Secret has not been correctly created: " + responseContent);
+    private Map<String, String> listSecrets() throws IOException {
+        Map<String, String> secretNames = new HashMap<>();
+        int page = 0;
+        int pageSize;
+        do {
+            try (ClientResponse response = getMicrocksClient().get("/api/secrets?page=" + page + "&size=" + SECRETS_PAGE_SIZE)) {
+                if (response.getStatusCode() != 200) {
+                    String errorResponse = response.getBodyAsString();
+                    log.error("Secrets have not been correctly listed: {}", errorResponse);
+                    throw new IOException("Secrets have not been correctly listed: " + errorResponse);
+                }
+                JsonNode secretNodes = JsonCodecs.TREE_READER.readTree(response.getBody());
+                for (JsonNode secret : secretNodes) {
+                    secretNames.put(secret.path("id").asText(), secret.path("name").asText());
+                }
+                pageSize = secretNodes.size();
             }
-            // Disconnect Http connection.
-            httpConn.disconnect();
-        } catch (Exception e) {
-            log.warn("Error while creating Secret: {}", secret.getName());
-            throw new SecretCreationException("Error while creating Secret", e);
-        }
+            page++;
+        } while (pageSize == SECRETS_PAGE_SIZE);
+        return secretNames;
     }
 
-    private static ObjectMapper getMapper() {
-        if (mapper == null) {
-            mapper = new ObjectMapper();
-            // Do not include null values in both serialization and deserialization.
-            mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-            mapper.setPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
-        }
-        return mapper;
+    private void deleteService(String serviceId) throws IOException, MicrocksException {
+        delete("/api/services/" + serviceId, "Service " + serviceId);
+    }
+
+    private void deleteSecret(String secretId) throws IOException, MicrocksException {
+        delete("/api/secrets/" + secretId, "Secret " + secretId);
     }
 
-    private static TestResult refreshTestResult(String microcksContainerHttpEndpoint, String testResultId) throws IOException {
-        // Build a new client on correct API endpoint.
-        URL url = new URL(microcksContainerHttpEndpoint + "/api/tests/" + testResultId);
-        HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
-        httpConn.setRequestMethod("GET");
-        httpConn.setRequestProperty("Accept", "application/json");
-        httpConn.setDoOutput(false);
+    private void delete(String path, String what) throws IOException, MicrocksException {
+        try (ClientResponse response = getMicrocksClient().delete(path)) {
+            if (response.getStatusCode() / 100 != 2) {
+                // Read response content for diagnostic purpose.
+                String responseContent = response.getBodyAsString();
+                log.error("{} has not been correctly deleted: {}", what, responseContent);
+                throw new MicrocksException(what + " has not been correctly deleted: " + responseContent);
+            }
+        }
+    }
 
-        // Send the request and parse response body.
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(httpConn.getInputStream()))) {
-            String inputLine;
-            while ((inputLine = br.readLine()) != null) {
-                content.append(inputLine);
+    private void createSecret(Secret secret) {
+        try {
+            String requestBody = JsonCodecs.SECRET_WRITER.writeValueAsString(secret);
+
+            try (ClientResponse response = getMicrocksClient().post("/api/secrets", RequestBody.json(requestBody))) {
+                if (response.getStatusCode() != 201) {
+                    // Read response content for diagnostic purpose.
+                    String responseContent = response.getBodyAsString();
+                    log.error("Secret has not been correctly created: {}", responseContent);
+                    throw new MicrocksException("Secret has not been correctly created: " + responseContent);
+                }
             }
+        } catch (Exception e) {
+            log.warn("Error while creating Secret: {}", secret.getName());
+            throw new SecretCreationException("Error while creating Secret", e);
         }
-        // Disconnect Http connection.
-        httpConn.disconnect();
+    }
 
-        return getMapper().readValue(content.toString(), TestResult.class);
+    private static TestResult refreshTestResult(MicrocksClient client, String testResultId, TestResultReader.Detail detail)
+            throws IOException {
+        try (ClientResponse response = client.get("/api/tests/" + testResultId)) {
+            if (response.getStatusCode() != 200) {
+                String errorResponse = response.getBodyAsString();
+                log.error("Test result {} has not been correctly retrieved: {}", testResultId, errorResponse);
+                throw new IOException("Test result " + testResultId + " has not been correctly retrieved (status "
+                        + response.getStatusCode() + "): " + errorResponse);
+            }
+            return TestResultReader.read(response.getBody(), detail);
+        }
     }
 
     public static class ArtifactLoadException extends RuntimeException {
@@ -18,12 +18,16 @@ package io.github.microcks.testcontainers;
 import io.github.microcks.testcontainers.connection.KafkaConnection;
 import io.github.microcks.testcontainers.model.Secret;
 
+import org.testcontainers.Testcontainers;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.Network;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.lifecycle.Startable;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 /**
@@ -34,10 +38,16 @@ import java.util.stream.Stream;
 public class MicrocksContainersEnsemble implements Startable {
 
    private final Network network;
+   private final boolean ownNetwork;
 
    private GenericContainer<?> postman;
+   private String postmanImage;
    private MicrocksAsyncMinionContainer asyncMinion;
+   private String asyncMinionImage;
    private final MicrocksContainer microcks;
+   private TestCallbackReceiver callbackReceiver;
+   private boolean sequentialStart = false;
+   private StartupTimeline startupTimeline;
 
    /**
     * Build a new MicrocksContainersEnsemble with its base container image name as string. This image must
@@ -45,7 +55,7 @@ public class MicrocksContainersEnsemble implements Startable {
     * @param image The name (with tag/version) of Microcks Uber distribution to use.
     */
    public MicrocksContainersEnsemble(String image) {
-      this(Network.newNetwork(), image);
+      this(Network.newNetwork(), true, image);
    }
 
    /**
@@ -54,7 +64,12 @@ public class MicrocksContainersEnsemble implements Startable {
     * @param network The network to attach ensemble containers to.
     */
    public MicrocksContainersEnsemble(Network network, String image) {
+      this(network, false, image);
+   }
+
+   private MicrocksContainersEnsemble(Network network, boolean ownNetwork, String image) {
       this.network = network;
+      this.ownNetwork = ownNetwork;
       this.microcks = new MicrocksContainer(image)
             .withNetwork(network)
             .withNetworkAliases("microcks")
@@ -77,6 +92,7 @@ public class MicrocksContainersEnsemble implements Startable {
     * @return self
     */
    public MicrocksContainersEnsemble withPostman(String image) {
+      this.postmanImage = image;
       this.postman = new GenericContainer<>(DockerImageName.parse(image))
             .withNetwork(network)
             .withNetworkAliases("postman")
@@ -99,6 +115,7 @@ public class MicrocksContainersEnsemble implements Startable {
     * @return self
     */
    public MicrocksContainersEnsemble withAsyncFeature(String image) {
+      this.asyncMinionImage = image;
       this.asyncMinion = new MicrocksAsyncMinionContainer(network, image, microcks);
       return this;
    }
@@ -116,6 +133,19 @@ public class MicrocksContainersEnsemble implements Startable {
       return this;
    }
 
+   /**
+    * Enable a lightweight Http listener on the host receiving the callbacks of test runners (like the Postman one).
+    * Callbacks are relayed to Microcks and wake pending tests up so that their completion is detected immediately
+    * rather than at next poll. Runners reach the listener through host access.
+    * @return self
+    */
+   public MicrocksContainersEnsemble withTestCallbackReceiver() {
+      if (callbackReceiver == null) {
+         callbackReceiver = new TestCallbackReceiver(microcks::getMicrocksClient, microcks::testProgressed);
+      }
+      return this;
+   }
+
    /**
     * Set host accessibility on ensemble containers.
     * @param hostAccessible Host accessibility flag
@@ -132,6 +162,16 @@ public class MicrocksContainersEnsemble implements Startable {
       return this;
    }
 
+   /**
+    * Start containers one after the other rather than in parallel. This avoids resource contention on CI systems
+    * with weaker hardware, at the price of a longer startup.
+    * @return self
+    */
+   public MicrocksContainersEnsemble withSequentialStart() {
+      this.sequentialStart = true;
+      return this;
+   }
+
    /**
     * Provide paths to artifacts that will be imported as primary or main ones within the Microcks container
     * once it will be started and healthy.
@@ -164,6 +204,16 @@ public class MicrocksContainersEnsemble implements Startable {
       return this;
    }
 
+   /**
+    * Set how many artifacts and secrets can be imported concurrently in Microcks after startup.
+    * @param importParallelism The maximum number of concurrent imports
+    * @return self
+    */
+   public MicrocksContainersEnsemble withImportParallelism(int importParallelism) {
+      microcks.withImportParallelism(importParallelism);
+      return this;
+   }
+
    /**
     * Get the Docker network used by this ensemble of Microcks containers.
     * @return The network ensemble containers are attached to.
@@ -196,21 +246,75 @@ public class MicrocksContainersEnsemble implements Startable {
       return asyncMinion;
    }
 
+   /**
+    * Get when and how long each container took to start.
+    * @return The timeline of last startup, null if ensemble has not been successfully started yet.
+    */
+   public StartupTimeline getStartupTimeline() {
+      return startupTimeline;
+   }
+
    @Override
    public void start() {
-      // Sequential start to avoid resource contention on CI systems with weaker hardware.
-      microcks.start();
+      if (callbackReceiver != null) {
+         startCallbackReceiver();
+      }
+      // Postman runtime does not need Microcks, only the async minion has to wait for it.
+      ContainerStarter starter = new ContainerStarter(!sequentialStart).add("microcks", microcks);
       if (postman != null) {
-         postman.start();
+         starter.add("postman", postman);
       }
       if (asyncMinion != null) {
-         asyncMinion.start();
+         starter.add("async-minion", asyncMinion, "microcks");
       }
+      startupTimeline = starter.start();
    }
 
    @Override
    public void stop() {
       allContainers().parallel().forEach(GenericContainer::stop);
+      if (callbackReceiver != null) {
+         callbackReceiver.stop();
+      }
+   }
+
+   /**
+    * Compute a key identifying what this ensemble is made of: the Microcks container configuration plus the
+    * images and environment of companion containers, and how all of them are wired (exposed ports, host access
+    * and network). A network created by the ensemble itself is private to it and does not appear in the key; a
+    * pre-existing one does. Two ensembles with the same key are interchangeable.
+    * @return The sharing key of this ensemble configuration
+    */
+   String sharingKey() {
+      StringBuilder key = new StringBuilder(microcks.contentKey());
+      if (!ownNetwork) {
+         key.append("|network=").append(MicrocksContainer.networkKey(network));
+      }
+      key.append(MicrocksContainer.wiringKey(microcks));
+      if (postman != null) {
+         key.append("|postman=").append(postmanImage).append(MicrocksContainer.wiringKey(postman));
+      }
+      if (asyncMinion != null) {
+         key.append("|async=").append(asyncMinionImage).append(new TreeMap<>(asyncMinion.getEnvMap()))
+               .append(MicrocksContainer.wiringKey(asyncMinion));
+      }
+      if (callbackReceiver != null) {
+         key.append("|callbacks");
+      }
+      return key.toString();
+   }
+
+   private void startCallbackReceiver() {
+      try {
+         int port = callbackReceiver.start();
+         Testcontainers.exposeHostPorts(port);
+         microcks.withEnv("TEST_CALLBACK_URL", "http://host.testcontainers.internal:" + port);
+         if (postman != null) {
+            postman.withAccessToHost(true);
+         }
+      } catch (IOException ioe) {
+         throw new UncheckedIOException("Cannot start test callback receiver", ioe);
+      }
    }
 
    private Stream<GenericContainer<?>> allContainers() {
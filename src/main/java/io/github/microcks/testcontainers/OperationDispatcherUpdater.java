@@ -0,0 +1,206 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+import io.github.microcks.testcontainers.model.OperationRef;
+import io.github.microcks.testcontainers.model.OperationUpdateRequest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates the dispatchers of many operations in one go. Services ids are resolved once per service, the current
+ * dispatching of each service is fetched once so that operations already having the requested dispatcher and
+ * rules are left untouched, and the remaining updates are sent with a bounded concurrency on a caller provided
+ * executor: no more than {@code parallelism} workers are submitted to it. Dispatchers applied by a previous run are
+ * remembered: applying them again is detected from their rules hash without any call to Microcks.
+ * @author laurent
+ */
+class OperationDispatcherUpdater {
+
+   /** The action of resolving a service id. */
+   @FunctionalInterface
+   interface ServiceLookup {
+      Optional<String> serviceId(String service, String version) throws Exception;
+   }
+
+   /** The action of retrieving current dispatching of all the operations of a service, keyed by operation name. */
+   @FunctionalInterface
+   interface DispatchingFetch {
+      Map<String, OperationUpdateRequest> currentDispatching(String serviceId) throws Exception;
+   }
+
+   /** The action of updating one operation. */
+   @FunctionalInterface
+   interface OperationUpdate {
+      void update(String serviceId, String operationName, OperationUpdateRequest request) throws Exception;
+   }
+
+   private final Executor executor;
+   private final int parallelism;
+   private final ServiceLookup serviceLookup;
+   private final DispatchingFetch dispatchingFetch;
+   private final OperationUpdate operationUpdate;
+   private final Map<OperationRef, Dispatcher> applied;
+
+   OperationDispatcherUpdater(Executor executor, int parallelism, ServiceLookup serviceLookup,
+                              DispatchingFetch dispatchingFetch, OperationUpdate operationUpdate) {
+      this(executor, parallelism, serviceLookup, dispatchingFetch, operationUpdate, new ConcurrentHashMap<>());
+   }
+
+   /**
+    * @param applied The dispatchers known to be applied, shared between runs and updated by each of them
+    */
+   OperationDispatcherUpdater(Executor executor, int parallelism, ServiceLookup serviceLookup,
+                              DispatchingFetch dispatchingFetch, OperationUpdate operationUpdate,
+                              Map<OperationRef, Dispatcher> applied) {
+      this.executor = executor;
+      this.parallelism = parallelism;
+      this.serviceLookup = serviceLookup;
+      this.dispatchingFetch = dispatchingFetch;
+      this.operationUpdate = operationUpdate;
+      this.applied = applied;
+   }
+
+   OperationUpdateReport run(Map<OperationRef, Dispatcher> requested) {
+      long start = System.nanoTime();
+      Map<OperationRef, OperationUpdateReport.Entry> entries = new ConcurrentHashMap<>();
+
+      // Dispatchers we've already applied need neither lookup nor update.
+      Map<OperationRef, Dispatcher> dispatchers = new LinkedHashMap<>();
+      for (Map.Entry<OperationRef, Dispatcher> entry : requested.entrySet()) {
+         if (isSame(entry.getValue(), applied.get(entry.getKey()))) {
+            entries.put(entry.getKey(), entry(OperationUpdateReport.Status.UNCHANGED, null));
+         } else {
+            dispatchers.put(entry.getKey(), entry.getValue());
+         }
+      }
+
+      // Resolve each service only once.
+      Map<String, Optional<String>> serviceIds = new HashMap<>();
+      for (OperationRef operation : dispatchers.keySet()) {
+         serviceIds.computeIfAbsent(ServiceIndex.key(operation.getService(), operation.getVersion()),
+               key -> resolve(operation));
+      }
+
+      Queue<Map.Entry<OperationRef, Dispatcher>> pending = new ConcurrentLinkedQueue<>();
+      for (Map.Entry<OperationRef, Dispatcher> entry : dispatchers.entrySet()) {
+         OperationRef operation = entry.getKey();
+         if (serviceIds.get(ServiceIndex.key(operation.getService(), operation.getVersion())).isPresent()) {
+            pending.add(entry);
+         } else {
+            entries.put(operation, entry(OperationUpdateReport.Status.NOT_FOUND,
+                  new MicrocksException("Service not found: " + operation.getService() + " " + operation.getVersion())));
+         }
+      }
+
+      // A few workers drain pending updates so that a shared executor is never flooded.
+      Map<String, CompletableFuture<Map<String, OperationUpdateRequest>>> currents = new ConcurrentHashMap<>();
+      CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, pending.size())];
+      for (int i = 0; i < workers.length; i++) {
+         workers[i] = CompletableFuture.runAsync(() -> {
+            Map.Entry<OperationRef, Dispatcher> entry;
+            while ((entry = pending.poll()) != null) {
+               OperationRef operation = entry.getKey();
+               String serviceId = serviceIds.get(ServiceIndex.key(operation.getService(), operation.getVersion())).get();
+               OperationUpdateReport.Entry outcome = update(serviceId, operation,
+                     new OperationUpdateRequest(entry.getValue()), current(currents, serviceId));
+               if (outcome.getStatus() == OperationUpdateReport.Status.UPDATED
+                     || outcome.getStatus() == OperationUpdateReport.Status.UNCHANGED) {
+                  applied.put(operation, entry.getValue());
+               } else {
+                  applied.remove(operation);
+               }
+               entries.put(operation, outcome);
+            }
+         }, executor);
+      }
+      CompletableFuture.allOf(workers).join();
+
+      // Give entries back in request order.
+      Map<OperationRef, OperationUpdateReport.Entry> ordered = new LinkedHashMap<>();
+      requested.keySet().forEach(operation -> ordered.put(operation, entries.get(operation)));
+      return new OperationUpdateReport(ordered, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+   }
+
+   private Optional<String> resolve(OperationRef operation) {
+      try {
+         return serviceLookup.serviceId(operation.getService(), operation.getVersion());
+      } catch (Exception e) {
+         return Optional.empty();
+      }
+   }
+
+   private Map<String, OperationUpdateRequest> current(
+         Map<String, CompletableFuture<Map<String, OperationUpdateRequest>>> currents, String serviceId) {
+      // First worker needing a service fetches it, others wait for its result.
+      CompletableFuture<Map<String, OperationUpdateRequest>> current = new CompletableFuture<>();
+      CompletableFuture<Map<String, OperationUpdateRequest>> existing = currents.putIfAbsent(serviceId, current);
+      if (existing != null) {
+         return existing.join();
+      }
+      current.complete(fetch(serviceId));
+      return current.join();
+   }
+
+   private Map<String, OperationUpdateRequest> fetch(String serviceId) {
+      try {
+         return dispatchingFetch.currentDispatching(serviceId);
+      } catch (Exception e) {
+         // Cannot tell what's unchanged, so update everything.
+         return null;
+      }
+   }
+
+   private OperationUpdateReport.Entry update(String serviceId, OperationRef operation, OperationUpdateRequest request,
+                                              Map<String, OperationUpdateRequest> current) {
+      if (current != null) {
+         if (!current.containsKey(operation.getOperationName())) {
+            return entry(OperationUpdateReport.Status.NOT_FOUND,
+                  new MicrocksException("Operation not found: " + operation.getOperationName()));
+         }
+         if (request.hasSameDispatching(current.get(operation.getOperationName()))) {
+            return entry(OperationUpdateReport.Status.UNCHANGED, null);
+         }
+      }
+      try {
+         operationUpdate.update(serviceId, operation.getOperationName(), request);
+         return entry(OperationUpdateReport.Status.UPDATED, null);
+      } catch (Exception e) {
+         return entry(OperationUpdateReport.Status.FAILED, e);
+      }
+   }
+
+   static boolean isSame(Dispatcher dispatcher, Dispatcher other) {
+      // Comparing hashes first spares comparing rules most of the time.
+      return other != null && dispatcher.getRulesHash() == other.getRulesHash()
+            && dispatcher.getType() == other.getType() && Objects.equals(dispatcher.getRules(), other.getRules());
+   }
+
+   private static OperationUpdateReport.Entry entry(OperationUpdateReport.Status status, Throwable failure) {
+      return new OperationUpdateReport.Entry(status, failure);
+   }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.OperationRef;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of a batch update of operations dispatchers: what happened to each operation, gathered in a
+ * single report.
+ * @author laurent
+ */
+public class OperationUpdateReport {
+
+   /** The status of an individual operation update. */
+   public enum Status {
+      UPDATED,
+      /** Operation already had the same dispatcher and rules, nothing was sent. */
+      UNCHANGED,
+      /** Service or operation is not known by Microcks. */
+      NOT_FOUND,
+      FAILED
+   }
+
+   private final Map<OperationRef, Entry> entries;
+   private final long durationMillis;
+
+   OperationUpdateReport(Map<OperationRef, Entry> entries, long durationMillis) {
+      this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+      this.durationMillis = durationMillis;
+   }
+
+   /** @return The outcome of each operation update, in request order. */
+   public Map<OperationRef, Entry> getEntries() {
+      return entries;
+   }
+
+   /**
+    * @param operation The reference of an updated operation
+    * @return The outcome of this operation update, null if operation was not part of the batch
+    */
+   public Entry get(OperationRef operation) {
+      return entries.get(operation);
+   }
+
+   /** @return The wall time of whole batch. */
+   public long getDurationMillis() {
+      return durationMillis;
+   }
+
+   /** @return The operations that have been actually updated. */
+   public long getUpdatedCount() {
+      return entries.values().stream().filter(entry -> entry.getStatus() == Status.UPDATED).count();
+   }
+
+   /** @return The individual updates that failed or target unknown operations. */
+   public Map<OperationRef, Entry> getFailures() {
+      return entries.entrySet().stream()
+            .filter(entry -> entry.getValue().getStatus() == Status.FAILED || entry.getValue().getStatus() == Status.NOT_FOUND)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+   }
+
+   public boolean hasFailures() {
+      return !getFailures().isEmpty();
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder builder = new StringBuilder("OperationUpdateReport in ").append(durationMillis).append("ms");
+      for (Map.Entry<OperationRef, Entry> entry : entries.entrySet()) {
+         builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+      }
+      return builder.toString();
+   }
+
+   /** The update of a single operation. */
+   public static class Entry {
+
+      private final Status status;
+      private final Throwable failure;
+
+      Entry(Status status, Throwable failure) {
+         this.status = status;
+         this.failure = failure;
+      }
+
+      public Status getStatus() {
+         return status;
+      }
+
+      /** @return The cause of failure, null if update succeeded. */
+      public Throwable getFailure() {
+         return failure;
+      }
+
+      @Override
+      public String toString() {
+         return status + (failure != null ? " (" + failure.getMessage() + ")" : "");
+      }
+   }
+}
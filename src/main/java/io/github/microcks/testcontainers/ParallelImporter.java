@@ -0,0 +1,149 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Secret;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports artifacts and secrets into a Microcks container on a caller provided executor with a bounded concurrency.
+ * Main artifacts and secrets are imported concurrently; secondary artifacts only start once every main artifact has
+ * been processed as Microcks needs the service they complete to exist. Failures do not stop the other imports:
+ * they're all gathered into the resulting {@code ImportReport}. An {@code ImportFilter} allows skipping imports
+ * that are known to be useless.
+ * @author laurent
+ */
+class ParallelImporter {
+
+   /** The action of importing one artifact. */
+   @FunctionalInterface
+   interface ArtifactImport {
+      void importArtifact(String artifactPath, boolean mainArtifact) throws Exception;
+   }
+
+   /** The action of creating one secret. */
+   @FunctionalInterface
+   interface SecretCreation {
+      void createSecret(Secret secret) throws Exception;
+   }
+
+   /** Tells if something has to be imported. */
+   @FunctionalInterface
+   interface ImportFilter {
+      ImportFilter ALL = (kind, name) -> true;
+
+      boolean shouldImport(ImportReport.Kind kind, String name);
+   }
+
+   private final Executor executor;
+   private final int parallelism;
+
+   ParallelImporter(Executor executor, int parallelism) {
+      this.executor = executor;
+      this.parallelism = parallelism;
+   }
+
+   ImportReport run(Collection<String> mainArtifacts, Collection<String> secondaryArtifacts, Collection<Secret> secrets,
+                    ArtifactImport artifactImport, SecretCreation secretCreation) {
+      return run(mainArtifacts, secondaryArtifacts, secrets, artifactImport, secretCreation, ImportFilter.ALL);
+   }
+
+   ImportReport run(Collection<String> mainArtifacts, Collection<String> secondaryArtifacts, Collection<Secret> secrets,
+                    ArtifactImport artifactImport, SecretCreation secretCreation, ImportFilter filter) {
+      long start = System.nanoTime();
+      List<ImportReport.Entry> entries = Collections.synchronizedList(new ArrayList<>());
+      // Permits are taken before submitting so that a shared executor never holds more than parallelism imports.
+      Semaphore permits = new Semaphore(parallelism);
+
+      List<CompletableFuture<Void>> mainImports = new ArrayList<>();
+      for (String artifact : mainArtifacts) {
+         if (!filter.shouldImport(ImportReport.Kind.MAIN_ARTIFACT, artifact)) {
+            entries.add(skipped(ImportReport.Kind.MAIN_ARTIFACT, artifact));
+            continue;
+         }
+         mainImports.add(submit(permits, () -> entries.add(
+               timed(ImportReport.Kind.MAIN_ARTIFACT, artifact, () -> artifactImport.importArtifact(artifact, true)))));
+      }
+      List<CompletableFuture<Void>> allImports = new ArrayList<>(mainImports);
+      for (Secret secret : secrets) {
+         if (!filter.shouldImport(ImportReport.Kind.SECRET, secret.getName())) {
+            entries.add(skipped(ImportReport.Kind.SECRET, secret.getName()));
+            continue;
+         }
+         allImports.add(submit(permits, () -> entries.add(
+               timed(ImportReport.Kind.SECRET, secret.getName(), () -> secretCreation.createSecret(secret)))));
+      }
+      CompletableFuture.allOf(mainImports.toArray(new CompletableFuture<?>[0])).join();
+      for (String artifact : secondaryArtifacts) {
+         if (!filter.shouldImport(ImportReport.Kind.SECONDARY_ARTIFACT, artifact)) {
+            entries.add(skipped(ImportReport.Kind.SECONDARY_ARTIFACT, artifact));
+            continue;
+         }
+         allImports.add(submit(permits, () -> entries.add(timed(ImportReport.Kind.SECONDARY_ARTIFACT, artifact,
+               () -> artifactImport.importArtifact(artifact, false)))));
+      }
+      CompletableFuture.allOf(allImports.toArray(new CompletableFuture<?>[0])).join();
+      return new ImportReport(entries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+   }
+
+   private CompletableFuture<Void> submit(Semaphore permits, Runnable task) {
+      permits.acquireUninterruptibly();
+      try {
+         return CompletableFuture.runAsync(() -> {
+            try {
+               task.run();
+            } finally {
+               permits.release();
+            }
+         }, executor);
+      } catch (RuntimeException re) {
+         // Task was rejected and will never release its permit.
+         permits.release();
+         throw re;
+      }
+   }
+
+   /** Any other single import. */
+   @FunctionalInterface
+   interface ImportAction {
+      void run() throws Exception;
+   }
+
+   static ImportReport.Entry skipped(ImportReport.Kind kind, String name) {
+      return new ImportReport.Entry(kind, name, ImportReport.Status.SKIPPED, 0, null);
+   }
+
+   static ImportReport.Entry timed(ImportReport.Kind kind, String name, ImportAction action) {
+      long start = System.nanoTime();
+      Throwable failure = null;
+      try {
+         action.run();
+      } catch (Exception e) {
+         failure = e;
+      }
+      long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      return new ImportReport.Entry(kind, name, failure == null ? ImportReport.Status.IMPORTED : ImportReport.Status.FAILED,
+            duration, failure);
+   }
+}
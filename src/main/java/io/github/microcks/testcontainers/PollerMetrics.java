@@ -0,0 +1,85 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+/**
+ * A point-in-time snapshot of the poller tracking tests progression on a {@code MicrocksContainer}. Detection
+ * latency is the time between the end of a test and the moment the poller noticed it.
+ * @author laurent
+ */
+public class PollerMetrics {
+
+   private final int inFlight;
+   private final long polls;
+   private final long completed;
+   private final long timedOut;
+   private final long cancelled;
+   private final long meanDetectionLatency;
+   private final long maxDetectionLatency;
+
+   PollerMetrics(int inFlight, long polls, long completed, long timedOut, long cancelled, long meanDetectionLatency,
+                 long maxDetectionLatency) {
+      this.inFlight = inFlight;
+      this.polls = polls;
+      this.completed = completed;
+      this.timedOut = timedOut;
+      this.cancelled = cancelled;
+      this.meanDetectionLatency = meanDetectionLatency;
+      this.maxDetectionLatency = maxDetectionLatency;
+   }
+
+   /** @return The number of tests currently tracked. */
+   public int getInFlight() {
+      return inFlight;
+   }
+
+   /** @return The total number of test results refreshes. */
+   public long getPolls() {
+      return polls;
+   }
+
+   /** @return The number of tests detected as done. */
+   public long getCompleted() {
+      return completed;
+   }
+
+   /** @return The number of tests still in progress when their timeout expired. */
+   public long getTimedOut() {
+      return timedOut;
+   }
+
+   /** @return The number of tests whose future has been cancelled by caller. */
+   public long getCancelled() {
+      return cancelled;
+   }
+
+   /** @return The mean detection latency in milliseconds. */
+   public long getMeanDetectionLatency() {
+      return meanDetectionLatency;
+   }
+
+   /** @return The max detection latency in milliseconds. */
+   public long getMaxDetectionLatency() {
+      return maxDetectionLatency;
+   }
+
+   @Override
+   public String toString() {
+      return "PollerMetrics{inFlight=" + inFlight + ", polls=" + polls + ", completed=" + completed
+            + ", timedOut=" + timedOut + ", cancelled=" + cancelled + ", meanDetectionLatency=" + meanDetectionLatency
+            + "ms, maxDetectionLatency=" + maxDetectionLatency + "ms}";
+   }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How the progression of a launched test is polled: first refresh happens {@code initialDelay} after test submission,
+ * then interval is multiplied by {@code multiplier} at each refresh up to {@code maxInterval}, each interval being
+ * randomly spread by {@code jitter} so that tests launched together are not refreshed together. Polling stops when
+ * test is done or when its deadline (test timeout plus {@code timeoutGrace}, measured from submission) is reached.
+ * Messages of test steps are not read while test is in progress, unless {@code stepMessagesInProgress} is set.
+ * @author laurent
+ */
+public class PollingPolicy {
+
+   /** The default policy: quick first refresh for fast tests, then backing off up to 1 second. */
+   public static final PollingPolicy DEFAULT = new Builder().build();
+
+   private final long initialDelay;
+   private final double multiplier;
+   private final long maxInterval;
+   private final double jitter;
+   private final long timeoutGrace;
+   private final boolean stepMessagesInProgress;
+
+   private PollingPolicy(Builder builder) {
+      this.initialDelay = builder.initialDelay;
+      this.multiplier = builder.multiplier;
+      this.maxInterval = builder.maxInterval;
+      this.jitter = builder.jitter;
+      this.timeoutGrace = builder.timeoutGrace;
+      this.stepMessagesInProgress = builder.stepMessagesInProgress;
+   }
+
+   public long getInitialDelay() {
+      return initialDelay;
+   }
+
+   public double getMultiplier() {
+      return multiplier;
+   }
+
+   public long getMaxInterval() {
+      return maxInterval;
+   }
+
+   public double getJitter() {
+      return jitter;
+   }
+
+   public long getTimeoutGrace() {
+      return timeoutGrace;
+   }
+
+   public boolean isStepMessagesInProgress() {
+      return stepMessagesInProgress;
+   }
+
+   /** @return How much of a test result to read while polling with a progress listener. */
+   TestResultReader.Detail readDetail() {
+      return stepMessagesInProgress ? TestResultReader.Detail.FULL : TestResultReader.Detail.NO_STEP_MESSAGES_IN_PROGRESS;
+   }
+
+   /**
+    * Compute the interval following a given one.
+    * @param interval The current interval (without jitter)
+    * @return The next interval (without jitter)
+    */
+   long nextInterval(long interval) {
+      return Math.min(maxInterval, Math.max(1L, (long) (interval * multiplier)));
+   }
+
+   /**
+    * Spread an interval with this policy jitter.
+    * @param interval The interval to spread
+    * @return The interval to actually wait for
+    */
+   long withJitter(long interval) {
+      if (jitter == 0) {
+         return interval;
+      }
+      double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+      return Math.max(0L, (long) (interval * factor));
+   }
+
+   @Override
+   public String toString() {
+      return "PollingPolicy{initialDelay=" + initialDelay + ", multiplier=" + multiplier + ", maxInterval=" + maxInterval
+            + ", jitter=" + jitter + ", timeoutGrace=" + timeoutGrace + ", stepMessagesInProgress=" + stepMessagesInProgress + "}";
+   }
+
+   /**
+    * Builder/Fluent API for creating PollingPolicy instances.
+    */
+   public static class Builder {
+      private long initialDelay = 50L;
+      private double multiplier = 1.5;
+      private long maxInterval = 1000L;
+      private double jitter = 0.1;
+      private long timeoutGrace = 1000L;
+      private boolean stepMessagesInProgress = false;
+
+      /**
+       * @param initialDelay Delay in milliseconds between test submission and first refresh. Default is 50.
+       * @return this builder
+       */
+      public Builder initialDelay(long initialDelay) {
+         this.initialDelay = initialDelay;
+         return this;
+      }
+
+      /**
+       * @param multiplier Factor applied to interval after each refresh, 1 for a fixed interval. Default is 1.5.
+       * @return this builder
+       */
+      public Builder multiplier(double multiplier) {
+         this.multiplier = multiplier;
+         return this;
+      }
+
+      /**
+       * @param maxInterval Upper bound in milliseconds of interval between refreshes. Default is 1000.
+       * @return this builder
+       */
+      public Builder maxInterval(long maxInterval) {
+         this.maxInterval = maxInterval;
+         return this;
+      }
+
+      /**
+       * @param jitter Fraction of interval randomly added or removed, between 0 and 1. Default is 0.1.
+       * @return this builder
+       */
+      public Builder jitter(double jitter) {
+         this.jitter = jitter;
+         return this;
+      }
+
+      /**
+       * @param timeoutGrace Time in milliseconds given to Microcks after test timeout for reporting test as done. Default is 1000.
+       * @return this builder
+       */
+      public Builder timeoutGrace(long timeoutGrace) {
+         this.timeoutGrace = timeoutGrace;
+         return this;
+      }
+
+      /**
+       * @param stepMessagesInProgress Whether to read messages of test steps while test is in progress. They're always
+       *                               read once test is done. Default is false.
+       * @return this builder
+       */
+      public Builder stepMessagesInProgress(boolean stepMessagesInProgress) {
+         this.stepMessagesInProgress = stepMessagesInProgress;
+         return this;
+      }
+
+      public PollingPolicy build() {
+         if (initialDelay < 0 || maxInterval < 1 || timeoutGrace < 0) {
+            throw new IllegalArgumentException("Delays must be positive and max interval at least 1ms");
+         }
+         if (multiplier < 1) {
+            throw new IllegalArgumentException("Multiplier must be greater or equal to 1");
+         }
+         if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 (inclusive) and 1 (exclusive)");
+         }
+         return new PollingPolicy(this);
+      }
+   }
+}
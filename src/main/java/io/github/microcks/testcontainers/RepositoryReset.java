@@ -0,0 +1,168 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Brings a Microcks repository back to a baseline: services and secrets that were not there when baseline was
+ * captured are deleted on a caller provided executor with a bounded concurrency, then baseline artifacts are imported
+ * again so that what tests changed in baseline services (dispatchers, added examples) is restored, and baseline
+ * secrets that tests deleted are created again. Failures do not stop the reset, they're all gathered into the
+ * resulting {@code ResetReport}.
+ * @author laurent
+ */
+class RepositoryReset {
+
+   /** The services and secrets present when baseline was captured. Secrets are known by id and name. */
+   static class Baseline {
+
+      private final Set<String> serviceIds;
+      private final Map<String, String> secretNames;
+
+      Baseline(Set<String> serviceIds, Map<String, String> secretNames) {
+         this.serviceIds = Collections.unmodifiableSet(serviceIds);
+         this.secretNames = Collections.unmodifiableMap(secretNames);
+      }
+
+      Set<String> getServiceIds() {
+         return serviceIds;
+      }
+
+      Set<String> getSecretIds() {
+         return secretNames.keySet();
+      }
+
+      String getSecretName(String secretId) {
+         return secretNames.get(secretId);
+      }
+   }
+
+   /** The action of listing the ids of current services or secrets. */
+   @FunctionalInterface
+   interface Listing {
+      Set<String> list() throws Exception;
+   }
+
+   /** The action of deleting one service or secret. */
+   @FunctionalInterface
+   interface Deletion {
+      void delete(String id) throws Exception;
+   }
+
+   /** The action of importing baseline artifacts again, and creating again the baseline secrets that are missing. */
+   @FunctionalInterface
+   interface Restoration {
+      ImportReport restore(Set<String> missingSecretNames);
+   }
+
+   private final Executor executor;
+   private final int parallelism;
+
+   RepositoryReset(Executor executor, int parallelism) {
+      this.executor = executor;
+      this.parallelism = parallelism;
+   }
+
+   ResetReport run(Baseline baseline, Listing services, Deletion serviceDeletion, Listing secrets,
+                   Deletion secretDeletion, Restoration restoration) {
+      long start = System.nanoTime();
+      Map<String, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+      AtomicInteger deletedServices = new AtomicInteger();
+      AtomicInteger deletedSecrets = new AtomicInteger();
+      // Permits are taken before submitting so that a shared executor never holds more than parallelism tasks.
+      Semaphore permits = new Semaphore(parallelism);
+
+      CompletableFuture<Set<String>> currentServices = submit(permits, () -> list("list services", services, failures));
+      CompletableFuture<Set<String>> currentSecrets = submit(permits, () -> list("list secrets", secrets, failures));
+
+      List<CompletableFuture<Void>> deletions = new ArrayList<>();
+      for (String serviceId : currentServices.join()) {
+         if (!baseline.getServiceIds().contains(serviceId)) {
+            deletions.add(submit(permits, () -> delete("delete service " + serviceId, serviceId,
+                  serviceDeletion, deletedServices, failures)));
+         }
+      }
+      for (String secretId : currentSecrets.join()) {
+         if (!baseline.getSecretIds().contains(secretId)) {
+            deletions.add(submit(permits, () -> delete("delete secret " + secretId, secretId,
+                  secretDeletion, deletedSecrets, failures)));
+         }
+      }
+      // Baseline secrets deleted by tests have to be created again, unless we cannot tell which ones they are.
+      Set<String> missingSecretNames = new HashSet<>();
+      if (!failures.containsKey("list secrets")) {
+         for (String secretId : baseline.getSecretIds()) {
+            if (!currentSecrets.join().contains(secretId)) {
+               missingSecretNames.add(baseline.getSecretName(secretId));
+            }
+         }
+      }
+      CompletableFuture.allOf(deletions.toArray(new CompletableFuture<?>[0])).join();
+      ImportReport restoreReport = restoration.restore(missingSecretNames);
+      return new ResetReport(deletedServices.get(), deletedSecrets.get(), failures, restoreReport,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+   }
+
+   private <T> CompletableFuture<T> submit(Semaphore permits, Supplier<T> task) {
+      permits.acquireUninterruptibly();
+      try {
+         return CompletableFuture.supplyAsync(() -> {
+            try {
+               return task.get();
+            } finally {
+               permits.release();
+            }
+         }, executor);
+      } catch (RuntimeException re) {
+         // Task was rejected and will never release its permit.
+         permits.release();
+         throw re;
+      }
+   }
+
+   private static Set<String> list(String what, Listing listing, Map<String, Throwable> failures) {
+      try {
+         return listing.list();
+      } catch (Exception e) {
+         failures.put(what, e);
+         return Collections.emptySet();
+      }
+   }
+
+   private static Void delete(String what, String id, Deletion deletion, AtomicInteger deleted,
+                              Map<String, Throwable> failures) {
+      try {
+         deletion.delete(id);
+         deleted.incrementAndGet();
+      } catch (Exception e) {
+         failures.put(what, e);
+      }
+      return null;
+   }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a Microcks repository reset: what has been deleted, how baseline artifacts have been restored
+ * and how long it took.
+ * @author laurent
+ */
+public class ResetReport {
+
+   private final int deletedServices;
+   private final int deletedSecrets;
+   private final Map<String, Throwable> failures;
+   private final ImportReport restoreReport;
+   private final long durationMillis;
+
+   ResetReport(int deletedServices, int deletedSecrets, Map<String, Throwable> failures, ImportReport restoreReport,
+               long durationMillis) {
+      this.deletedServices = deletedServices;
+      this.deletedSecrets = deletedSecrets;
+      this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+      this.restoreReport = restoreReport;
+      this.durationMillis = durationMillis;
+   }
+
+   /** @return The number of services deleted because created after baseline. */
+   public int getDeletedServices() {
+      return deletedServices;
+   }
+
+   /** @return The number of secrets deleted because created after baseline. */
+   public int getDeletedSecrets() {
+      return deletedSecrets;
+   }
+
+   /** @return The failed listings and deletions, keyed by a description of what failed. */
+   public Map<String, Throwable> getFailures() {
+      return failures;
+   }
+
+   /** @return The report of baseline artifacts import. */
+   public ImportReport getRestoreReport() {
+      return restoreReport;
+   }
+
+   /** @return The wall time of whole reset. */
+   public long getDurationMillis() {
+      return durationMillis;
+   }
+
+   public boolean hasFailures() {
+      return !failures.isEmpty() || restoreReport.hasFailures();
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder builder = new StringBuilder("ResetReport in ").append(durationMillis).append("ms: ")
+            .append(deletedServices).append(" service(s) and ").append(deletedSecrets).append(" secret(s) deleted");
+      failures.forEach((what, failure) -> builder.append("\n  ").append(what).append(": FAILED (")
+            .append(failure.getMessage()).append(')'));
+      return builder.append("\n").append(restoreReport).toString();
+   }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory index of services ids known by a Microcks container, keyed by service name and version. The
+ * index is filled with one bulk listing of services on first lookup and every time a lookup misses after an
+ * invalidation, so that repeated operations on the same services do not cost a search round trip each. A listing
+ * that was in flight when the index got invalidated is not kept, as it may predate the change.
+ * @author laurent
+ */
+class ServiceIndex {
+
+   /** The action of listing all the services of Microcks, as ids keyed with {@code key(name, version)}. */
+   @FunctionalInterface
+   interface Loader {
+      Map<String, String> loadServiceIds() throws IOException;
+   }
+
+   private final Loader loader;
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+   private final AtomicLong loads = new AtomicLong();
+   private final AtomicLong generation = new AtomicLong();
+
+   private volatile Map<String, String> serviceIds;
+
+   ServiceIndex(Loader loader) {
+      this.loader = loader;
+   }
+
+   /**
+    * Resolve the id of a service, loading the index if it's empty or stale.
+    * @param service The service name
+    * @param version The service version
+    * @return The service id or empty if Microcks does not know this service
+    * @throws IOException If services cannot be listed
+    */
+   Optional<String> serviceId(String service, String version) throws IOException {
+      String key = key(service, version);
+      Map<String, String> current = serviceIds;
+      if (current != null && current.containsKey(key)) {
+         hits.incrementAndGet();
+         return Optional.of(current.get(key));
+      }
+      misses.incrementAndGet();
+      return Optional.ofNullable(reload(current).get(key));
+   }
+
+   /** Forget everything known so far: next lookup will list services again. */
+   void invalidate() {
+      generation.incrementAndGet();
+      serviceIds = null;
+   }
+
+   ServiceIndexMetrics getMetrics() {
+      Map<String, String> current = serviceIds;
+      return new ServiceIndexMetrics(hits.get(), misses.get(), loads.get(), current != null ? current.size() : 0);
+   }
+
+   static String key(String service, String version) {
+      return service + '\n' + version;
+   }
+
+   private synchronized Map<String, String> reload(Map<String, String> seen) throws IOException {
+      // Another thread may have reloaded the index while we were waiting.
+      Map<String, String> current = serviceIds;
+      if (current == null || current == seen) {
+         long loadGeneration = generation.get();
+         current = Collections.unmodifiableMap(loader.loadServiceIds());
+         loads.incrementAndGet();
+         // Invalidated while loading: good enough for this lookup, but not for the next ones.
+         if (generation.get() == loadGeneration) {
+            serviceIds = current;
+         }
+      }
+      return current;
+   }
+}
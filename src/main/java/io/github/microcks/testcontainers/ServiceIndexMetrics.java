@@ -0,0 +1,61 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+/**
+ * A point-in-time snapshot of the services index of a {@code MicrocksContainer}. A high {@code hits} count
+ * compared to {@code loads} tells how many service searches have been spared.
+ * @author laurent
+ */
+public class ServiceIndexMetrics {
+
+   private final long hits;
+   private final long misses;
+   private final long loads;
+   private final int size;
+
+   ServiceIndexMetrics(long hits, long misses, long loads, int size) {
+      this.hits = hits;
+      this.misses = misses;
+      this.loads = loads;
+      this.size = size;
+   }
+
+   /** @return The number of service ids resolved from index without calling Microcks. */
+   public long getHits() {
+      return hits;
+   }
+
+   /** @return The number of service ids that were not in index. */
+   public long getMisses() {
+      return misses;
+   }
+
+   /** @return The number of bulk listings of services done to fill the index. */
+   public long getLoads() {
+      return loads;
+   }
+
+   /** @return The number of services currently in index. */
+   public int getSize() {
+      return size;
+   }
+
+   @Override
+   public String toString() {
+      return "ServiceIndexMetrics{hits=" + hits + ", misses=" + misses + ", loads=" + loads + ", size=" + size + "}";
+   }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.lifecycle.Startable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A JVM-wide registry sharing started Microcks containers and ensembles between test classes. Candidates are
+ * keyed by their configuration (image, environment, artifacts, secrets and companion containers): the first
+ * acquisition of a configuration starts the candidate, later ones get the same started instance and their own
+ * candidate is simply discarded. References are counted: once its last lease is closed, a shared instance is kept
+ * idle for a grace period so that the next test class acquiring it does not pay for a new startup, and is stopped
+ * when this period expires or when the JVM shuts down. Acquiring and releasing are safe from parallel test executions.
+ * <p>
+ * Tests using a shared instance should not rely on a pristine Microcks repository as other tests use it too.
+ * @author laurent
+ */
+public final class SharedEnsembleRegistry {
+
+   /** Default time in milliseconds an instance without lease is kept before being stopped. */
+   public static final long DEFAULT_IDLE_GRACE_PERIOD = 30000L;
+
+   private static final Logger log = LoggerFactory.getLogger(SharedEnsembleRegistry.class);
+
+   private static final SharedEnsembleRegistry INSTANCE = new SharedEnsembleRegistry(true);
+
+   private final Map<String, Entry> entries = new HashMap<>();
+   private long idleGracePeriod = DEFAULT_IDLE_GRACE_PERIOD;
+   private ScheduledThreadPoolExecutor reaper;
+
+   SharedEnsembleRegistry() {
+      this(false);
+   }
+
+   private SharedEnsembleRegistry(boolean stopOnShutdown) {
+      if (stopOnShutdown) {
+         Runtime.getRuntime().addShutdownHook(new Thread(this::stopAll, "microcks-shared-shutdown"));
+      }
+   }
+
+   /** @return The registry shared by the whole JVM. */
+   public static SharedEnsembleRegistry getInstance() {
+      return INSTANCE;
+   }
+
+   /**
+    * Acquire a started ensemble having the same configuration as the candidate.
+    * @param candidate A configured but not started ensemble
+    * @return A lease on the shared started ensemble, to be closed once done with it
+    */
+   public Lease<MicrocksContainersEnsemble> acquire(MicrocksContainersEnsemble candidate) {
+      return acquire("ensemble:" + candidate.sharingKey(), candidate);
+   }
+
+   /**
+    * Acquire a started Microcks container having the same configuration as the candidate.
+    * @param candidate A configured but not started container
+    * @return A lease on the shared started container, to be closed once done with it
+    */
+   public Lease<MicrocksContainer> acquire(MicrocksContainer candidate) {
+      return acquire("container:" + candidate.sharingKey(), candidate);
+   }
+
+   /**
+    * Set how long an instance without lease is kept before being stopped. Applies to instances released afterwards.
+    * @param period The grace period, 0 for stopping an instance as soon as its last lease is closed
+    * @param unit   The unit of period
+    */
+   public synchronized void setIdleGracePeriod(long period, TimeUnit unit) {
+      if (period < 0) {
+         throw new IllegalArgumentException("Idle grace period cannot be negative");
+      }
+      this.idleGracePeriod = unit.toMillis(period);
+   }
+
+   /** @return The number of shared instances currently kept, leased or idle. */
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   @SuppressWarnings("unchecked")
+   <T extends Startable> Lease<T> acquire(String key, T candidate) {
+      Entry entry;
+      boolean owner;
+      synchronized (this) {
+         entry = entries.get(key);
+         owner = entry == null;
+         if (owner) {
+            entry = new Entry(candidate);
+            entries.put(key, entry);
+         } else if (entry.expiry != null) {
+            // Instance was idle, keep it.
+            entry.expiry.cancel(false);
+            entry.expiry = null;
+         }
+         entry.references++;
+      }
+      if (owner) {
+         try {
+            candidate.start();
+            entry.started.complete(null);
+         } catch (RuntimeException re) {
+            forget(key, entry);
+            entry.started.completeExceptionally(re);
+            throw re;
+         }
+      } else {
+         try {
+            entry.started.join();
+         } catch (CompletionException ce) {
+            // Entry has already been forgotten by the owner.
+            Throwable cause = Futures.unwrap(ce);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : ce;
+         }
+      }
+      return new Lease<>(this, key, entry, (T) entry.shared);
+   }
+
+   private void release(String key, Entry entry) {
+      boolean stop = false;
+      synchronized (this) {
+         if (--entry.references == 0) {
+            if (idleGracePeriod == 0) {
+               stop = entries.remove(key, entry);
+            } else {
+               entry.expiry = reaper().schedule(() -> expire(key, entry), idleGracePeriod, TimeUnit.MILLISECONDS);
+            }
+         }
+      }
+      if (stop) {
+         entry.shared.stop();
+      }
+   }
+
+   private void expire(String key, Entry entry) {
+      synchronized (this) {
+         // Instance may have been acquired again in the meantime.
+         if (entry.references > 0 || !entries.remove(key, entry)) {
+            return;
+         }
+         entry.expiry = null;
+      }
+      entry.shared.stop();
+   }
+
+   private void stopAll() {
+      List<Entry> remaining;
+      synchronized (this) {
+         remaining = new ArrayList<>(entries.values());
+         entries.clear();
+         if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+         }
+      }
+      for (Entry entry : remaining) {
+         try {
+            entry.shared.stop();
+         } catch (RuntimeException re) {
+            log.warn("Error while stopping a shared instance", re);
+         }
+      }
+   }
+
+   private ScheduledThreadPoolExecutor reaper() {
+      if (reaper == null) {
+         reaper = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("microcks-shared-reaper"));
+         reaper.setRemoveOnCancelPolicy(true);
+      }
+      return reaper;
+   }
+
+   private synchronized void forget(String key, Entry entry) {
+      entries.remove(key, entry);
+   }
+
+   private static class Entry {
+
+      private final Startable shared;
+      private final CompletableFuture<Void> started = new CompletableFuture<>();
+      private int references;
+      private ScheduledFuture<?> expiry;
+
+      private Entry(Startable shared) {
+         this.shared = shared;
+      }
+   }
+
+   /**
+    * A reference on a shared started container or ensemble. Closing it releases the reference.
+    * @param <T> The type of shared instance
+    */
+   public static final class Lease<T extends Startable> implements AutoCloseable {
+
+      private final SharedEnsembleRegistry registry;
+      private final String key;
+      private final Entry entry;
+      private final T shared;
+      private final AtomicBoolean closed = new AtomicBoolean();
+
+      private Lease(SharedEnsembleRegistry registry, String key, Entry entry, T shared) {
+         this.registry = registry;
+         this.key = key;
+         this.entry = entry;
+         this.shared = shared;
+      }
+
+      /** @return The shared started instance. */
+      public T get() {
+         return shared;
+      }
+
+      /**
+       * Release this reference. Once the last one is released, shared instance is stopped after the idle grace
+       * period. Closing twice has no effect.
+       */
+      @Override
+      public void close() {
+         if (closed.compareAndSet(false, true)) {
+            registry.release(key, entry);
+         }
+      }
+   }
+}
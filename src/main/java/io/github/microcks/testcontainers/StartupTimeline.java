@@ -0,0 +1,107 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * When and how long each container of an ensemble took to start, so that the critical path of a startup is
+ * easy to spot.
+ * @author laurent
+ */
+public class StartupTimeline {
+
+   private final List<Entry> entries;
+   private final long durationMillis;
+   private final boolean parallel;
+
+   StartupTimeline(List<Entry> entries, long durationMillis, boolean parallel) {
+      List<Entry> sorted = new ArrayList<>(entries);
+      sorted.sort(Comparator.comparingLong(Entry::getStartOffsetMillis));
+      this.entries = Collections.unmodifiableList(sorted);
+      this.durationMillis = durationMillis;
+      this.parallel = parallel;
+   }
+
+   /** @return The container starts, in start order. */
+   public List<Entry> getEntries() {
+      return entries;
+   }
+
+   /** @return The wall time of whole startup. */
+   public long getDurationMillis() {
+      return durationMillis;
+   }
+
+   /** @return Whether independent containers were started in parallel. */
+   public boolean isParallel() {
+      return parallel;
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder builder = new StringBuilder(parallel ? "Parallel" : "Sequential").append(" startup in ")
+            .append(durationMillis).append("ms");
+      for (Entry entry : entries) {
+         builder.append("\n  ").append(entry);
+      }
+      return builder.toString();
+   }
+
+   /** The start of a single container. */
+   public static class Entry {
+
+      private final String name;
+      private final long startOffsetMillis;
+      private final long durationMillis;
+      private final Throwable failure;
+
+      Entry(String name, long startOffsetMillis, long durationMillis, Throwable failure) {
+         this.name = name;
+         this.startOffsetMillis = startOffsetMillis;
+         this.durationMillis = durationMillis;
+         this.failure = failure;
+      }
+
+      /** @return The name of container within ensemble (microcks, postman or async-minion). */
+      public String getName() {
+         return name;
+      }
+
+      /** @return When container start began, relative to the beginning of whole startup. */
+      public long getStartOffsetMillis() {
+         return startOffsetMillis;
+      }
+
+      public long getDurationMillis() {
+         return durationMillis;
+      }
+
+      /** @return The cause of failure, null if container started. */
+      public Throwable getFailure() {
+         return failure;
+      }
+
+      @Override
+      public String toString() {
+         return name + ": +" + startOffsetMillis + "ms, started in " + durationMillis + "ms"
+               + (failure != null ? " (failed: " + failure.getMessage() + ")" : "");
+      }
+   }
+}
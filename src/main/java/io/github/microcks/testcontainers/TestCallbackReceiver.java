@@ -0,0 +1,150 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.microcks.testcontainers.client.ClientResponse;
+import io.github.microcks.testcontainers.client.MicrocksClient;
+import io.github.microcks.testcontainers.client.RequestBody;
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A lightweight Http listener running on the host and receiving the test callbacks that runners (like the Postman
+ * one) send when a test case is done. Callbacks are relayed to Microcks that remains the source of truth, then the
+ * test is woken up so that its completion is detected right away instead of at next poll.
+ * @author laurent
+ */
+class TestCallbackReceiver {
+
+   /** Get a SL4J logger. */
+   private static final Logger log = LoggerFactory.getLogger(TestCallbackReceiver.class);
+
+   private static final Pattern CALLBACK_PATH = Pattern.compile("/api/tests/([^/]+)/testCaseResult");
+
+   private final Supplier<MicrocksClient> microcksClient;
+   private final Consumer<String> testProgressed;
+   private final AtomicLong relayed = new AtomicLong();
+
+   private HttpServer server;
+   private ExecutorService executor;
+
+   /**
+    * Create a TestCallbackReceiver.
+    * @param microcksClient Supplier of the client for relaying callbacks to Microcks
+    * @param testProgressed Notified with the test id once a callback has been relayed
+    */
+   TestCallbackReceiver(Supplier<MicrocksClient> microcksClient, Consumer<String> testProgressed) {
+      this.microcksClient = microcksClient;
+      this.testProgressed = testProgressed;
+   }
+
+   /**
+    * Start listening on an ephemeral port of the loopback interface. Containers reach it through the host port
+    * exposed by Testcontainers, whose tunnel connects on loopback.
+    * @return The listening port
+    * @throws IOException if server cannot be started
+    */
+   synchronized int start() throws IOException {
+      if (server == null) {
+         executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("microcks-callbacks"));
+         server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+         server.createContext("/api/tests/", this::handle);
+         server.setExecutor(executor);
+         server.start();
+         log.debug("Test callback receiver listening on port {}", server.getAddress().getPort());
+      }
+      return server.getAddress().getPort();
+   }
+
+   synchronized void stop() {
+      if (server != null) {
+         server.stop(0);
+         executor.shutdownNow();
+         server = null;
+      }
+   }
+
+   /** @return The number of callbacks relayed to Microcks so far. */
+   long getRelayedCount() {
+      return relayed.get();
+   }
+
+   private void handle(HttpExchange exchange) throws IOException {
+      try {
+         Matcher matcher = CALLBACK_PATH.matcher(exchange.getRequestURI().getPath());
+         if (!"POST".equals(exchange.getRequestMethod()) || !matcher.matches()) {
+            respond(exchange, 404, new byte[0]);
+            return;
+         }
+         String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+         byte[] callback = readFully(exchange.getRequestBody());
+
+         int statusCode;
+         byte[] response;
+         try (ClientResponse relayResponse = microcksClient.get().post(exchange.getRequestURI().toString(),
+               RequestBody.of(contentType != null ? contentType : RequestBody.APPLICATION_JSON, callback))) {
+            statusCode = relayResponse.getStatusCode();
+            response = relayResponse.getBodyAsString().getBytes(StandardCharsets.UTF_8);
+         }
+         respond(exchange, statusCode, response);
+         relayed.incrementAndGet();
+         testProgressed.accept(matcher.group(1));
+      } catch (IOException ioe) {
+         log.warn("Error while relaying test callback {} to Microcks", exchange.getRequestURI(), ioe);
+         respond(exchange, 502, new byte[0]);
+      } finally {
+         exchange.close();
+      }
+   }
+
+   private static void respond(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+      exchange.getResponseHeaders().set("Content-Type", RequestBody.APPLICATION_JSON);
+      exchange.sendResponseHeaders(statusCode, body.length > 0 ? body.length : -1);
+      if (body.length > 0) {
+         try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+         }
+      }
+   }
+
+   private static byte[] readFully(InputStream in) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+         out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+   }
+}
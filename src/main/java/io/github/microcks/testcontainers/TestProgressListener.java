@@ -0,0 +1,42 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestStepResult;
+
+/**
+ * A listener notified of a running test progression: test steps and test cases are reported as soon as they
+ * appear in Microcks, between two refreshes of the test result. Each step and each test case is reported only
+ * once. Listeners are called from the poller threads: they should return quickly.
+ * @author laurent
+ */
+public interface TestProgressListener {
+
+   /**
+    * Called when a test case (the test of one operation) has been completed.
+    * @param testCaseResult The completed test case, including all its steps
+    */
+   default void onTestCaseCompleted(TestCaseResult testCaseResult) {
+   }
+
+   /**
+    * Called when a new test step (one request or message of an operation) has been completed.
+    * @param testStepResult The completed test step
+    */
+   default void onTestStepCompleted(TestStepResult testStepResult) {
+   }
+}
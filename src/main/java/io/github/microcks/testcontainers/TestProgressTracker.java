@@ -0,0 +1,94 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestStepResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells a {@code TestProgressListener} what's new in a test result since previous refresh. Microcks only appends
+ * test cases and steps to a running test so we just have to remember how many of them have been reported: each
+ * refresh only looks at the new ones and at the test cases still running.
+ * @author laurent
+ */
+class TestProgressTracker {
+
+   /** Get a SL4J logger. */
+   private static final Logger log = LoggerFactory.getLogger(TestProgressTracker.class);
+
+   private final TestProgressListener listener;
+   /** Number of steps reported for each test case, by test case position. */
+   private final List<Integer> reportedSteps = new ArrayList<>();
+   /** Number of test cases, from the first one, that have been reported as completed. */
+   private int completedCases;
+
+   TestProgressTracker(TestProgressListener listener) {
+      this.listener = listener;
+   }
+
+   /**
+    * Report what's new in a refreshed test result.
+    * @param result The latest test result
+    */
+   synchronized void update(TestResult result) {
+      List<TestCaseResult> testCases = result.getTestCaseResults();
+      if (testCases == null) {
+         return;
+      }
+      for (int i = completedCases; i < testCases.size(); i++) {
+         TestCaseResult testCase = testCases.get(i);
+         if (i == reportedSteps.size()) {
+            reportedSteps.add(0);
+         }
+         List<TestStepResult> steps = testCase.getTestStepResults();
+         int reported = reportedSteps.get(i);
+         if (steps != null) {
+            for (int j = reported; j < steps.size(); j++) {
+               notifyStep(steps.get(j));
+            }
+            reportedSteps.set(i, steps.size());
+         }
+         // Report test cases completion in order; a running one has no elapsed time yet, unless test is over.
+         boolean caseCompleted = testCase.getElapsedTime() >= 0 || !result.isInProgress();
+         if (caseCompleted && i == completedCases) {
+            completedCases++;
+            notifyTestCase(testCase);
+         }
+      }
+   }
+
+   private void notifyStep(TestStepResult step) {
+      try {
+         listener.onTestStepCompleted(step);
+      } catch (RuntimeException re) {
+         log.warn("TestProgressListener failed on test step {}", step.getRequestName(), re);
+      }
+   }
+
+   private void notifyTestCase(TestCaseResult testCase) {
+      try {
+         listener.onTestCaseCompleted(testCase);
+      } catch (RuntimeException re) {
+         log.warn("TestProgressListener failed on test case {}", testCase.getOperationName(), re);
+      }
+   }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A poller shared by all the tests launched on a Microcks container. Each tracked test is refreshed on a small
+ * scheduled pool following a {@code PollingPolicy}, so that many concurrent tests don't translate into a flood of
+ * refreshes, and its future is completed as soon as Microcks tells it's no longer in progress. A test can also be
+ * woken up when we learn from elsewhere that it may have progressed. Cancelling a test future stops its polling.
+ * Progress listeners are notified and futures are completed on a separate notifier executor, in order for each test,
+ * so that slow listeners or dependent stages never delay the polling of other tests.
+ * @author laurent
+ */
+class TestResultPoller {
+
+   /** Get a SL4J logger. */
+   private static final Logger log = LoggerFactory.getLogger(TestResultPoller.class);
+
+   /** How many statistics of finished tests are kept. */
+   private static final int MAX_STATISTICS = 1000;
+
+   /** The action of retrieving the current state of a test. */
+   @FunctionalInterface
+   interface Fetcher {
+      TestResult fetch(String testResultId, TestResultReader.Detail detail) throws Exception;
+   }
+
+   private final Fetcher fetcher;
+   private final Executor notifier;
+   private final ScheduledExecutorService scheduler;
+   private final Map<String, TrackedTest> trackedTests = new ConcurrentHashMap<>();
+   private final Map<String, TestRunStatistics> statistics = new LinkedHashMap<String, TestRunStatistics>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, TestRunStatistics> eldest) {
+         return size() > MAX_STATISTICS;
+      }
+   };
+
+   private final AtomicLong polls = new AtomicLong();
+   private final AtomicLong completed = new AtomicLong();
+   private final AtomicLong timedOut = new AtomicLong();
+   private final AtomicLong cancelled = new AtomicLong();
+   private final AtomicLong totalDetectionLatency = new AtomicLong();
+   private final AtomicLong maxDetectionLatency = new AtomicLong();
+
+   /**
+    * Create a TestResultPoller.
+    * @param fetcher     Retrieves the current state of a test
+    * @param notifier    Runs listener notifications and future completions
+    * @param parallelism The number of polling threads
+    */
+   TestResultPoller(Fetcher fetcher, Executor notifier, int parallelism) {
+      this.fetcher = fetcher;
+      this.notifier = task -> {
+         try {
+            notifier.execute(task);
+         } catch (RejectedExecutionException ree) {
+            // Notifier has been shut down: never leave a test future pending.
+            task.run();
+         }
+      };
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(parallelism, new NamedThreadFactory("microcks-poller"));
+      executor.setRemoveOnCancelPolicy(true);
+      this.scheduler = executor;
+   }
+
+   /**
+    * Start tracking a test until it's done or its deadline is reached.
+    * @param testResultId The id of test to track
+    * @param submittedAt  When test was submitted, deadline and first refresh are relative to this time
+    * @param timeout      The test timeout in milliseconds
+    * @param policy       How to poll test progression
+    * @return A future completed with the final test result or the one got at deadline
+    */
+   CompletableFuture<TestResult> track(String testResultId, long submittedAt, long timeout, PollingPolicy policy) {
+      return track(testResultId, submittedAt, timeout, policy, null);
+   }
+
+   /**
+    * Start tracking a test until it's done or its deadline is reached, reporting its progression to a listener.
+    * @param testResultId The id of test to track
+    * @param submittedAt  When test was submitted, deadline and first refresh are relative to this time
+    * @param timeout      The test timeout in milliseconds
+    * @param policy       How to poll test progression
+    * @param listener     The listener of test progression, may be null
+    * @return A future completed with the final test result or the one got at deadline
+    */
+   CompletableFuture<TestResult> track(String testResultId, long submittedAt, long timeout, PollingPolicy policy,
+                                       TestProgressListener listener) {
+      TrackedTest test = new TrackedTest(testResultId, submittedAt, submittedAt + timeout + policy.getTimeoutGrace(), policy,
+            listener != null ? new TestProgressTracker(listener) : null);
+      trackedTests.put(testResultId, test);
+      test.future.whenComplete((result, failure) -> {
+         trackedTests.remove(testResultId, test);
+         if (test.future.isCancelled()) {
+            // Caller gave up: drop pending refresh right now.
+            synchronized (test) {
+               if (test.next != null) {
+                  test.next.cancel(false);
+               }
+            }
+            recordCancellation();
+            log.debug("Test {} has been cancelled after {} polls", testResultId, test.pollCount);
+         }
+      });
+      schedule(test, Math.max(0, submittedAt + policy.getInitialDelay() - System.currentTimeMillis()));
+      return test.future;
+   }
+
+   /**
+    * Refresh a tracked test as soon as possible, whatever its current poll interval.
+    * @param testResultId The id of test that may have progressed
+    */
+   void wake(String testResultId) {
+      TrackedTest test = trackedTests.get(testResultId);
+      if (test != null) {
+         synchronized (test) {
+            if (test.polling) {
+               test.wakeRequested = true;
+            } else {
+               schedule(test, 0);
+            }
+         }
+      }
+   }
+
+   /** Count a test cancelled by caller, tracked or not yet. */
+   void recordCancellation() {
+      cancelled.incrementAndGet();
+   }
+
+   /**
+    * Get how a finished test has been polled. Only the most recent tests are remembered.
+    * @param testResultId The id of a finished test
+    * @return The test statistics, null if test is unknown or still running
+    */
+   TestRunStatistics getStatistics(String testResultId) {
+      synchronized (statistics) {
+         return statistics.get(testResultId);
+      }
+   }
+
+   PollerMetrics getMetrics() {
+      long detected = completed.get();
+      // Completed tests may not have been removed yet.
+      int inFlight = (int) trackedTests.values().stream().filter(test -> !test.finished && !test.future.isDone()).count();
+      return new PollerMetrics(inFlight, polls.get(), detected, timedOut.get(), cancelled.get(),
+            detected > 0 ? totalDetectionLatency.get() / detected : 0, maxDetectionLatency.get());
+   }
+
+   /** Stop polling; still tracked tests are completed exceptionally. */
+   void shutdown() {
+      scheduler.shutdownNow();
+      trackedTests.values().forEach(test ->
+            test.future.completeExceptionally(new IllegalStateException("Test result poller has been shut down")));
+      trackedTests.clear();
+   }
+
+   private void schedule(TrackedTest test, long delay) {
+      synchronized (test) {
+         // A new schedule supersedes the pending one.
+         long sequence = ++test.sequence;
+         if (test.next != null) {
+            test.next.cancel(false);
+         }
+         try {
+            test.next = scheduler.schedule(() -> poll(test, sequence), delay, TimeUnit.MILLISECONDS);
+         } catch (RejectedExecutionException ree) {
+            test.future.completeExceptionally(ree);
+         }
+      }
+   }
+
+   private void poll(TrackedTest test, long sequence) {
+      synchronized (test) {
+         if (sequence != test.sequence || test.polling || test.finished || test.future.isDone()) {
+            return;
+         }
+         test.polling = true;
+      }
+      long now = System.currentTimeMillis();
+      boolean expired = now >= test.deadline;
+      polls.incrementAndGet();
+      test.pollCount++;
+      try {
+         // Test cases are only needed for reporting progression: otherwise just check whether test is done.
+         TestResultReader.Detail detail = test.progressTracker != null ? test.policy.readDetail() : TestResultReader.Detail.PROGRESS;
+         TestResult result = fetcher.fetch(test.testResultId, detail);
+         if ((!result.isInProgress() || expired) && !TestResultReader.isComplete(result, detail)) {
+            // Caller gets this result: fetch it whole, exactly once.
+            result = fetcher.fetch(test.testResultId, TestResultReader.Detail.FULL);
+         }
+         final TestResult refreshed = result;
+         if (test.progressTracker != null) {
+            notify(test, () -> test.progressTracker.update(refreshed));
+         }
+         if (!result.isInProgress()) {
+            // Record before completing so that callers see up-to-date metrics.
+            recordDetection(test, result, now);
+            test.finished = true;
+            notify(test, () -> test.future.complete(refreshed));
+         } else if (expired) {
+            log.info("Test {} is still in progress after its timeout", test.testResultId);
+            timedOut.incrementAndGet();
+            recordStatistics(test, now, now - test.deadline, true);
+            test.finished = true;
+            notify(test, () -> test.future.complete(refreshed));
+         }
+      } catch (Exception e) {
+         if (expired) {
+            test.finished = true;
+            notify(test, () -> test.future.completeExceptionally(e));
+         } else if (!test.failureLogged) {
+            test.failureLogged = true;
+            log.warn("Error while refreshing test {}, will retry until its deadline", test.testResultId, e);
+         } else {
+            log.debug("Error while refreshing test {}, will retry", test.testResultId, e);
+         }
+      }
+      test.lastPollAt = now;
+      test.interval = test.policy.nextInterval(test.interval);
+      synchronized (test) {
+         test.polling = false;
+         if (!test.finished && !test.future.isDone()) {
+            // Never wait past the deadline: last refresh happens right on it.
+            long delay = test.wakeRequested ? 0
+                  : Math.min(test.policy.withJitter(test.interval), Math.max(0, test.deadline - System.currentTimeMillis()));
+            test.wakeRequested = false;
+            schedule(test, delay);
+         }
+      }
+   }
+
+   private void notify(TrackedTest test, Runnable notification) {
+      // Chained so that a test notifications run one after the other, in polling order.
+      test.notifications = test.notifications.thenRunAsync(() -> {
+         try {
+            notification.run();
+         } catch (RuntimeException re) {
+            log.warn("Error while notifying progression of test {}", test.testResultId, re);
+         }
+      }, notifier);
+   }
+
+   private void recordDetection(TrackedTest test, TestResult result, long detectedAt) {
+      // Detection was late at most of the time since previous poll; refine with Microcks reported end of test.
+      long latency = detectedAt - test.lastPollAt;
+      if (result.getTestDate() != null) {
+         long finishedAt = result.getTestDate().getTime() + result.getElapsedTime();
+         latency = Math.max(0, Math.min(latency, detectedAt - finishedAt));
+      }
+      completed.incrementAndGet();
+      totalDetectionLatency.addAndGet(latency);
+      maxDetectionLatency.accumulateAndGet(latency, Math::max);
+      recordStatistics(test, detectedAt, latency, false);
+   }
+
+   private void recordStatistics(TrackedTest test, long detectedAt, long overshoot, boolean timedOut) {
+      TestRunStatistics testStatistics = new TestRunStatistics(test.testResultId, test.pollCount,
+            detectedAt - test.submittedAt, overshoot, timedOut);
+      log.debug("Test {} polling done: {}", test.testResultId, testStatistics);
+      synchronized (statistics) {
+         statistics.put(test.testResultId, testStatistics);
+      }
+   }
+
+   private static class TrackedTest {
+      private final String testResultId;
+      private final long submittedAt;
+      private final long deadline;
+      private final PollingPolicy policy;
+      private final TestProgressTracker progressTracker;
+      private final CompletableFuture<TestResult> future = new CompletableFuture<>();
+      private volatile long interval;
+      private volatile long lastPollAt;
+      private volatile int pollCount;
+      private volatile boolean failureLogged;
+      /** Set once the final result is known, possibly before future is completed by notifier. */
+      private volatile boolean finished;
+      /** Only touched by the polling thread of the moment. */
+      private CompletableFuture<Void> notifications = CompletableFuture.completedFuture(null);
+      // Guarded by this.
+      private long sequence;
+      private ScheduledFuture<?> next;
+      private boolean polling;
+      private boolean wakeRequested;
+
+      private TrackedTest(String testResultId, long submittedAt, long deadline, PollingPolicy policy,
+                          TestProgressTracker progressTracker) {
+         this.testResultId = testResultId;
+         this.submittedAt = submittedAt;
+         this.deadline = deadline;
+         this.policy = policy;
+         this.progressTracker = progressTracker;
+         this.interval = Math.max(1L, policy.getInitialDelay());
+         this.lastPollAt = submittedAt;
+      }
+   }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.OperationsHeaders;
+import io.github.microcks.testcontainers.model.SecretRef;
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import io.github.microcks.testcontainers.model.TestStepResult;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
+
+import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonParser;
+import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A streaming reader of TestResult. Json is read token by token straight from the response stream instead of
+ * being buffered and bound to a tree, and step messages - that are the bulk of a big test result - may be skipped
+ * while test is still in progress. A progress-only projection stops binding as soon as top-level progression fields
+ * are known, which is all a poll needs: the rest is only tokenized and skipped, so that the response is consumed
+ * and its connection can go back to the pool. Unknown properties are ignored.
+ * @author laurent
+ */
+final class TestResultReader {
+
+   /** How much of a test result to read. */
+   enum Detail {
+      /** Everything, as a regular Jackson binding would do. */
+      FULL,
+      /** Everything but the messages of test steps, as long as test is in progress. */
+      NO_STEP_MESSAGES_IN_PROGRESS,
+      /**
+       * Top-level fields only, without test cases. Binding stops once {@code inProgress}, {@code success} and
+       * {@code elapsedTime} are known, so fields coming after them may be missing.
+       */
+      PROGRESS
+   }
+
+   private TestResultReader() {
+      // Utility class.
+   }
+
+   /**
+    * Read a test result from a stream. Stream is read until the end of the test result and then closed.
+    * @param stream The stream holding Json representation of a TestResult
+    * @param detail How much of test result to read
+    * @return The test result
+    * @throws IOException If stream cannot be read or is not a valid TestResult
+    */
+   static TestResult read(InputStream stream, Detail detail) throws IOException {
+      // Parser codec binds the few nested objects that are not worth hand-written parsing.
+      try (JsonParser parser = JsonCodecs.createParser(stream)) {
+         if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a TestResult object but got " + parser.currentToken());
+         }
+         return readTestResult(parser, detail);
+      }
+   }
+
+   /**
+    * Tell if a test result read with some detail is the same as a fully read one.
+    * @param result A test result
+    * @param detail The detail it has been read with
+    * @return true if nothing has been left out of result
+    */
+   static boolean isComplete(TestResult result, Detail detail) {
+      return detail == Detail.FULL || (detail == Detail.NO_STEP_MESSAGES_IN_PROGRESS && !result.isInProgress());
+   }
+
+   private static TestResult readTestResult(JsonParser parser, Detail detail) throws IOException {
+      TestResult result = new TestResult();
+      // inProgress defaults to true: don't skip messages until we're told test is in progress.
+      boolean inProgressRead = false;
+      boolean successRead = false;
+      boolean elapsedTimeRead = false;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+         String field = parser.getCurrentName();
+         JsonToken token = parser.nextToken();
+         if (token == JsonToken.VALUE_NULL) {
+            continue;
+         }
+         switch (field) {
+            case "id":
+               result.setId(parser.getText());
+               break;
+            case "version":
+               result.setVersion(parser.getValueAsLong());
+               break;
+            case "testNumber":
+               result.setTestNumber(parser.getValueAsLong());
+               break;
+            case "testDate":
+               result.setTestDate(parser.readValueAs(Date.class));
+               break;
+            case "testedEndpoint":
+               result.setTestedEndpoint(parser.getText());
+               break;
+            case "serviceId":
+               result.setServiceId(parser.getText());
+               break;
+            case "secretRef":
+               result.setSecretRef(parser.readValueAs(SecretRef.class));
+               break;
+            case "timeout":
+               result.setTimeout(parser.getValueAsLong());
+               break;
+            case "elapsedTime":
+               result.setElapsedTime(parser.getValueAsLong());
+               elapsedTimeRead = true;
+               break;
+            case "success":
+               result.setSuccess(parser.getValueAsBoolean());
+               successRead = true;
+               break;
+            case "inProgress":
+               result.setInProgress(parser.getValueAsBoolean());
+               inProgressRead = true;
+               break;
+            case "runnerType":
+               result.setRunnerType(parser.readValueAs(TestRunnerType.class));
+               break;
+            case "operationsHeaders":
+               result.setOperationsHeaders(parser.readValueAs(OperationsHeaders.class));
+               break;
+            case "testCaseResults":
+               if (detail == Detail.PROGRESS) {
+                  parser.skipChildren();
+                  break;
+               }
+               boolean skipMessages = detail == Detail.NO_STEP_MESSAGES_IN_PROGRESS && inProgressRead && result.isInProgress();
+               result.setTestCaseResults(readTestCaseResults(parser, skipMessages));
+               break;
+            default:
+               parser.skipChildren();
+         }
+         if (detail == Detail.PROGRESS && inProgressRead && successRead && elapsedTimeRead) {
+            // Skip the rest without binding it, but read it so that connection stays reusable.
+            skipRemainingFields(parser);
+            break;
+         }
+      }
+      return result;
+   }
+
+   private static void skipRemainingFields(JsonParser parser) throws IOException {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+         parser.nextToken();
+         parser.skipChildren();
+      }
+   }
+
+   private static List<TestCaseResult> readTestCaseResults(JsonParser parser, boolean skipMessages) throws IOException {
+      List<TestCaseResult> testCaseResults = new ArrayList<>();
+      expect(parser, JsonToken.START_ARRAY);
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+         TestCaseResult testCaseResult = new TestCaseResult();
+         while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+               continue;
+            }
+            switch (field) {
+               case "success":
+                  testCaseResult.setSuccess(parser.getValueAsBoolean());
+                  break;
+               case "elapsedTime":
+                  testCaseResult.setElapsedTime(parser.getValueAsLong());
+                  break;
+               case "operationName":
+                  testCaseResult.setOperationName(parser.getText());
+                  break;
+               case "testStepResults":
+                  testCaseResult.setTestStepResults(readTestStepResults(parser, skipMessages));
+                  break;
+               default:
+                  parser.skipChildren();
+            }
+         }
+         testCaseResults.add(testCaseResult);
+      }
+      return testCaseResults;
+   }
+
+   private static List<TestStepResult> readTestStepResults(JsonParser parser, boolean skipMessages) throws IOException {
+      List<TestStepResult> testStepResults = new ArrayList<>();
+      expect(parser, JsonToken.START_ARRAY);
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+         TestStepResult testStepResult = new TestStepResult();
+         while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+               continue;
+            }
+            switch (field) {
+               case "success":
+                  testStepResult.setSuccess(parser.getValueAsBoolean());
+                  break;
+               case "elapsedTime":
+                  testStepResult.setElapsedTime(parser.getValueAsLong());
+                  break;
+               case "requestName":
+                  testStepResult.setRequestName(parser.getText());
+                  break;
+               case "eventMessageName":
+                  testStepResult.setEventMessageName(parser.getText());
+                  break;
+               case "message":
+                  // Skipping a string token does not decode it.
+                  if (!skipMessages) {
+                     testStepResult.setMessage(parser.getText());
+                  }
+                  break;
+               default:
+                  parser.skipChildren();
+            }
+         }
+         testStepResults.add(testStepResult);
+      }
+      return testStepResults;
+   }
+
+   private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+      if (parser.currentToken() != expected) {
+         throw new IOException("Expected " + expected + " but got " + parser.currentToken() + " at " + parser.getCurrentLocation());
+      }
+   }
+}
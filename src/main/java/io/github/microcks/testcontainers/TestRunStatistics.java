@@ -0,0 +1,68 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+/**
+ * How the progression of one test has been polled. Overshoot is the time between the moment test was done (or
+ * its deadline was reached) and the moment the poller noticed it; it's what a faster policy would save.
+ * @author laurent
+ */
+public class TestRunStatistics {
+
+   private final String testResultId;
+   private final int pollCount;
+   private final long durationMillis;
+   private final long overshootMillis;
+   private final boolean timedOut;
+
+   TestRunStatistics(String testResultId, int pollCount, long durationMillis, long overshootMillis, boolean timedOut) {
+      this.testResultId = testResultId;
+      this.pollCount = pollCount;
+      this.durationMillis = durationMillis;
+      this.overshootMillis = overshootMillis;
+      this.timedOut = timedOut;
+   }
+
+   public String getTestResultId() {
+      return testResultId;
+   }
+
+   /** @return The number of refreshes of test result. */
+   public int getPollCount() {
+      return pollCount;
+   }
+
+   /** @return The time between test submission and detection of its end. */
+   public long getDurationMillis() {
+      return durationMillis;
+   }
+
+   /** @return The time between test end (or deadline) and its detection. */
+   public long getOvershootMillis() {
+      return overshootMillis;
+   }
+
+   /** @return Whether test was still in progress at its deadline. */
+   public boolean isTimedOut() {
+      return timedOut;
+   }
+
+   @Override
+   public String toString() {
+      return "TestRunStatistics{testResultId=" + testResultId + ", pollCount=" + pollCount + ", duration="
+            + durationMillis + "ms, overshoot=" + overshootMillis + "ms, timedOut=" + timedOut + "}";
+   }
+}
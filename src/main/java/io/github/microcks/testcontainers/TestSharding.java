@@ -0,0 +1,118 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Splits a test on many operations into shards that can run concurrently, each shard being a test on a subset
+ * of operations, and merges the shards results back into a single one.
+ * @author laurent
+ */
+final class TestSharding {
+
+   private TestSharding() {
+      // Utility class.
+   }
+
+   /**
+    * Split operations into at most {@code shards} groups of balanced size, keeping their relative order.
+    * @param request    The test to split
+    * @param operations All the operations to test
+    * @param shards     The wanted number of shards
+    * @return One request for each non-empty group of operations
+    */
+   static List<TestRequest> split(TestRequest request, List<String> operations, int shards) {
+      int count = Math.max(1, Math.min(shards, operations.size()));
+      List<List<String>> groups = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+         groups.add(new ArrayList<>());
+      }
+      // Round-robin so that neighbour operations, often of similar cost, land in different shards.
+      for (int i = 0; i < operations.size(); i++) {
+         groups.get(i % count).add(operations.get(i));
+      }
+      return groups.stream().map(group -> new TestRequest.Builder()
+            .serviceId(request.getServiceId())
+            .testEndpoint(request.getTestEndpoint())
+            .runnerType(request.getRunnerType())
+            .secretName(request.getSecretName())
+            .timeout(request.getTimeout())
+            .filteredOperations(group)
+            .operationsHeaders(request.getOperationsHeaders())
+            .build()).collect(Collectors.toList());
+   }
+
+   /**
+    * Merge the results of shards into a synthetic one. Merged id is the comma-separated list of shard ids, test
+    * cases are given in operations order, elapsed time is the wall time from first shard start to last shard end.
+    * @param shards     The results of each shard
+    * @param operations All the tested operations, in the wanted order
+    * @return The merged result
+    */
+   static TestResult merge(List<TestResult> shards, List<String> operations) {
+      TestResult first = shards.get(0);
+      TestResult merged = new TestResult();
+      merged.setId(shards.stream().map(TestResult::getId).collect(Collectors.joining(",")));
+      merged.setVersion(first.getVersion());
+      merged.setTestNumber(first.getTestNumber());
+      merged.setTestedEndpoint(first.getTestedEndpoint());
+      merged.setServiceId(first.getServiceId());
+      merged.setSecretRef(first.getSecretRef());
+      merged.setTimeout(first.getTimeout());
+      merged.setRunnerType(first.getRunnerType());
+      merged.setOperationsHeaders(first.getOperationsHeaders());
+      merged.setInProgress(shards.stream().anyMatch(TestResult::isInProgress));
+      merged.setSuccess(!merged.isInProgress() && shards.stream().allMatch(TestResult::isSuccess));
+
+      long start = Long.MAX_VALUE;
+      long end = Long.MIN_VALUE;
+      long maxElapsed = 0;
+      for (TestResult shard : shards) {
+         maxElapsed = Math.max(maxElapsed, shard.getElapsedTime());
+         if (shard.getTestDate() != null) {
+            start = Math.min(start, shard.getTestDate().getTime());
+            end = Math.max(end, shard.getTestDate().getTime() + shard.getElapsedTime());
+         }
+      }
+      if (start != Long.MAX_VALUE) {
+         merged.setTestDate(new Date(start));
+         merged.setElapsedTime(Math.max(maxElapsed, end - start));
+      } else {
+         merged.setElapsedTime(maxElapsed);
+      }
+
+      Map<String, Integer> positions = new HashMap<>();
+      for (int i = 0; i < operations.size(); i++) {
+         positions.put(operations.get(i), i);
+      }
+      List<TestCaseResult> testCases = new ArrayList<>();
+      shards.forEach(shard -> testCases.addAll(shard.getTestCaseResults()));
+      testCases.sort(Comparator.comparingInt(testCase -> positions.getOrDefault(testCase.getOperationName(), Integer.MAX_VALUE)));
+      merged.setTestCaseResults(testCases);
+      return merged;
+   }
+}
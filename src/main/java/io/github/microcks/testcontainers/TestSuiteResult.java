@@ -0,0 +1,199 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of many tests launched together: the individual result of each test and a summary for each
+ * tested service.
+ * @author laurent
+ */
+public class TestSuiteResult {
+
+   private final List<Entry> entries;
+   private final long durationMillis;
+   private final Map<String, ServiceSummary> serviceSummaries;
+
+   TestSuiteResult(List<Entry> entries, long durationMillis) {
+      this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+      this.durationMillis = durationMillis;
+      Map<String, ServiceSummary> summaries = new LinkedHashMap<>();
+      for (Entry entry : entries) {
+         summaries.computeIfAbsent(entry.getRequest().getServiceId(), ServiceSummary::new).add(entry);
+      }
+      this.serviceSummaries = Collections.unmodifiableMap(summaries);
+   }
+
+   /** @return The outcome of each test, in request order. */
+   public List<Entry> getEntries() {
+      return entries;
+   }
+
+   /** @return The summary of tests for each service, keyed by service id ({@code name:version}). */
+   public Map<String, ServiceSummary> getServiceSummaries() {
+      return serviceSummaries;
+   }
+
+   /** @return The wall time of whole suite. */
+   public long getDurationMillis() {
+      return durationMillis;
+   }
+
+   /** @return Whether all the tests have been run and are successful. */
+   public boolean isSuccess() {
+      return entries.stream().allMatch(Entry::isSuccess);
+   }
+
+   /** @return The tests that could not be run or are not successful. */
+   public List<Entry> getFailures() {
+      return entries.stream().filter(entry -> !entry.isSuccess()).collect(Collectors.toList());
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder builder = new StringBuilder("TestSuiteResult in ").append(durationMillis).append("ms");
+      for (ServiceSummary summary : serviceSummaries.values()) {
+         builder.append("\n  ").append(summary);
+      }
+      return builder.toString();
+   }
+
+   /** The outcome of a single test of the suite. */
+   public static class Entry {
+
+      private final TestRequest request;
+      private final TestResult result;
+      private final Throwable failure;
+
+      Entry(TestRequest request, TestResult result, Throwable failure) {
+         this.request = request;
+         this.result = result;
+         this.failure = failure;
+      }
+
+      public TestRequest getRequest() {
+         return request;
+      }
+
+      /** @return The test result, null if test could not be run. */
+      public TestResult getResult() {
+         return result;
+      }
+
+      /** @return The reason why test could not be run, null if it has been run. */
+      public Throwable getFailure() {
+         return failure;
+      }
+
+      /** @return Whether test has been run and is successful. */
+      public boolean isSuccess() {
+         return result != null && result.isSuccess();
+      }
+   }
+
+   /** The aggregated results of all the tests of one service. */
+   public static class ServiceSummary {
+
+      private final String serviceId;
+      private int tests;
+      private int successes;
+      private int failures;
+      private int errors;
+      private int timeouts;
+      private long totalElapsedTime;
+      private long maxElapsedTime;
+
+      ServiceSummary(String serviceId) {
+         this.serviceId = serviceId;
+      }
+
+      private void add(Entry entry) {
+         tests++;
+         if (entry.getResult() == null) {
+            errors++;
+            return;
+         }
+         TestResult result = entry.getResult();
+         if (result.isInProgress()) {
+            timeouts++;
+         }
+         if (result.isSuccess()) {
+            successes++;
+         } else {
+            failures++;
+         }
+         totalElapsedTime += result.getElapsedTime();
+         maxElapsedTime = Math.max(maxElapsedTime, result.getElapsedTime());
+      }
+
+      /** @return The service id ({@code name:version}). */
+      public String getServiceId() {
+         return serviceId;
+      }
+
+      public int getTests() {
+         return tests;
+      }
+
+      public int getSuccesses() {
+         return successes;
+      }
+
+      /** @return The number of tests that have been run but are not successful. */
+      public int getFailures() {
+         return failures;
+      }
+
+      /** @return The number of tests that could not be run. */
+      public int getErrors() {
+         return errors;
+      }
+
+      /** @return The number of tests still in progress at their deadline. */
+      public int getTimeouts() {
+         return timeouts;
+      }
+
+      /** @return The sum of tests elapsed times as reported by Microcks. */
+      public long getTotalElapsedTime() {
+         return totalElapsedTime;
+      }
+
+      /** @return The longest test elapsed time as reported by Microcks. */
+      public long getMaxElapsedTime() {
+         return maxElapsedTime;
+      }
+
+      public boolean isSuccess() {
+         return successes == tests;
+      }
+
+      @Override
+      public String toString() {
+         return serviceId + ": " + successes + "/" + tests + " successful, " + failures + " failed, " + errors
+               + " in error, " + timeouts + " timed out, max elapsed " + maxElapsedTime + "ms";
+      }
+   }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs many tests with a bounded concurrency for each runner type: slow runners (Postman, SoapUI) get their own
+ * small lane so that they don't delay fast ones nor overload the container. Launching is non-blocking: a test
+ * is launched as soon as a previous one of the same runner type has completed.
+ * @author laurent
+ */
+class TestSuiteRunner {
+
+   /** The default number of concurrent tests for a runner type. */
+   static final int DEFAULT_RUNNER_CONCURRENCY = 8;
+   /** The default number of concurrent tests for runners that are much slower than the others. */
+   static final int DEFAULT_SLOW_RUNNER_CONCURRENCY = 2;
+
+   private final Function<TestRequest, CompletableFuture<TestResult>> launcher;
+   private final Map<String, Lane> lanes = new HashMap<>();
+   private final Map<TestRunnerType, Integer> concurrencies;
+
+   /**
+    * Create a TestSuiteRunner.
+    * @param launcher      Launch one test and return its future result
+    * @param concurrencies Concurrency for runner types overriding the defaults
+    */
+   TestSuiteRunner(Function<TestRequest, CompletableFuture<TestResult>> launcher, Map<TestRunnerType, Integer> concurrencies) {
+      this.launcher = launcher;
+      this.concurrencies = concurrencies;
+   }
+
+   static Map<TestRunnerType, Integer> defaultConcurrencies() {
+      Map<TestRunnerType, Integer> defaults = new EnumMap<>(TestRunnerType.class);
+      for (TestRunnerType type : TestRunnerType.values()) {
+         defaults.put(type, DEFAULT_RUNNER_CONCURRENCY);
+      }
+      defaults.put(TestRunnerType.POSTMAN, DEFAULT_SLOW_RUNNER_CONCURRENCY);
+      defaults.put(TestRunnerType.SOAP_UI, DEFAULT_SLOW_RUNNER_CONCURRENCY);
+      return defaults;
+   }
+
+   CompletableFuture<TestSuiteResult> run(List<TestRequest> requests) {
+      long start = System.nanoTime();
+      List<CompletableFuture<TestResult>> tests = new ArrayList<>(requests.size());
+      List<CompletableFuture<TestSuiteResult.Entry>> entries = new ArrayList<>(requests.size());
+      for (TestRequest request : requests) {
+         CompletableFuture<TestResult> test = lane(request.getRunnerType()).submit(request);
+         tests.add(test);
+         entries.add(test.handle((result, failure) -> new TestSuiteResult.Entry(request, result, Futures.unwrap(failure))));
+      }
+      CompletableFuture<TestSuiteResult> suite = CompletableFuture.allOf(entries.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+         List<TestSuiteResult.Entry> results = new ArrayList<>(entries.size());
+         entries.forEach(entry -> results.add(entry.join()));
+         return new TestSuiteResult(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      });
+      // Cancelling the suite cancels running tests and drops waiting ones. Latest first, so that waiting tests
+      // are dropped before running ones release their slot.
+      suite.whenComplete((result, failure) -> {
+         if (suite.isCancelled()) {
+            for (int i = tests.size() - 1; i >= 0; i--) {
+               tests.get(i).cancel(true);
+            }
+         }
+      });
+      return suite;
+   }
+
+   private synchronized Lane lane(String runnerType) {
+      return lanes.computeIfAbsent(runnerType, type -> new Lane(concurrency(type)));
+   }
+
+   private int concurrency(String runnerType) {
+      try {
+         Integer concurrency = concurrencies.get(TestRunnerType.valueOf(runnerType));
+         return concurrency != null ? concurrency : DEFAULT_RUNNER_CONCURRENCY;
+      } catch (IllegalArgumentException | NullPointerException e) {
+         return DEFAULT_RUNNER_CONCURRENCY;
+      }
+   }
+
+   /** Tests of one runner type: at most {@code concurrency} running, the others waiting in order. */
+   private class Lane {
+      private final int concurrency;
+      private final Deque<Runnable> waiting = new ArrayDeque<>();
+      private int running;
+      /** Slots released but not handed over yet, and whether a thread is already handing them over. */
+      private int freed;
+      private boolean draining;
+
+      private Lane(int concurrency) {
+         this.concurrency = concurrency;
+      }
+
+      private CompletableFuture<TestResult> submit(TestRequest request) {
+         CompletableFuture<TestResult> result = new CompletableFuture<>();
+         Runnable launch = () -> {
+            if (result.isDone()) {
+               // Cancelled while waiting for its turn.
+               released();
+               return;
+            }
+            CompletableFuture<TestResult> launched;
+            try {
+               launched = launcher.apply(request);
+            } catch (RuntimeException e) {
+               launched = new CompletableFuture<>();
+               launched.completeExceptionally(e);
+            }
+            launched.whenComplete((testResult, failure) -> released());
+            Futures.mirror(launched, result);
+            Futures.propagateCancellation(result, Collections.singletonList(launched));
+         };
+         boolean launchNow;
+         synchronized (this) {
+            launchNow = running < concurrency;
+            if (launchNow) {
+               running++;
+            } else {
+               waiting.add(launch);
+            }
+         }
+         if (launchNow) {
+            launch.run();
+         }
+         return result;
+      }
+
+      private void released() {
+         synchronized (this) {
+            freed++;
+            if (draining) {
+               // Launches completing synchronously end up here: let the loop below take their slot back.
+               return;
+            }
+            draining = true;
+         }
+         while (true) {
+            Runnable next;
+            synchronized (this) {
+               if (freed == 0) {
+                  draining = false;
+                  return;
+               }
+               freed--;
+               next = waiting.poll();
+               if (next == null) {
+                  running--;
+                  continue;
+               }
+            }
+            next.run();
+         }
+      }
+   }
+}
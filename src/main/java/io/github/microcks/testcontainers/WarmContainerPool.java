@@ -0,0 +1,331 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.lifecycle.Startable;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A pool keeping a fixed number of containers started ahead of time, in background, so that parallel tests needing
+ * an isolated Microcks get one without waiting for its startup. Containers come from a factory: configure base
+ * artifacts and secrets there so that they're imported before containers are handed out. A leased container is
+ * given back by closing its lease; it's then reset in background and made available again or, without reset
+ * action or if reset fails, stopped and replaced by a new one.
+ * @param <T> The type of pooled container, typically {@code MicrocksContainer} or {@code MicrocksContainersEnsemble}
+ * @author laurent
+ */
+public class WarmContainerPool<T extends Startable> implements AutoCloseable {
+
+   /** Puts a returned container back in the state it had when it was first handed out. */
+   @FunctionalInterface
+   public interface ResetAction<T> {
+      void reset(T container) throws Exception;
+   }
+
+   private static final Logger log = LoggerFactory.getLogger(WarmContainerPool.class);
+
+   public static final int DEFAULT_SIZE = 2;
+   public static final long DEFAULT_LEASE_TIMEOUT = 180000L;
+
+   private final int size;
+   private final Supplier<T> factory;
+   private final ResetAction<T> resetAction;
+   private final long leaseTimeout;
+
+   private final BlockingQueue<T> idle = new LinkedBlockingQueue<>();
+   private final Set<Lease<T>> activeLeases = ConcurrentHashMap.newKeySet();
+   private final ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("microcks-pool"));
+   private final long createdAt = System.nanoTime();
+
+   private final AtomicInteger starting = new AtomicInteger();
+   private final AtomicInteger consecutiveStartFailures = new AtomicInteger();
+   private final AtomicLong leases = new AtomicLong();
+   private final AtomicLong totalLeaseWait = new AtomicLong();
+   private final AtomicLong maxLeaseWait = new AtomicLong();
+   private final AtomicLong releasedLeaseTime = new AtomicLong();
+   private final AtomicLong startFailures = new AtomicLong();
+   private final AtomicLong resetFailures = new AtomicLong();
+
+   private volatile RuntimeException lastStartFailure;
+   private volatile boolean closed = false;
+
+   private WarmContainerPool(Builder<T> builder) {
+      this.size = builder.size;
+      this.factory = builder.factory;
+      this.resetAction = builder.resetAction;
+      this.leaseTimeout = builder.leaseTimeout;
+      for (int i = 0; i < size; i++) {
+         startOne();
+      }
+   }
+
+   /**
+    * Lease a started container, waiting up to the pool lease timeout for one to be available.
+    * @return A lease on a started container, to be closed once done with it
+    * @throws InterruptedException If interrupted while waiting
+    * @throws TimeoutException     If no container became available in time
+    */
+   public Lease<T> lease() throws InterruptedException, TimeoutException {
+      return lease(leaseTimeout, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Lease a started container, waiting for one to be available.
+    * @param timeout The maximum time to wait
+    * @param unit    The unit of timeout
+    * @return A lease on a started container, to be closed once done with it
+    * @throws InterruptedException If interrupted while waiting
+    * @throws TimeoutException     If no container became available in time
+    */
+   public Lease<T> lease(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+      if (closed) {
+         throw new IllegalStateException("Pool has been closed");
+      }
+      long start = System.nanoTime();
+      T container = idle.poll(timeout, unit);
+      long wait = System.nanoTime() - start;
+      if (container == null) {
+         TimeoutException te = new TimeoutException("No started container available after " + unit.toMillis(timeout) + " ms");
+         if (lastStartFailure != null) {
+            te.initCause(lastStartFailure);
+         }
+         throw te;
+      }
+      leases.incrementAndGet();
+      totalLeaseWait.addAndGet(wait);
+      maxLeaseWait.accumulateAndGet(wait, Math::max);
+      Lease<T> lease = new Lease<>(this, container, TimeUnit.NANOSECONDS.toMillis(wait));
+      activeLeases.add(lease);
+      return lease;
+   }
+
+   /** @return A snapshot of pool activity. */
+   public WarmPoolMetrics getMetrics() {
+      long now = System.nanoTime();
+      long leasedTime = releasedLeaseTime.get();
+      for (Lease<T> lease : activeLeases) {
+         leasedTime += now - lease.leasedAt;
+      }
+      long capacityTime = size * Math.max(1, now - createdAt);
+      long leaseCount = leases.get();
+      return new WarmPoolMetrics(size, idle.size(), activeLeases.size(), starting.get(), leaseCount,
+            leaseCount > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLeaseWait.get() / leaseCount) : 0,
+            TimeUnit.NANOSECONDS.toMillis(maxLeaseWait.get()), Math.min(1.0, (double) leasedTime / capacityTime),
+            startFailures.get(), resetFailures.get());
+   }
+
+   /** Stop idle containers and the ones being returned. Containers still leased are stopped when returned. */
+   @Override
+   public void close() {
+      closed = true;
+      T container;
+      while ((container = idle.poll()) != null) {
+         stopQuietly(container);
+      }
+      executor.shutdown();
+   }
+
+   private void startOne() {
+      if (closed) {
+         return;
+      }
+      starting.incrementAndGet();
+      executor.execute(() -> {
+         T container = null;
+         try {
+            container = factory.get();
+            container.start();
+            consecutiveStartFailures.set(0);
+            makeIdle(container);
+         } catch (RuntimeException re) {
+            log.warn("Pooled container failed to start", re);
+            lastStartFailure = re;
+            startFailures.incrementAndGet();
+            stopQuietly(container);
+            // Give up replacing after too many failures in a row: something is wrong with configuration or host.
+            if (consecutiveStartFailures.incrementAndGet() <= size) {
+               startOne();
+            }
+         } finally {
+            starting.decrementAndGet();
+         }
+      });
+   }
+
+   private void release(Lease<T> lease) {
+      activeLeases.remove(lease);
+      releasedLeaseTime.addAndGet(System.nanoTime() - lease.leasedAt);
+      T container = lease.container;
+      if (closed) {
+         stopQuietly(container);
+         return;
+      }
+      if (resetAction == null) {
+         executor.execute(() -> stopQuietly(container));
+         startOne();
+         return;
+      }
+      starting.incrementAndGet();
+      executor.execute(() -> {
+         try {
+            resetAction.reset(container);
+            makeIdle(container);
+         } catch (Exception e) {
+            log.warn("Pooled container failed to reset, replacing it", e);
+            resetFailures.incrementAndGet();
+            stopQuietly(container);
+            startOne();
+         } finally {
+            starting.decrementAndGet();
+         }
+      });
+   }
+
+   private void makeIdle(T container) {
+      idle.add(container);
+      // Pool may have been closed while container was starting.
+      if (closed && idle.remove(container)) {
+         stopQuietly(container);
+      }
+   }
+
+   private static void stopQuietly(Startable container) {
+      if (container == null) {
+         return;
+      }
+      try {
+         container.stop();
+      } catch (RuntimeException re) {
+         log.debug("Error while stopping pooled container", re);
+      }
+   }
+
+   /**
+    * A started container taken from the pool. Closing the lease gives the container back.
+    * @param <T> The type of pooled container
+    */
+   public static final class Lease<T extends Startable> implements AutoCloseable {
+
+      private final WarmContainerPool<T> pool;
+      private final T container;
+      private final long waitMillis;
+      private final long leasedAt = System.nanoTime();
+      private final AtomicBoolean closed = new AtomicBoolean();
+
+      private Lease(WarmContainerPool<T> pool, T container, long waitMillis) {
+         this.pool = pool;
+         this.container = container;
+         this.waitMillis = waitMillis;
+      }
+
+      /** @return The leased started container. */
+      public T get() {
+         return container;
+      }
+
+      /** @return How long lease waited for a container, in milliseconds. */
+      public long getWaitMillis() {
+         return waitMillis;
+      }
+
+      /** Give container back to the pool. Closing twice has no effect. */
+      @Override
+      public void close() {
+         if (closed.compareAndSet(false, true)) {
+            pool.release(this);
+         }
+      }
+   }
+
+   /**
+    * Builder for a WarmContainerPool.
+    * @param <T> The type of pooled container
+    */
+   public static class Builder<T extends Startable> {
+
+      private int size = DEFAULT_SIZE;
+      private Supplier<T> factory;
+      private ResetAction<T> resetAction;
+      private long leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+
+      /**
+       * @param size The number of containers kept started. Default is 2.
+       * @return this builder
+       */
+      public Builder<T> size(int size) {
+         this.size = size;
+         return this;
+      }
+
+      /**
+       * @param factory Creates configured but not started containers. Required.
+       * @return this builder
+       */
+      public Builder<T> factory(Supplier<T> factory) {
+         this.factory = factory;
+         return this;
+      }
+
+      /**
+       * @param resetAction Resets a returned container so that it can be leased again. Without it, returned
+       *                    containers are stopped and replaced.
+       * @return this builder
+       */
+      public Builder<T> resetAction(ResetAction<T> resetAction) {
+         this.resetAction = resetAction;
+         return this;
+      }
+
+      /**
+       * @param leaseTimeout Default time in milliseconds to wait for an available container. Default is 180000.
+       * @return this builder
+       */
+      public Builder<T> leaseTimeout(long leaseTimeout) {
+         this.leaseTimeout = leaseTimeout;
+         return this;
+      }
+
+      /**
+       * Build the pool and start filling it in background.
+       * @return A new pool
+       */
+      public WarmContainerPool<T> build() {
+         if (factory == null) {
+            throw new IllegalArgumentException("A container factory is required");
+         }
+         if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+         }
+         return new WarmContainerPool<>(this);
+      }
+   }
+}
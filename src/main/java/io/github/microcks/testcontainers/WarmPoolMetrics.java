@@ -0,0 +1,109 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import java.util.Locale;
+
+/**
+ * A point-in-time snapshot of a {@code WarmContainerPool}. Lease wait is the time a caller waited for a started
+ * container; utilization is the fraction of pool capacity that has been leased since pool creation.
+ * @author laurent
+ */
+public class WarmPoolMetrics {
+
+   private final int size;
+   private final int idle;
+   private final int leased;
+   private final int starting;
+   private final long leases;
+   private final long meanLeaseWait;
+   private final long maxLeaseWait;
+   private final double utilization;
+   private final long startFailures;
+   private final long resetFailures;
+
+   WarmPoolMetrics(int size, int idle, int leased, int starting, long leases, long meanLeaseWait, long maxLeaseWait,
+                   double utilization, long startFailures, long resetFailures) {
+      this.size = size;
+      this.idle = idle;
+      this.leased = leased;
+      this.starting = starting;
+      this.leases = leases;
+      this.meanLeaseWait = meanLeaseWait;
+      this.maxLeaseWait = maxLeaseWait;
+      this.utilization = utilization;
+      this.startFailures = startFailures;
+      this.resetFailures = resetFailures;
+   }
+
+   /** @return The number of containers the pool keeps. */
+   public int getSize() {
+      return size;
+   }
+
+   /** @return The number of started containers ready to be leased. */
+   public int getIdle() {
+      return idle;
+   }
+
+   /** @return The number of containers currently leased. */
+   public int getLeased() {
+      return leased;
+   }
+
+   /** @return The number of containers being started or reset in background. */
+   public int getStarting() {
+      return starting;
+   }
+
+   /** @return The total number of leases since pool creation. */
+   public long getLeases() {
+      return leases;
+   }
+
+   /** @return The mean lease wait in milliseconds. */
+   public long getMeanLeaseWait() {
+      return meanLeaseWait;
+   }
+
+   /** @return The max lease wait in milliseconds. */
+   public long getMaxLeaseWait() {
+      return maxLeaseWait;
+   }
+
+   /** @return The leased time divided by the pool capacity time since creation, between 0 and 1. */
+   public double getUtilization() {
+      return utilization;
+   }
+
+   /** @return The number of containers that failed to start. */
+   public long getStartFailures() {
+      return startFailures;
+   }
+
+   /** @return The number of returned containers that failed to reset and have been replaced. */
+   public long getResetFailures() {
+      return resetFailures;
+   }
+
+   @Override
+   public String toString() {
+      return "WarmPoolMetrics{size=" + size + ", idle=" + idle + ", leased=" + leased + ", starting=" + starting
+            + ", leases=" + leases + ", meanLeaseWait=" + meanLeaseWait + "ms, maxLeaseWait=" + maxLeaseWait
+            + "ms, utilization=" + String.format(Locale.ROOT, "%.2f", utilization) + ", startFailures=" + startFailures
+            + ", resetFailures=" + resetFailures + "}";
+   }
+}
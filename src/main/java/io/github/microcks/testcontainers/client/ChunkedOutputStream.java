@@ -0,0 +1,63 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes a request body of unknown length using the chunked transfer encoding. Every write becomes
+ * a chunk so this stream is expected to be wrapped into a buffered one.
+ * @author laurent
+ */
+class ChunkedOutputStream extends FilterOutputStream {
+
+   private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.ISO_8859_1);
+   private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+   ChunkedOutputStream(OutputStream out) {
+      super(out);
+   }
+
+   @Override
+   public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+   }
+
+   @Override
+   public void write(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+         return;
+      }
+      out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+      out.write(CRLF);
+      out.write(b, off, len);
+      out.write(CRLF);
+   }
+
+   /** Write the last chunk. Underlying stream is left open. */
+   void finish() throws IOException {
+      out.write(LAST_CHUNK);
+      out.flush();
+   }
+
+   @Override
+   public void close() {
+      // Underlying stream belongs to the connection.
+   }
+}
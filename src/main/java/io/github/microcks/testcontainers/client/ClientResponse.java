@@ -0,0 +1,120 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response received through a {@code MicrocksClient}. A response holds a pooled connection until it is
+ * closed: always use it within a try-with-resources block so that the connection goes back to the pool.
+ * @author laurent
+ */
+public class ClientResponse implements Closeable {
+
+   /** The amount of unread body we accept to skip on close for keeping the connection alive. */
+   private static final long DRAIN_LIMIT = 64 * 1024L;
+
+   private final MicrocksClient client;
+   private final PooledConnection connection;
+   private final int statusCode;
+   private final Map<String, String> headers;
+   private final ResponseBodyInputStream body;
+   private final boolean keepAlive;
+
+   private final AtomicBoolean closed = new AtomicBoolean(false);
+
+   ClientResponse(MicrocksClient client, PooledConnection connection, int statusCode, Map<String, String> headers,
+                  ResponseBodyInputStream body, boolean keepAlive) {
+      this.client = client;
+      this.connection = connection;
+      this.statusCode = statusCode;
+      this.headers = headers;
+      this.body = body;
+      this.keepAlive = keepAlive;
+   }
+
+   /** @return The Http status code of this response. */
+   public int getStatusCode() {
+      return statusCode;
+   }
+
+   /**
+    * Get a response header value.
+    * @param name The case-insensitive name of header
+    * @return The header value or null if not present.
+    */
+   public String getHeader(String name) {
+      return headers.get(name);
+   }
+
+   /**
+    * Get the response body as a stream. Closing this stream closes the response.
+    * @return The body stream, delimited to this response content.
+    */
+   public InputStream getBody() {
+      return new FilterInputStream(body) {
+         @Override
+         public void close() {
+            ClientResponse.this.close();
+         }
+      };
+   }
+
+   /**
+    * Read the whole body as an UTF-8 string and close this response.
+    * @return The body content
+    * @throws IOException If body cannot be read
+    */
+   public String getBodyAsString() throws IOException {
+      try {
+         ByteArrayOutputStream content = new ByteArrayOutputStream();
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = body.read(buffer, 0, buffer.length)) != -1) {
+            content.write(buffer, 0, read);
+         }
+         return new String(content.toByteArray(), StandardCharsets.UTF_8);
+      } finally {
+         close();
+      }
+   }
+
+   /** Release the underlying connection, giving it back to the pool if it can still be used. */
+   @Override
+   public void close() {
+      // Not synchronized so that draining does not pin a virtual thread to its carrier.
+      if (!closed.compareAndSet(false, true)) {
+         return;
+      }
+      boolean reusable = false;
+      if (keepAlive) {
+         try {
+            // Bytes already waiting after the body mean server sent more than it declared: don't reuse.
+            reusable = body.drain(DRAIN_LIMIT) && !connection.hasPendingInput();
+         } catch (IOException ioe) {
+            reusable = false;
+         }
+      }
+      client.release(connection, reusable);
+   }
+}
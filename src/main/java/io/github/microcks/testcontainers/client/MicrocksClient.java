@@ -0,0 +1,499 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal Http/1.1 client for talking to Microcks APIs. Connections are kept alive and pooled so that
+ * repeated calls (artifact imports, test result polling, dispatcher updates, ...) do not pay a new TCP
+ * handshake each time. The pool is bounded: when {@code maxConnections} requests are in flight, new ones wait
+ * up to {@code leaseTimeout} for a connection to be released.
+ * @author laurent
+ */
+public class MicrocksClient implements Closeable {
+
+   /**
+    * Get a SL4J logger.
+    */
+   private static final Logger log = LoggerFactory.getLogger(MicrocksClient.class);
+
+   public static final int DEFAULT_MAX_CONNECTIONS = 8;
+   public static final long DEFAULT_CONNECT_TIMEOUT = 5000L;
+   public static final long DEFAULT_READ_TIMEOUT = 30000L;
+   public static final long DEFAULT_KEEP_ALIVE_TIME = 15000L;
+   public static final long DEFAULT_LEASE_TIMEOUT = 60000L;
+
+   private static final String CRLF = "\r\n";
+   /** Bodies larger than this are written directly on the socket channel rather than through the buffered stream. */
+   private static final long CHANNEL_WRITE_THRESHOLD = 64 * 1024L;
+   private static final int CHUNK_SIZE = 64 * 1024;
+
+   private final String endpoint;
+   private final String host;
+   private final int port;
+   private final int maxConnections;
+   private final long connectTimeout;
+   private final long readTimeout;
+   private final long keepAliveTime;
+   private final long leaseTimeout;
+
+   private final Semaphore permits;
+   private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+   private final AtomicInteger active = new AtomicInteger();
+   private final AtomicLong leased = new AtomicLong();
+   private final AtomicLong created = new AtomicLong();
+
+   private volatile boolean closed = false;
+
+   private MicrocksClient(Builder builder, String endpoint) throws MalformedURLException {
+      URL url = new URL(endpoint);
+      if (!"http".equals(url.getProtocol())) {
+         throw new MalformedURLException("MicrocksClient only supports http endpoints: " + endpoint);
+      }
+      this.endpoint = endpoint;
+      this.host = url.getHost();
+      this.port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+      this.maxConnections = builder.maxConnections;
+      this.connectTimeout = builder.connectTimeout;
+      this.readTimeout = builder.readTimeout;
+      this.keepAliveTime = builder.keepAliveTime;
+      this.leaseTimeout = builder.leaseTimeout;
+      this.permits = new Semaphore(maxConnections, true);
+   }
+
+   /** @return The Http endpoint (scheme, host and port) this client is bound to. */
+   public String getEndpoint() {
+      return endpoint;
+   }
+
+   /**
+    * Issue a GET request.
+    * @param path The path (and query string) of resource, starting with '/'
+    * @return The response to close once consumed
+    * @throws IOException If connection or transmission fails
+    */
+   public ClientResponse get(String path) throws IOException {
+      return execute("GET", path, Collections.emptyMap(), null);
+   }
+
+   /**
+    * Issue a POST request.
+    * @param path The path (and query string) of resource, starting with '/'
+    * @param body The request body
+    * @return The response to close once consumed
+    * @throws IOException If connection or transmission fails
+    */
+   public ClientResponse post(String path, RequestBody body) throws IOException {
+      return execute("POST", path, Collections.emptyMap(), body);
+   }
+
+   /**
+    * Issue a PUT request.
+    * @param path The path (and query string) of resource, starting with '/'
+    * @param body The request body
+    * @return The response to close once consumed
+    * @throws IOException If connection or transmission fails
+    */
+   public ClientResponse put(String path, RequestBody body) throws IOException {
+      return execute("PUT", path, Collections.emptyMap(), body);
+   }
+
+   /**
+    * Issue a DELETE request.
+    * @param path The path (and query string) of resource, starting with '/'
+    * @return The response to close once consumed
+    * @throws IOException If connection or transmission fails
+    */
+   public ClientResponse delete(String path) throws IOException {
+      return execute("DELETE", path, Collections.emptyMap(), null);
+   }
+
+   /**
+    * Execute a request on a pooled connection. If a kept-alive connection happens to have been closed by
+    * the server while idle, an idempotent request is transparently replayed on a fresh connection when its body
+    * allows it. Other requests (like POST ones creating a test or importing an artifact) may have been processed
+    * by server before the connection dropped, so the error is surfaced instead.
+    * @param method The Http method
+    * @param path The path (and query string) of resource, starting with '/'
+    * @param headers Additional request headers
+    * @param body The request body, may be null
+    * @return The response to close once consumed
+    * @throws IOException If connection or transmission fails
+    */
+   public ClientResponse execute(String method, String path, Map<String, String> headers, RequestBody body) throws IOException {
+      acquirePermit();
+      boolean handedOver = false;
+      try {
+         PooledConnection connection = pollIdleConnection();
+         if (connection != null) {
+            try {
+               ClientResponse response = exchange(connection, method, path, headers, body);
+               handedOver = true;
+               return response;
+            } catch (StaleConnectionException sce) {
+               if (!isIdempotent(method) || (body != null && !body.isRepeatable())) {
+                  throw sce;
+               }
+               log.debug("Pooled connection to {} was stale, retrying on a new one", endpoint);
+            }
+         }
+         connection = openConnection();
+         ClientResponse response = exchange(connection, method, path, headers, body);
+         handedOver = true;
+         return response;
+      } finally {
+         if (!handedOver) {
+            active.decrementAndGet();
+            permits.release();
+         }
+      }
+   }
+
+   /** @return A snapshot of this client connection pool metrics. */
+   public PoolMetrics getPoolMetrics() {
+      int idle;
+      synchronized (idleConnections) {
+         idle = idleConnections.size();
+      }
+      return new PoolMetrics(maxConnections, active.get(), idle, leased.get(), created.get());
+   }
+
+   /** Close all the idle connections. Connections still leased are closed when their response is. */
+   @Override
+   public void close() {
+      closed = true;
+      synchronized (idleConnections) {
+         idleConnections.forEach(PooledConnection::close);
+         idleConnections.clear();
+      }
+   }
+
+   /** Give a connection back to the pool once its response has been consumed. */
+   void release(PooledConnection connection, boolean reusable) {
+      try {
+         if (reusable && !closed && connection.isOpen()) {
+            synchronized (idleConnections) {
+               idleConnections.push(connection);
+            }
+         } else {
+            connection.close();
+         }
+      } finally {
+         active.decrementAndGet();
+         permits.release();
+      }
+   }
+
+   private void acquirePermit() throws IOException {
+      if (closed) {
+         throw new IOException("MicrocksClient for " + endpoint + " has been closed");
+      }
+      try {
+         if (!permits.tryAcquire(leaseTimeout, TimeUnit.MILLISECONDS)) {
+            throw new IOException("Timeout waiting for a connection to " + endpoint + " after " + leaseTimeout + " ms");
+         }
+      } catch (InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for a connection to " + endpoint);
+      }
+      active.incrementAndGet();
+      leased.incrementAndGet();
+   }
+
+   private PooledConnection pollIdleConnection() {
+      long now = System.currentTimeMillis();
+      synchronized (idleConnections) {
+         // Evict connections that have been idle for too long, oldest are at the tail.
+         while (!idleConnections.isEmpty() && idleConnections.peekLast().isExpired(now, keepAliveTime)) {
+            idleConnections.pollLast().close();
+         }
+         PooledConnection connection;
+         while ((connection = idleConnections.poll()) != null) {
+            if (connection.isOpen()) {
+               return connection;
+            }
+            connection.close();
+         }
+      }
+      return null;
+   }
+
+   private PooledConnection openConnection() throws IOException {
+      // Use a channel backed socket so that large bodies can be transferred without copies.
+      SocketChannel channel = SocketChannel.open();
+      try {
+         Socket socket = channel.socket();
+         socket.setTcpNoDelay(true);
+         socket.setKeepAlive(true);
+         socket.connect(new InetSocketAddress(host, port), (int) connectTimeout);
+         socket.setSoTimeout((int) readTimeout);
+         created.incrementAndGet();
+         return new PooledConnection(channel);
+      } catch (IOException ioe) {
+         channel.close();
+         throw ioe;
+      }
+   }
+
+   private ClientResponse exchange(PooledConnection connection, String method, String path, Map<String, String> headers,
+                                   RequestBody body) throws IOException {
+      connection.markUsed();
+      boolean responseStarted = false;
+      try {
+         writeRequest(connection, method, path, headers, body);
+
+         String statusLine = ResponseBodyInputStream.readLine(connection.getInputStream());
+         if (statusLine == null) {
+            throw new EOFException("Connection closed by " + endpoint + " before any response");
+         }
+         responseStarted = true;
+         int statusCode = parseStatusCode(statusLine);
+         Map<String, String> responseHeaders = readHeaders(connection);
+         // Skip interim 1xx responses.
+         while (statusCode >= 100 && statusCode < 200) {
+            statusLine = ResponseBodyInputStream.readLine(connection.getInputStream());
+            if (statusLine == null) {
+               throw new EOFException("Connection closed by " + endpoint + " after an interim response");
+            }
+            statusCode = parseStatusCode(statusLine);
+            responseHeaders = readHeaders(connection);
+         }
+
+         boolean keepAlive = statusLine.startsWith("HTTP/1.1") && !"close".equalsIgnoreCase(responseHeaders.get("Connection"));
+         ResponseBodyInputStream responseBody;
+         String transferEncoding = responseHeaders.get("Transfer-Encoding");
+         String contentLength = responseHeaders.get("Content-Length");
+         if ("HEAD".equals(method) || statusCode == 204 || statusCode == 304) {
+            responseBody = new ResponseBodyInputStream.Empty(connection.getInputStream());
+         } else if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            responseBody = new ResponseBodyInputStream.Chunked(connection.getInputStream());
+         } else if (contentLength != null) {
+            responseBody = new ResponseBodyInputStream.FixedLength(connection.getInputStream(), parseContentLength(contentLength));
+         } else {
+            responseBody = new ResponseBodyInputStream.UntilClose(connection.getInputStream());
+            keepAlive = false;
+         }
+         return new ClientResponse(this, connection, statusCode, responseHeaders, responseBody, keepAlive);
+      } catch (IOException | RuntimeException e) {
+         connection.close();
+         if (!responseStarted && connection.isReused() && e instanceof IOException && !(e instanceof InterruptedIOException)
+               && !(e instanceof MultipartBody.LengthMismatchException)) {
+            throw new StaleConnectionException(e);
+         }
+         throw e;
+      }
+   }
+
+   private void writeRequest(PooledConnection connection, String method, String path, Map<String, String> headers,
+                             RequestBody body) throws IOException {
+      StringBuilder head = new StringBuilder(256);
+      head.append(method).append(' ').append(path).append(" HTTP/1.1").append(CRLF);
+      head.append("Host: ").append(host).append(':').append(port).append(CRLF);
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+         head.append(header.getKey()).append(": ").append(header.getValue()).append(CRLF);
+      }
+      if (!headers.containsKey("Accept")) {
+         head.append("Accept: ").append(RequestBody.APPLICATION_JSON).append(CRLF);
+      }
+      long contentLength = body != null ? body.getContentLength() : 0;
+      if (body != null) {
+         head.append("Content-Type: ").append(body.getContentType()).append(CRLF);
+         if (contentLength < 0) {
+            head.append("Transfer-Encoding: chunked").append(CRLF);
+         } else {
+            head.append("Content-Length: ").append(contentLength).append(CRLF);
+         }
+      } else if ("POST".equals(method) || "PUT".equals(method)) {
+         head.append("Content-Length: 0").append(CRLF);
+      }
+      head.append(CRLF);
+
+      OutputStream out = connection.getOutputStream();
+      out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+      if (body != null) {
+         if (contentLength < 0) {
+            ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+            OutputStream chunkBuffer = new BufferedOutputStream(chunked, CHUNK_SIZE);
+            body.writeTo(chunkBuffer);
+            chunkBuffer.flush();
+            chunked.finish();
+         } else if (contentLength > CHANNEL_WRITE_THRESHOLD) {
+            out.flush();
+            body.writeTo(connection.getChannel());
+         } else {
+            body.writeTo(out);
+         }
+      }
+      out.flush();
+   }
+
+   private Map<String, String> readHeaders(PooledConnection connection) throws IOException {
+      Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      String line;
+      while (!(line = readHeaderLine(connection)).isEmpty()) {
+         int colon = line.indexOf(':');
+         if (colon > 0) {
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            headers.merge(name, value, (previous, next) -> previous + "," + next);
+         }
+      }
+      return headers;
+   }
+
+   private String readHeaderLine(PooledConnection connection) throws IOException {
+      String line = ResponseBodyInputStream.readLine(connection.getInputStream());
+      if (line == null) {
+         throw new EOFException("Connection closed by " + endpoint + " while reading response headers");
+      }
+      return line;
+   }
+
+   private static boolean isIdempotent(String method) {
+      return "GET".equals(method) || "HEAD".equals(method) || "PUT".equals(method) || "DELETE".equals(method);
+   }
+
+   private static long parseContentLength(String contentLength) throws IOException {
+      try {
+         long length = Long.parseLong(contentLength.trim());
+         if (length >= 0) {
+            return length;
+         }
+      } catch (NumberFormatException nfe) {
+         // Reported below.
+      }
+      throw new IOException("Malformed Content-Length header: " + contentLength);
+   }
+
+   private static int parseStatusCode(String statusLine) throws IOException {
+      // Status line is like 'HTTP/1.1 201 Created'.
+      String[] parts = statusLine.split(" ", 3);
+      if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+         throw new IOException("Malformed Http status line: " + statusLine);
+      }
+      try {
+         return Integer.parseInt(parts[1]);
+      } catch (NumberFormatException nfe) {
+         throw new IOException("Malformed Http status line: " + statusLine);
+      }
+   }
+
+   /** Signals a pooled connection that was closed by server while idling. */
+   private static class StaleConnectionException extends IOException {
+
+      private static final long serialVersionUID = -2459872319421876045L;
+
+      StaleConnectionException(Throwable cause) {
+         super("Stale pooled connection", cause);
+      }
+   }
+
+   /**
+    * Builder/Fluent API for creating MicrocksClient instances.
+    */
+   public static class Builder {
+      private String endpoint;
+      private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+      private long connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+      private long readTimeout = DEFAULT_READ_TIMEOUT;
+      private long keepAliveTime = DEFAULT_KEEP_ALIVE_TIME;
+      private long leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+
+      public Builder endpoint(String endpoint) {
+         this.endpoint = endpoint;
+         return this;
+      }
+
+      public Builder maxConnections(int maxConnections) {
+         this.maxConnections = maxConnections;
+         return this;
+      }
+
+      public Builder connectTimeout(long connectTimeout) {
+         this.connectTimeout = connectTimeout;
+         return this;
+      }
+
+      public Builder readTimeout(long readTimeout) {
+         this.readTimeout = readTimeout;
+         return this;
+      }
+
+      /**
+       * Set how long a connection can stay idle in the pool before being evicted. Keep it below the server
+       * side keep-alive timeout so that we rarely hit a connection closed by Microcks.
+       */
+      public Builder keepAliveTime(long keepAliveTime) {
+         this.keepAliveTime = keepAliveTime;
+         return this;
+      }
+
+      public Builder leaseTimeout(long leaseTimeout) {
+         this.leaseTimeout = leaseTimeout;
+         return this;
+      }
+
+      /**
+       * Build a new MicrocksClient instance after having initialized the different properties.
+       * @return A new MicrocksClient instance
+       * @throws MalformedURLException If endpoint is not a valid http url
+       */
+      public MicrocksClient build() throws MalformedURLException {
+         if (endpoint == null) {
+            throw new IllegalStateException("MicrocksClient endpoint is mandatory");
+         }
+         return build(endpoint);
+      }
+
+      /**
+       * Build a new MicrocksClient instance bound to provided endpoint. The endpoint is not kept in this builder
+       * so that it can be reused for clients of different containers.
+       * @param endpoint The Http endpoint (scheme, host and port) of Microcks
+       * @return A new MicrocksClient instance
+       * @throws MalformedURLException If endpoint is not a valid http url
+       */
+      public MicrocksClient build(String endpoint) throws MalformedURLException {
+         if (maxConnections < 1) {
+            throw new IllegalStateException("MicrocksClient maxConnections must be positive");
+         }
+         return new MicrocksClient(this, endpoint);
+      }
+   }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single file multipart/form-data body that is streamed on the wire instead of being buffered on heap.
+ * The Content-Length is computed upfront from the part headers and the content size so that the upload
+ * can go in fixed-length mode. Files are sent using {@code FileChannel.transferTo()} when the connection allows it,
+ * streams are copied through a large direct buffer. Exactly the declared number of bytes is sent: a content that
+ * turns out shorter or longer fails the write with an IOException and the connection is not reused.
+ * @author laurent
+ */
+public class MultipartBody implements RequestBody {
+
+   private static final String LINE_FEED = "\r\n";
+   private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
+
+   private final String boundary;
+   private final String filename;
+   private final byte[] preamble;
+   private final byte[] epilogue;
+   private final long partLength;
+
+   private final Path file;
+   private final InputStream stream;
+   private final ByteBuffer buffer;
+
+   private long bytesWritten;
+
+   private MultipartBody(String fieldName, String filename, long partLength, Path file, InputStream stream, ByteBuffer buffer) {
+      // Creates a unique boundary based on time stamp
+      this.boundary = "===" + System.currentTimeMillis() + "===";
+      this.filename = filename;
+      this.partLength = partLength;
+      this.file = file;
+      this.stream = stream;
+      this.buffer = buffer;
+      this.preamble = ("--" + boundary + LINE_FEED
+            + "Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\"" + filename + "\"" + LINE_FEED
+            + "Content-Type: application/octet-stream" + LINE_FEED
+            + "Content-Transfer-Encoding: binary" + LINE_FEED
+            + LINE_FEED).getBytes(StandardCharsets.UTF_8);
+      this.epilogue = (LINE_FEED + "--" + boundary + "--" + LINE_FEED).getBytes(StandardCharsets.UTF_8);
+   }
+
+   /**
+    * Build a body streaming a file content.
+    * @param fieldName The name of form field
+    * @param file The path of file to upload
+    * @return A new repeatable body
+    * @throws IOException If file size cannot be read
+    */
+   public static MultipartBody ofFile(String fieldName, Path file) throws IOException {
+      return new MultipartBody(fieldName, file.getFileName().toString(), Files.size(file), file, null, null);
+   }
+
+   /**
+    * Build a body streaming an input stream content. The stream is consumed but not closed.
+    * @param fieldName The name of form field
+    * @param filename The name of file to declare in part headers
+    * @param stream The content to upload
+    * @param length The exact number of bytes available in stream, -1 if unknown (chunked transfer encoding is then
+    *               used). Writing fails if stream does not hold exactly this number of bytes.
+    * @return A new body that cannot be replayed
+    */
+   public static MultipartBody ofStream(String fieldName, String filename, InputStream stream, long length) {
+      return new MultipartBody(fieldName, filename, length, null, stream, null);
+   }
+
+   /**
+    * Build a body streaming the remaining bytes of a buffer. Buffer position is left untouched.
+    * @param fieldName The name of form field
+    * @param filename The name of file to declare in part headers
+    * @param buffer The content to upload
+    * @return A new repeatable body
+    */
+   public static MultipartBody ofBuffer(String fieldName, String filename, ByteBuffer buffer) {
+      return new MultipartBody(fieldName, filename, buffer.remaining(), null, null, buffer);
+   }
+
+   /** @return The name of uploaded file. */
+   public String getFilename() {
+      return filename;
+   }
+
+   /** @return The number of bytes produced by the last write of this body. */
+   public long getBytesWritten() {
+      return bytesWritten;
+   }
+
+   @Override
+   public String getContentType() {
+      return "multipart/form-data; boundary=" + boundary;
+   }
+
+   @Override
+   public long getContentLength() {
+      return partLength < 0 ? -1 : preamble.length + partLength + epilogue.length;
+   }
+
+   @Override
+   public boolean isRepeatable() {
+      return stream == null;
+   }
+
+   @Override
+   public void writeTo(OutputStream out) throws IOException {
+      bytesWritten = 0;
+      out.write(preamble);
+      bytesWritten += preamble.length;
+      if (buffer != null) {
+         writeFully(Channels.newChannel(out), buffer.duplicate());
+      } else if (file != null) {
+         try (InputStream is = Files.newInputStream(file)) {
+            copy(is, out);
+         }
+      } else {
+         copy(stream, out);
+      }
+      out.write(epilogue);
+      bytesWritten += epilogue.length;
+   }
+
+   @Override
+   public void writeTo(WritableByteChannel channel) throws IOException {
+      bytesWritten = 0;
+      writeFully(channel, ByteBuffer.wrap(preamble));
+      if (buffer != null) {
+         writeFully(channel, buffer.duplicate());
+      } else if (file != null) {
+         try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (fileChannel.size() != partLength) {
+               throw new LengthMismatchException("File " + file + " size changed from " + partLength
+                     + " to " + fileChannel.size() + " bytes");
+            }
+            long position = 0;
+            while (position < partLength) {
+               long transferred = fileChannel.transferTo(position, partLength - position, channel);
+               if (transferred <= 0) {
+                  // Target does not support direct transfer, finish through a direct buffer.
+                  fileChannel.position(position);
+                  copy(fileChannel, channel, partLength - position);
+                  break;
+               }
+               position += transferred;
+               bytesWritten += transferred;
+            }
+         }
+      } else {
+         copy(Channels.newChannel(stream), channel, partLength);
+      }
+      writeFully(channel, ByteBuffer.wrap(epilogue));
+   }
+
+   private void copy(InputStream source, OutputStream target) throws IOException {
+      byte[] chunk = new byte[8192];
+      long remaining = partLength;
+      int read;
+      while (remaining != 0 && (read = source.read(chunk, 0, limit(chunk.length, remaining))) != -1) {
+         target.write(chunk, 0, read);
+         bytesWritten += read;
+         remaining -= remaining > 0 ? read : 0;
+      }
+      checkFullyRead(remaining, partLength, remaining == 0 && source.read() != -1);
+   }
+
+   private void copy(ReadableByteChannel source, WritableByteChannel target, long length) throws IOException {
+      ByteBuffer transferBuffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+      long remaining = length;
+      transferBuffer.limit(limit(transferBuffer.capacity(), remaining));
+      while (remaining != 0 && source.read(transferBuffer) != -1) {
+         transferBuffer.flip();
+         remaining -= remaining > 0 ? transferBuffer.remaining() : 0;
+         writeFully(target, transferBuffer);
+         transferBuffer.clear();
+         transferBuffer.limit(limit(transferBuffer.capacity(), remaining));
+      }
+      checkFullyRead(remaining, length, remaining == 0 && source.read(ByteBuffer.allocate(1)) != -1);
+   }
+
+   /** Size of next read: the whole buffer if length is unknown (negative remaining), at most remaining otherwise. */
+   private static int limit(int capacity, long remaining) {
+      return remaining < 0 ? capacity : (int) Math.min(capacity, remaining);
+   }
+
+   private static void checkFullyRead(long remaining, long length, boolean moreAvailable) throws IOException {
+      if (remaining > 0) {
+         throw new LengthMismatchException("Content ended " + remaining + " bytes before its declared length of "
+               + length + " bytes");
+      }
+      if (moreAvailable) {
+         throw new LengthMismatchException("Content is longer than its declared length of " + length + " bytes");
+      }
+   }
+
+   private void writeFully(WritableByteChannel channel, ByteBuffer source) throws IOException {
+      while (source.hasRemaining()) {
+         bytesWritten += channel.write(source);
+      }
+   }
+
+   /** Raised when content does not match its declared length: retrying on another connection would not help. */
+   static class LengthMismatchException extends IOException {
+
+      private static final long serialVersionUID = 4183452317465310277L;
+
+      LengthMismatchException(String message) {
+         super(message);
+      }
+   }
+}
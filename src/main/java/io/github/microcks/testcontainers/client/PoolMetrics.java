@@ -0,0 +1,69 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+/**
+ * A point-in-time snapshot of a {@code MicrocksClient} connection pool. Comparing {@code leased} and
+ * {@code created} tells how many requests have been served on a kept-alive connection.
+ * @author laurent
+ */
+public class PoolMetrics {
+
+   private final int maxConnections;
+   private final int active;
+   private final int idle;
+   private final long leased;
+   private final long created;
+
+   PoolMetrics(int maxConnections, int active, int idle, long leased, long created) {
+      this.maxConnections = maxConnections;
+      this.active = active;
+      this.idle = idle;
+      this.leased = leased;
+      this.created = created;
+   }
+
+   /** @return The maximum number of connections the pool will hand out at the same time. */
+   public int getMaxConnections() {
+      return maxConnections;
+   }
+
+   /** @return The number of connections currently leased and carrying a request. */
+   public int getActive() {
+      return active;
+   }
+
+   /** @return The number of open connections parked in the pool and ready for reuse. */
+   public int getIdle() {
+      return idle;
+   }
+
+   /** @return The total number of connection leases since pool creation. */
+   public long getLeased() {
+      return leased;
+   }
+
+   /** @return The total number of physical connections opened since pool creation. */
+   public long getCreated() {
+      return created;
+   }
+
+   @Override
+   public String toString() {
+      return "PoolMetrics{max=" + maxConnections + ", active=" + active + ", idle=" + idle
+            + ", leased=" + leased + ", created=" + created + "}";
+   }
+}
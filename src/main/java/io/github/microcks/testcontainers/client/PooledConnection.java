@@ -0,0 +1,96 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A physical Http/1.1 connection that can be parked in a {@code MicrocksClient} pool between requests.
+ * @author laurent
+ */
+class PooledConnection implements Closeable {
+
+   private static final int BUFFER_SIZE = 8192;
+
+   private final SocketChannel channel;
+   private final Socket socket;
+   private final InputStream in;
+   private final OutputStream out;
+
+   private long lastUsedAt;
+   private int requestCount;
+
+   PooledConnection(SocketChannel channel) throws IOException {
+      this.channel = channel;
+      this.socket = channel.socket();
+      this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+      this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+      this.lastUsedAt = System.currentTimeMillis();
+   }
+
+   InputStream getInputStream() {
+      return in;
+   }
+
+   OutputStream getOutputStream() {
+      return out;
+   }
+
+   /** @return The raw channel for writing large bodies. Buffered output must have been flushed before. */
+   SocketChannel getChannel() {
+      return channel;
+   }
+
+   /** Mark the start of a new exchange on this connection. */
+   void markUsed() {
+      requestCount++;
+      lastUsedAt = System.currentTimeMillis();
+   }
+
+   /** @return true if this connection already carried a previous exchange. */
+   boolean isReused() {
+      return requestCount > 1;
+   }
+
+   /** @return true if some bytes have been received and not read yet. */
+   boolean hasPendingInput() throws IOException {
+      return in.available() > 0;
+   }
+
+   boolean isExpired(long now, long keepAliveTime) {
+      return now - lastUsedAt > keepAliveTime;
+   }
+
+   boolean isOpen() {
+      return !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+   }
+
+   @Override
+   public void close() {
+      try {
+         channel.close();
+      } catch (IOException ioe) {
+         // Nothing we can do more.
+      }
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The body of a request sent through a {@code MicrocksClient}.
+ * @author laurent
+ */
+public interface RequestBody {
+
+   /** Media type for Json payloads. */
+   String APPLICATION_JSON = "application/json";
+
+   /**
+    * Get the media type of this body.
+    * @return The value for Content-Type header
+    */
+   String getContentType();
+
+   /**
+    * Get the exact length in bytes of this body.
+    * @return The number of bytes {@code writeTo()} will produce, -1 if unknown (body is then sent chunked).
+    */
+   long getContentLength();
+
+   /**
+    * Write this body content on the wire.
+    * @param out The stream to write content to
+    * @throws IOException If content cannot be written
+    */
+   void writeTo(OutputStream out) throws IOException;
+
+   /**
+    * Write this body content directly on a connection channel. Used for large bodies; implementations
+    * may override it to avoid copying content on heap.
+    * @param channel The channel to write content to
+    * @throws IOException If content cannot be written
+    */
+   default void writeTo(WritableByteChannel channel) throws IOException {
+      OutputStream out = Channels.newOutputStream(channel);
+      writeTo(out);
+      out.flush();
+   }
+
+   /**
+    * Tell if this body can be written many times (and thus if a request can be safely retried).
+    * @return true by default.
+    */
+   default boolean isRepeatable() {
+      return true;
+   }
+
+   /**
+    * Build a body from raw bytes.
+    * @param contentType The media type of bytes
+    * @param content The bytes to send
+    * @return A new repeatable body
+    */
+   static RequestBody of(String contentType, byte[] content) {
+      return new RequestBody() {
+         @Override
+         public String getContentType() {
+            return contentType;
+         }
+
+         @Override
+         public long getContentLength() {
+            return content.length;
+         }
+
+         @Override
+         public void writeTo(OutputStream out) throws IOException {
+            out.write(content);
+         }
+      };
+   }
+
+   /**
+    * Build a Json body from its string representation.
+    * @param json The Json payload
+    * @return A new repeatable body
+    */
+   static RequestBody json(String json) {
+      return of(APPLICATION_JSON, json.getBytes(StandardCharsets.UTF_8));
+   }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base class for streams delimiting a response body on a kept-alive connection. Such streams never close
+ * the underlying connection stream: they just tell if the body has been entirely consumed so that the
+ * connection can be safely reused.
+ * @author laurent
+ */
+abstract class ResponseBodyInputStream extends InputStream {
+
+   protected final InputStream in;
+
+   private boolean failed = false;
+
+   protected ResponseBodyInputStream(InputStream in) {
+      this.in = in;
+   }
+
+   /** @return true if the whole body has been read from the wire. */
+   abstract boolean isComplete();
+
+   /** Read body bytes, with the same contract as {@link InputStream#read(byte[], int, int)}. */
+   abstract int readBody(byte[] b, int off, int len) throws IOException;
+
+   /**
+    * Try consuming the rest of body so that connection can be reused.
+    * @param limit The maximum number of bytes we accept to skip
+    * @return true if body is now complete, false if limit has been reached before.
+    * @throws IOException If reading from the wire fails
+    */
+   boolean drain(long limit) throws IOException {
+      if (failed) {
+         // Framing is lost after an error: reading more could block till timeout or yield garbage.
+         return false;
+      }
+      byte[] buffer = new byte[4096];
+      long drained = 0;
+      while (!isComplete() && drained <= limit) {
+         int read = read(buffer, 0, buffer.length);
+         if (read == -1) {
+            break;
+         }
+         drained += read;
+      }
+      return isComplete();
+   }
+
+   @Override
+   public final int read(byte[] b, int off, int len) throws IOException {
+      try {
+         return readBody(b, off, len);
+      } catch (IOException ioe) {
+         failed = true;
+         throw ioe;
+      }
+   }
+
+   @Override
+   public int read() throws IOException {
+      byte[] single = new byte[1];
+      int read = read(single, 0, 1);
+      return read == -1 ? -1 : single[0] & 0xff;
+   }
+
+   @Override
+   public void close() {
+      // Underlying stream belongs to the connection.
+   }
+
+   /** Read a CRLF terminated line from a raw stream. */
+   static String readLine(InputStream in) throws IOException {
+      StringBuilder line = new StringBuilder();
+      int b;
+      while ((b = in.read()) != -1) {
+         if (b == '\n') {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+               line.setLength(length - 1);
+            }
+            return line.toString();
+         }
+         line.append((char) b);
+         if (line.length() > 65536) {
+            throw new IOException("Http line is too long");
+         }
+      }
+      if (line.length() == 0) {
+         return null;
+      }
+      throw new EOFException("Unexpected end of stream while reading line");
+   }
+
+   /** A body delimited by a Content-Length header. */
+   static class FixedLength extends ResponseBodyInputStream {
+
+      private long remaining;
+
+      FixedLength(InputStream in, long length) {
+         super(in);
+         this.remaining = length;
+      }
+
+      @Override
+      boolean isComplete() {
+         return remaining == 0;
+      }
+
+      @Override
+      int readBody(byte[] b, int off, int len) throws IOException {
+         if (remaining == 0) {
+            return -1;
+         }
+         int read = in.read(b, off, (int) Math.min(len, remaining));
+         if (read == -1) {
+            throw new EOFException("Connection closed with " + remaining + " bytes of body left");
+         }
+         remaining -= read;
+         return read;
+      }
+
+      @Override
+      public int available() throws IOException {
+         return (int) Math.min(in.available(), remaining);
+      }
+   }
+
+   /** A body using the chunked transfer encoding. */
+   static class Chunked extends ResponseBodyInputStream {
+
+      private long chunkRemaining = 0;
+      private boolean complete = false;
+
+      Chunked(InputStream in) {
+         super(in);
+      }
+
+      @Override
+      boolean isComplete() {
+         return complete;
+      }
+
+      @Override
+      int readBody(byte[] b, int off, int len) throws IOException {
+         if (complete) {
+            return -1;
+         }
+         if (chunkRemaining == 0) {
+            nextChunk();
+            if (complete) {
+               return -1;
+            }
+         }
+         int read = in.read(b, off, (int) Math.min(len, chunkRemaining));
+         if (read == -1) {
+            throw new EOFException("Connection closed in the middle of a chunk");
+         }
+         chunkRemaining -= read;
+         if (chunkRemaining == 0) {
+            // Consume the CRLF ending chunk data.
+            readLine(in);
+         }
+         return read;
+      }
+
+      private void nextChunk() throws IOException {
+         String sizeLine = readLine(in);
+         if (sizeLine == null) {
+            throw new EOFException("Connection closed while expecting a chunk");
+         }
+         int extension = sizeLine.indexOf(';');
+         String size = (extension != -1 ? sizeLine.substring(0, extension) : sizeLine).trim();
+         try {
+            chunkRemaining = Long.parseLong(size, 16);
+         } catch (NumberFormatException nfe) {
+            throw new IOException("Malformed chunk size: " + sizeLine);
+         }
+         if (chunkRemaining < 0) {
+            throw new IOException("Malformed chunk size: " + sizeLine);
+         }
+         if (chunkRemaining == 0) {
+            // Last chunk: skip optional trailers till the empty line.
+            String trailer;
+            do {
+               trailer = readLine(in);
+            } while (trailer != null && !trailer.isEmpty());
+            complete = true;
+         }
+      }
+   }
+
+   /** A body delimited by the connection closing. Such connection can never be reused. */
+   static class UntilClose extends ResponseBodyInputStream {
+
+      UntilClose(InputStream in) {
+         super(in);
+      }
+
+      @Override
+      boolean isComplete() {
+         return false;
+      }
+
+      @Override
+      int readBody(byte[] b, int off, int len) throws IOException {
+         return in.read(b, off, len);
+      }
+   }
+
+   /** An empty body (for HEAD requests or 204 and 304 responses). */
+   static class Empty extends ResponseBodyInputStream {
+
+      Empty(InputStream in) {
+         super(in);
+      }
+
+      @Override
+      boolean isComplete() {
+         return true;
+      }
+
+      @Override
+      int readBody(byte[] b, int off, int len) {
+         return -1;
+      }
+   }
+}
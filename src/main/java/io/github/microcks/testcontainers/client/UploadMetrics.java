@@ -0,0 +1,64 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and timing of an artifact upload, measured from the request start till Microcks response.
+ * @author laurent
+ */
+public class UploadMetrics {
+
+   private final String artifactName;
+   private final long bytes;
+   private final long durationNanos;
+
+   /**
+    * Create UploadMetrics.
+    * @param artifactName The name of uploaded artifact
+    * @param bytes The number of bytes sent (whole multipart body)
+    * @param durationNanos The upload duration in nanoseconds
+    */
+   public UploadMetrics(String artifactName, long bytes, long durationNanos) {
+      this.artifactName = artifactName;
+      this.bytes = bytes;
+      this.durationNanos = durationNanos;
+   }
+
+   public String getArtifactName() {
+      return artifactName;
+   }
+
+   public long getBytes() {
+      return bytes;
+   }
+
+   public long getDurationMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+   }
+
+   /** @return The upload throughput in bytes per second. */
+   public double getBytesPerSecond() {
+      return durationNanos == 0 ? 0 : bytes * 1_000_000_000d / durationNanos;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("UploadMetrics{artifact=%s, bytes=%d, duration=%dms, throughput=%.0fB/s}",
+            artifactName, bytes, getDurationMillis(), getBytesPerSecond());
+   }
+}
@@ -2,12 +2,22 @@ package io.github.microcks.testcontainers.model;
 
 import io.github.microcks.testcontainers.model.dispatchers.*;
 
+import java.util.Objects;
+
 public interface Dispatcher {
 
     Type getType();
 
     String getRules();
 
+    /**
+     * A hash of dispatcher type and rules that is stable across JVMs, so that applying again the same dispatcher
+     * can be detected cheaply. Built-in dispatchers compute it once, along with their rules.
+     */
+    default int getRulesHash() {
+        return 31 * getType().name().hashCode() + Objects.hashCode(getRules());
+    }
+
     static JsonBodyDispatcher.ExpressionBuilder jsonBody(String expression) {
         return new JsonBodyDispatcher.ExpressionBuilder(expression);
     }
@@ -0,0 +1,54 @@
+package io.github.microcks.testcontainers.model;
+
+import java.util.Objects;
+
+public class OperationRef {
+
+    private final String service;
+    private final String version;
+    private final String operationName;
+
+    public OperationRef(String service, String version, String operationName) {
+        this.service = Objects.requireNonNull(service, "service");
+        this.version = Objects.requireNonNull(version, "version");
+        this.operationName = Objects.requireNonNull(operationName, "operationName");
+    }
+
+    public static OperationRef of(String service, String version, String operationName) {
+        return new OperationRef(service, version, operationName);
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OperationRef)) {
+            return false;
+        }
+        OperationRef other = (OperationRef) o;
+        return service.equals(other.service) && version.equals(other.version) && operationName.equals(other.operationName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(service, version, operationName);
+    }
+
+    @Override
+    public String toString() {
+        return service + ":" + version + " " + operationName;
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.microcks.testcontainers.model;
 
+import java.util.Objects;
+
 public class OperationUpdateRequest {
     private final String dispatcher;
     private final String dispatcherRules;
@@ -9,6 +11,11 @@ public class OperationUpdateRequest {
         this.dispatcherRules = dispatcher.getRules();
     }
 
+    public OperationUpdateRequest(String dispatcher, String dispatcherRules) {
+        this.dispatcher = dispatcher;
+        this.dispatcherRules = dispatcherRules;
+    }
+
     public String getDispatcher() {
         return dispatcher;
     }
@@ -16,4 +23,9 @@ public class OperationUpdateRequest {
     public String getDispatcherRules() {
         return dispatcherRules;
     }
+
+    public boolean hasSameDispatching(OperationUpdateRequest other) {
+        return other != null && Objects.equals(dispatcher, other.dispatcher)
+                && Objects.equals(dispatcherRules, other.dispatcherRules);
+    }
 }
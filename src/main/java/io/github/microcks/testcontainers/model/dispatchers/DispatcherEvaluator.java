@@ -0,0 +1,326 @@
+package io.github.microcks.testcontainers.model.dispatchers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
+import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonPointer;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates a dispatcher in-process the way Microcks does, telling which response a request selects without any
+ * container round trip. {@code JSON_BODY} dispatchers give a response name; {@code URI_PARTS}, {@code URI_PARAMS}
+ * and {@code URI_ELEMENTS} dispatchers give the dispatch criteria (like {@code /name=Eclair?size=L}) a response
+ * must have; {@code FALLBACK} dispatchers give their fallback response when the one selected by their inner
+ * dispatcher is not known. Dispatcher rules are parsed once: expressions and regular expressions are precompiled and
+ * an evaluator can be shared between threads.
+ */
+public final class DispatcherEvaluator {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^([\\[\\]])(.*);(.*)([\\[\\]])$");
+    private static final Pattern URI_PARAM_PATTERN = Pattern.compile("\\{([^}/]+)\\}|:([^/]+)");
+
+    private final Dispatcher.Type type;
+    private final Evaluation evaluation;
+
+    private DispatcherEvaluator(Dispatcher.Type type, Evaluation evaluation) {
+        this.type = type;
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * Compile a dispatcher that does not depend on URI path.
+     * @param dispatcher The dispatcher to evaluate
+     * @return A reusable evaluator
+     * @throws IllegalArgumentException if dispatcher type cannot be evaluated in-process or its rules are malformed
+     */
+    public static DispatcherEvaluator compile(Dispatcher dispatcher) {
+        return compile(dispatcher, null);
+    }
+
+    /**
+     * Compile a dispatcher for an operation.
+     * @param dispatcher    The dispatcher to evaluate
+     * @param operationName The operation name or path pattern like {@code GET /pastries/{name}}, for extracting URI parts
+     * @return A reusable evaluator
+     * @throws IllegalArgumentException if dispatcher type cannot be evaluated in-process or its rules are malformed
+     */
+    public static DispatcherEvaluator compile(Dispatcher dispatcher, String operationName) {
+        return new DispatcherEvaluator(dispatcher.getType(), compile(dispatcher.getType(), dispatcher.getRules(), operationName));
+    }
+
+    public Dispatcher.Type getType() {
+        return type;
+    }
+
+    /**
+     * Evaluate dispatcher on a request, considering every selected response exists.
+     * @param uri  The request URI, with its query string if any
+     * @param body The request body, may be null
+     * @return The selected response name or dispatch criteria
+     */
+    public String evaluate(String uri, String body) {
+        return evaluate(uri, body, null);
+    }
+
+    /**
+     * Evaluate dispatcher on a request.
+     * @param uri       The request URI, with its query string if any
+     * @param body      The request body, may be null
+     * @param knownKeys The response names or dispatch criteria defined for operation, null if they all exist
+     * @return The selected response name or dispatch criteria
+     */
+    public String evaluate(String uri, String body, Set<String> knownKeys) {
+        String path = uri;
+        String query = null;
+        if (uri != null) {
+            int index = uri.indexOf('?');
+            if (index >= 0) {
+                path = uri.substring(0, index);
+                query = uri.substring(index + 1);
+            }
+        }
+        return evaluation.evaluate(path, query, body, knownKeys);
+    }
+
+    @FunctionalInterface
+    private interface Evaluation {
+        String evaluate(String path, String query, String body, Set<String> knownKeys);
+    }
+
+    private static Evaluation compile(Dispatcher.Type type, String rules, String operationName) {
+        switch (type) {
+            case JSON_BODY:
+                return compileJsonBody(rules);
+            case URI_PARTS:
+                UriPartsExtractor parts = new UriPartsExtractor(rules, operationName);
+                return (path, query, body, knownKeys) -> parts.extract(path);
+            case URI_PARAMS:
+                return (path, query, body, knownKeys) -> extractFromQuery(rules, query);
+            case URI_ELEMENTS:
+                String[] elements = rules.split("\\?\\?");
+                UriPartsExtractor elementParts = new UriPartsExtractor(elements[0], operationName);
+                String paramsRules = elements.length > 1 ? elements[1] : "";
+                return (path, query, body, knownKeys) -> elementParts.extract(path) + extractFromQuery(paramsRules, query);
+            case FALLBACK:
+                return compileFallback(rules, operationName);
+            default:
+                throw new IllegalArgumentException(type + " dispatcher cannot be evaluated outside of Microcks");
+        }
+    }
+
+    private static Evaluation compileFallback(String rules, String operationName) {
+        JsonNode spec = readRules(rules);
+        Dispatcher.Type innerType;
+        try {
+            innerType = Dispatcher.Type.valueOf(spec.path("dispatcher").asText());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Unknown fallback inner dispatcher: " + spec.path("dispatcher").asText(), iae);
+        }
+        Evaluation inner = compile(innerType, spec.path("dispatcherRules").asText(), operationName);
+        String fallback = spec.path("fallback").asText();
+        return (path, query, body, knownKeys) -> {
+            String key = inner.evaluate(path, query, body, knownKeys);
+            return knownKeys == null || knownKeys.contains(key) ? key : fallback;
+        };
+    }
+
+    private static Evaluation compileJsonBody(String rules) {
+        JsonNode spec = readRules(rules);
+        JsonPointer pointer = JsonPointer.compile(spec.path("exp").asText());
+        String operator = spec.path("operator").asText();
+        Map<String, String> cases = new LinkedHashMap<>();
+        String defaultCase = null;
+        Iterator<Map.Entry<String, JsonNode>> fields = spec.path("cases").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if ("default".equals(field.getKey())) {
+                defaultCase = field.getValue().asText();
+            } else {
+                cases.put(field.getKey(), field.getValue().asText());
+            }
+        }
+        String otherwise = defaultCase;
+
+        NodeEvaluation nodeEvaluation;
+        switch (JsonBodyDispatcher.Operator.valueOf(operator.toUpperCase())) {
+            case EQUALS:
+                nodeEvaluation = node -> cases.getOrDefault(node.asText(), otherwise);
+                break;
+            case RANGE:
+                List<Range> ranges = compileRanges(cases);
+                nodeEvaluation = node -> select(ranges, node.asDouble(), otherwise);
+                break;
+            case SIZE:
+                List<Range> sizes = compileRanges(cases);
+                nodeEvaluation = node -> select(sizes, node.size(), otherwise);
+                break;
+            case REGEXP:
+                Map<Pattern, String> patterns = new LinkedHashMap<>();
+                cases.forEach((regexp, response) -> patterns.put(Pattern.compile(regexp), response));
+                nodeEvaluation = node -> {
+                    String value = node.asText();
+                    for (Map.Entry<Pattern, String> entry : patterns.entrySet()) {
+                        if (entry.getKey().matcher(value).matches()) {
+                            return entry.getValue();
+                        }
+                    }
+                    return otherwise;
+                };
+                break;
+            case PRESENCE:
+                String found = cases.get("found");
+                nodeEvaluation = node -> node.isMissingNode() ? otherwise : found;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+        return (path, query, body, knownKeys) -> {
+            JsonNode root;
+            try {
+                root = body == null ? null : JsonCodecs.TREE_READER.readTree(body);
+            } catch (IOException ioe) {
+                root = null;
+            }
+            // Microcks falls back to default case when body cannot be parsed.
+            return root == null ? otherwise : nodeEvaluation.evaluate(root.at(pointer));
+        };
+    }
+
+    @FunctionalInterface
+    private interface NodeEvaluation {
+        String evaluate(JsonNode node);
+    }
+
+    private static JsonNode readRules(String rules) {
+        try {
+            return JsonCodecs.TREE_READER.readTree(rules);
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Malformed dispatcher rules: " + rules, ioe);
+        }
+    }
+
+    private static List<Range> compileRanges(Map<String, String> cases) {
+        List<Range> ranges = new ArrayList<>(cases.size());
+        cases.forEach((key, response) -> {
+            Matcher matcher = RANGE_PATTERN.matcher(key);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Malformed range: " + key);
+            }
+            ranges.add(new Range(Double.parseDouble(matcher.group(2).trim()), "[".equals(matcher.group(1)),
+                    Double.parseDouble(matcher.group(3).trim()), "]".equals(matcher.group(4)), response));
+        });
+        return ranges;
+    }
+
+    private static String select(List<Range> ranges, double value, String otherwise) {
+        for (Range range : ranges) {
+            if (range.contains(value)) {
+                return range.response;
+            }
+        }
+        return otherwise;
+    }
+
+    private static class Range {
+        private final double min;
+        private final boolean minInclusive;
+        private final double max;
+        private final boolean maxInclusive;
+        private final String response;
+
+        private Range(double min, boolean minInclusive, double max, boolean maxInclusive, String response) {
+            this.min = min;
+            this.minInclusive = minInclusive;
+            this.max = max;
+            this.maxInclusive = maxInclusive;
+            this.response = response;
+        }
+
+        private boolean contains(double value) {
+            return (minInclusive ? value >= min : value > min) && (maxInclusive ? value <= max : value < max);
+        }
+    }
+
+    /** Extracts path parameters, declared as {@code {name}} or {@code :name} in operation path pattern. */
+    private static class UriPartsExtractor {
+        private final String rules;
+        private final Pattern pattern;
+        private final List<String> names = new ArrayList<>();
+
+        private UriPartsExtractor(String rules, String operationName) {
+            if (operationName == null) {
+                throw new IllegalArgumentException("Operation name is required for extracting URI parts");
+            }
+            this.rules = rules;
+            // Operation name may start with its Http verb.
+            String path = operationName.substring(operationName.indexOf(' ') + 1).trim();
+            StringBuilder regexp = new StringBuilder();
+            Matcher matcher = URI_PARAM_PATTERN.matcher(path);
+            int last = 0;
+            while (matcher.find()) {
+                regexp.append(Pattern.quote(path.substring(last, matcher.start()))).append("([^/]+)");
+                names.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+                last = matcher.end();
+            }
+            regexp.append(Pattern.quote(path.substring(last)));
+            this.pattern = Pattern.compile(".*" + regexp + "/?$");
+        }
+
+        private String extract(String path) {
+            Matcher matcher = pattern.matcher(path == null ? "" : path);
+            if (!matcher.matches()) {
+                return "";
+            }
+            Map<String, String> criteria = new TreeMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                criteria.put(names.get(i), matcher.group(i + 1));
+            }
+            return format(rules, criteria, '/');
+        }
+    }
+
+    private static String extractFromQuery(String rules, String query) {
+        if (query == null || !query.contains("=")) {
+            return "";
+        }
+        Map<String, String> criteria = new TreeMap<>();
+        for (String parameter : query.split("&")) {
+            int index = parameter.indexOf('=');
+            if (index > 0) {
+                criteria.put(decode(parameter.substring(0, index)), decode(parameter.substring(index + 1)));
+            }
+        }
+        return format(rules, criteria, '?');
+    }
+
+    private static String format(String rules, Map<String, String> criteria, char separator) {
+        // Like Microcks: parameters sorted by name, kept if rules mention them.
+        StringBuilder result = new StringBuilder();
+        criteria.forEach((name, value) -> {
+            if (rules.contains(name)) {
+                result.append(separator).append(name).append('=').append(value);
+            }
+        });
+        return result.toString();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException("UTF-8 is mandatory on every Java platform", uee);
+        }
+    }
+}
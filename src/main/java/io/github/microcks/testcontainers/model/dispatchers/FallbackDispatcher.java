@@ -1,33 +1,27 @@
 package io.github.microcks.testcontainers.model.dispatchers;
 
 import io.github.microcks.testcontainers.model.Dispatcher;
-import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
+import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonProcessingException;
 
 import java.util.LinkedHashMap;
 
-public class FallbackDispatcher implements Dispatcher {
-
-    private final String response;
-
-    private final Dispatcher dispatcher;
+public class FallbackDispatcher extends ImmutableDispatcher {
 
     private FallbackDispatcher(Dispatcher dispatcher, String response) {
-        this.dispatcher = dispatcher;
-        this.response = response;
+        super(Type.FALLBACK, rules(dispatcher, response));
     }
 
-    @Override
-    public Type getType() {
-        return Type.FALLBACK;
-    }
-
-    @Override
-    public String getRules() {
+    private static String rules(Dispatcher dispatcher, String response) {
         LinkedHashMap<String, String> innerRules = new LinkedHashMap<>();
         innerRules.put("dispatcher", dispatcher.getType().name());
         innerRules.put("dispatcherRules", dispatcher.getRules());
         innerRules.put("fallback", response);
-        return new ObjectMapper().valueToTree(innerRules).toString();
+        try {
+            return JsonCodecs.DISPATCHER_RULES_WRITER.writeValueAsString(innerRules);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Dispatcher rules cannot be serialized", e);
+        }
     }
 
     public static Builder builder() {
@@ -0,0 +1,59 @@
+package io.github.microcks.testcontainers.model.dispatchers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+
+import java.util.Objects;
+
+/**
+ * Base of built-in dispatchers: they're immutable, so their rules and hash are computed once at build time.
+ * Two dispatchers with same type and rules are equal.
+ */
+abstract class ImmutableDispatcher implements Dispatcher {
+
+    private final Type type;
+    private final String rules;
+    private final int rulesHash;
+
+    ImmutableDispatcher(Type type, String rules) {
+        this.type = type;
+        this.rules = rules;
+        this.rulesHash = Dispatcher.super.getRulesHash();
+    }
+
+    @Override
+    public final Type getType() {
+        return type;
+    }
+
+    @Override
+    public final String getRules() {
+        return rules;
+    }
+
+    @Override
+    public final int getRulesHash() {
+        return rulesHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImmutableDispatcher)) {
+            return false;
+        }
+        ImmutableDispatcher other = (ImmutableDispatcher) o;
+        return rulesHash == other.rulesHash && type == other.type && Objects.equals(rules, other.rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return rulesHash;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + rules;
+    }
+}
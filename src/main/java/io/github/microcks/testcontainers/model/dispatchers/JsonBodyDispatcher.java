@@ -1,13 +1,13 @@
 package io.github.microcks.testcontainers.model.dispatchers;
 
 import io.github.microcks.testcontainers.model.Dispatcher;
-import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.microcks.testcontainers.util.jackson.JsonCodecs;
+import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonProcessingException;
 
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class JsonBodyDispatcher implements Dispatcher {
+public class JsonBodyDispatcher extends ImmutableDispatcher {
 
     private JsonBodyDispatcher(
             String expression,
@@ -15,30 +15,22 @@ public class JsonBodyDispatcher implements Dispatcher {
             Map<String, String> cases,
             String defaultCase
     ) {
-        this.expression = expression;
-        this.operator = operator;
-        this.cases = cases;
-        this.defaultCase = defaultCase;
+        super(Type.JSON_BODY, rules(expression, operator, cases, defaultCase));
     }
 
-    private final String expression;
-    private final Operator operator;
-    private final Map<String, String> cases;
-    private final String defaultCase;
-
-    @Override
-    public Type getType() {
-        return Type.JSON_BODY;
-    }
-
-    @Override
-    public String getRules() {
-        cases.put("default", defaultCase);
-        HashMap<String, Object> innerRules = new LinkedHashMap<>();
+    private static String rules(String expression, Operator operator, Map<String, String> cases, String defaultCase) {
+        // Microcks expects default case among the others.
+        Map<String, String> allCases = new LinkedHashMap<>(cases);
+        allCases.put("default", defaultCase);
+        Map<String, Object> innerRules = new LinkedHashMap<>();
         innerRules.put("exp", expression);
         innerRules.put("operator", operator.name().toLowerCase());
-        innerRules.put("cases", cases);
-        return new ObjectMapper().valueToTree(innerRules).toString();
+        innerRules.put("cases", allCases);
+        try {
+            return JsonCodecs.DISPATCHER_RULES_WRITER.writeValueAsString(innerRules);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Dispatcher rules cannot be serialized", e);
+        }
     }
 
     public enum Operator {
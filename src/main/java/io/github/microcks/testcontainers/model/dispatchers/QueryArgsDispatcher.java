@@ -1,34 +1,16 @@
 package io.github.microcks.testcontainers.model.dispatchers;
 
-import io.github.microcks.testcontainers.model.Dispatcher;
-
 import java.util.LinkedHashSet;
 import java.util.Set;
 
-public class QueryArgsDispatcher implements Dispatcher {
-
-    private final Set<String> args;
+public class QueryArgsDispatcher extends ImmutableDispatcher {
 
     private QueryArgsDispatcher(Set<String> args) {
-        this.args = args;
-    }
-
-    @Override
-    public Type getType() {
-        return Type.QUERY_ARG;
+        super(Type.QUERY_ARG, rules(args));
     }
 
-    private boolean argsExist() {
-        return args != null && !args.isEmpty();
-    }
-
-    @Override
-    public String getRules() {
-        if (argsExist()) {
-            return String.join(" && ", args);
-        } else {
-            return "";
-        }
+    private static String rules(Set<String> args) {
+        return args != null && !args.isEmpty() ? String.join(" && ", args) : "";
     }
 
     public static Builder queryArg() {
@@ -1,23 +1,9 @@
 package io.github.microcks.testcontainers.model.dispatchers;
 
-import io.github.microcks.testcontainers.model.Dispatcher;
-
-public class ScriptDispatcher implements Dispatcher {
-
-    private final String script;
+public class ScriptDispatcher extends ImmutableDispatcher {
 
     private ScriptDispatcher(String script) {
-        this.script = script;
-    }
-
-    @Override
-    public Type getType() {
-        return Type.SCRIPT;
-    }
-
-    @Override
-    public String getRules() {
-        return script;
+        super(Type.SCRIPT, script);
     }
 
     public static ScriptDispatcher script(String script) {
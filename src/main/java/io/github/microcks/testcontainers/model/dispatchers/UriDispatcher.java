@@ -1,24 +1,16 @@
 package io.github.microcks.testcontainers.model.dispatchers;
 
-import io.github.microcks.testcontainers.model.Dispatcher;
-
 import java.util.*;
 
-public class UriDispatcher implements Dispatcher {
-
-    private final Set<String> queryParams;
-
-    private final Set<String> pathParams;
+public class UriDispatcher extends ImmutableDispatcher {
 
     private UriDispatcher(Set<String> queryParams, Set<String> pathParams) {
-        this.queryParams = queryParams;
-        this.pathParams = pathParams;
+        super(type(queryParams, pathParams), rules(queryParams, pathParams));
     }
 
-    @Override
-    public Type getType() {
-        boolean queryEmpty = !queryParamsExist();
-        boolean pathEmpty = !pathParamsExist();
+    private static Type type(Set<String> queryParams, Set<String> pathParams) {
+        boolean queryEmpty = !exist(queryParams);
+        boolean pathEmpty = !exist(pathParams);
 
         if (queryEmpty && pathEmpty) {
             return Type.EMPTY;
@@ -31,21 +23,16 @@ public class UriDispatcher implements Dispatcher {
         }
     }
 
-    private boolean queryParamsExist() {
-        return queryParams != null && !queryParams.isEmpty();
-    }
-
-    private boolean pathParamsExist() {
-        return pathParams != null && !pathParams.isEmpty();
+    private static boolean exist(Set<String> params) {
+        return params != null && !params.isEmpty();
     }
 
-    @Override
-    public String getRules() {
+    private static String rules(Set<String> queryParams, Set<String> pathParams) {
         List<String> list = new ArrayList<>();
-        if (pathParamsExist()) {
+        if (exist(pathParams)) {
             list.add(String.join(" && ", pathParams));
         }
-        if (queryParamsExist()) {
+        if (exist(queryParams)) {
             list.add(String.join(" && ", queryParams));
         }
 
@@ -0,0 +1,61 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util;
+
+/**
+ * A point-in-time snapshot of an {@code InstrumentedExecutor} activity.
+ * @author laurent
+ */
+public class ExecutorMetrics {
+
+   private final int queued;
+   private final int inFlight;
+   private final long completed;
+   private final boolean virtualThreads;
+
+   ExecutorMetrics(int queued, int inFlight, long completed, boolean virtualThreads) {
+      this.queued = queued;
+      this.inFlight = inFlight;
+      this.completed = completed;
+      this.virtualThreads = virtualThreads;
+   }
+
+   /** @return The number of tasks submitted and waiting for a thread. */
+   public int getQueued() {
+      return queued;
+   }
+
+   /** @return The number of tasks currently running. */
+   public int getInFlight() {
+      return inFlight;
+   }
+
+   /** @return The total number of tasks that have run to completion. */
+   public long getCompleted() {
+      return completed;
+   }
+
+   /** @return Whether tasks run on virtual threads. */
+   public boolean isVirtualThreads() {
+      return virtualThreads;
+   }
+
+   @Override
+   public String toString() {
+      return "ExecutorMetrics{queued=" + queued + ", inFlight=" + inFlight + ", completed=" + completed
+            + ", virtualThreads=" + virtualThreads + "}";
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor decorator counting the tasks waiting for a thread and the tasks currently running on the
+ * wrapped executor.
+ * @author laurent
+ */
+public class InstrumentedExecutor implements Executor {
+
+   private final Executor delegate;
+   private final boolean virtualThreads;
+   private final AtomicInteger queued = new AtomicInteger();
+   private final AtomicInteger inFlight = new AtomicInteger();
+   private final AtomicLong completed = new AtomicLong();
+
+   /**
+    * Create an InstrumentedExecutor.
+    * @param delegate The executor really running the tasks
+    */
+   public InstrumentedExecutor(Executor delegate) {
+      this(delegate, false);
+   }
+
+   InstrumentedExecutor(Executor delegate, boolean virtualThreads) {
+      this.delegate = delegate;
+      this.virtualThreads = virtualThreads;
+   }
+
+   /** @return The wrapped executor. */
+   public Executor getDelegate() {
+      return delegate;
+   }
+
+   @Override
+   public void execute(Runnable task) {
+      queued.incrementAndGet();
+      try {
+         delegate.execute(() -> {
+            queued.decrementAndGet();
+            inFlight.incrementAndGet();
+            try {
+               task.run();
+            } finally {
+               inFlight.decrementAndGet();
+               completed.incrementAndGet();
+            }
+         });
+      } catch (RejectedExecutionException ree) {
+         queued.decrementAndGet();
+         throw ree;
+      }
+   }
+
+   /** @return A snapshot of this executor metrics. */
+   public ExecutorMetrics getMetrics() {
+      return new ExecutorMetrics(queued.get(), inFlight.get(), completed.get(), virtualThreads);
+   }
+}
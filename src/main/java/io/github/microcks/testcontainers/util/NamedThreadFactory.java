@@ -0,0 +1,45 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread factory producing daemon threads with a recognizable name prefix so that library threads never
+ * prevent the test JVM from exiting and are easy to spot in thread dumps.
+ * @author laurent
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+   private final String prefix;
+   private final AtomicInteger counter = new AtomicInteger();
+
+   /**
+    * Create a NamedThreadFactory.
+    * @param prefix The prefix of created thread names; a sequence number is appended.
+    */
+   public NamedThreadFactory(String prefix) {
+      this.prefix = prefix;
+   }
+
+   @Override
+   public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+   }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory of the executors used for running blocking library tasks. Virtual threads are used when the running
+ * JVM provides them (Java 21+), detected through reflection as this library is built for Java 8; otherwise a
+ * bounded pool of daemon threads is used.
+ * @author laurent
+ */
+public final class TaskExecutors {
+
+   private TaskExecutors() {
+      // Utility class.
+   }
+
+   /**
+    * Create a new executor for blocking tasks.
+    * @param prefix     The name prefix of threads
+    * @param maxThreads The maximum number of platform threads when virtual threads are not available
+    * @return An instrumented executor. Caller is responsible for shutting it down.
+    */
+   public static Instrumented newBlockingTaskExecutor(String prefix, int maxThreads) {
+      ThreadFactory virtualFactory = virtualThreadFactory(prefix);
+      if (virtualFactory != null) {
+         ExecutorService service = newThreadPerTaskExecutor(virtualFactory);
+         if (service != null) {
+            return new Instrumented(service, true);
+         }
+      }
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new NamedThreadFactory(prefix));
+      pool.allowCoreThreadTimeOut(true);
+      return new Instrumented(pool, false);
+   }
+
+   /** @return true if running JVM supports virtual threads. */
+   public static boolean isVirtualThreadsSupported() {
+      return virtualThreadFactory("probe") != null;
+   }
+
+   private static ThreadFactory virtualThreadFactory(String prefix) {
+      try {
+         Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+         Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+         builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+         return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+         return null;
+      }
+   }
+
+   private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+      try {
+         Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+         return (ExecutorService) method.invoke(null, factory);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+         return null;
+      }
+   }
+
+   /** An instrumented executor that owns its underlying executor service. */
+   public static class Instrumented extends InstrumentedExecutor {
+
+      private final ExecutorService service;
+
+      Instrumented(ExecutorService service, boolean virtualThreads) {
+         super(service, virtualThreads);
+         this.service = service;
+      }
+
+      /** Stop accepting tasks and interrupt the running ones. */
+      public void shutdownNow() {
+         service.shutdownNow();
+      }
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util.jackson;
+
+import io.github.microcks.testcontainers.model.OperationUpdateRequest;
+import io.github.microcks.testcontainers.model.Secret;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.testcontainers.shaded.com.fasterxml.jackson.core.JsonParser;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectReader;
+import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * The Json readers and writers of the library, built once. ObjectReader and ObjectWriter instances are immutable and
+ * thread-safe, and sharing them lets Jackson reuse the serializers and deserializers it has resolved for each type
+ * instead of resolving them again for each new ObjectMapper.
+ * @author laurent
+ */
+public final class JsonCodecs {
+
+   /** Do not include null values in both serialization and deserialization. */
+   private static final ObjectMapper mapper = new ObjectMapper()
+         .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+         .setPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+
+   /** Dispatcher rules keep null values, as Microcks expects every rule property. */
+   private static final ObjectMapper rulesMapper = new ObjectMapper();
+
+   public static final ObjectWriter TEST_REQUEST_WRITER = mapper.writerFor(TestRequest.class);
+   public static final ObjectReader TEST_RESULT_READER = mapper.readerFor(TestResult.class);
+   public static final ObjectWriter SECRET_WRITER = mapper.writerFor(Secret.class);
+   public static final ObjectWriter OPERATION_UPDATE_REQUEST_WRITER = mapper.writerFor(OperationUpdateRequest.class);
+   public static final ObjectWriter DISPATCHER_RULES_WRITER = rulesMapper.writerFor(Map.class);
+   /** For responses only partially read, as a tree. */
+   public static final ObjectReader TREE_READER = mapper.reader();
+
+   private JsonCodecs() {
+      // Utility class.
+   }
+
+   /**
+    * Create a streaming parser whose codec is able to bind nested values with {@code readValueAs()}.
+    * @param stream The stream to parse
+    * @return A new parser that closes stream when closed
+    * @throws IOException If stream cannot be read
+    */
+   public static JsonParser createParser(InputStream stream) throws IOException {
+      return mapper.getFactory().createParser(stream);
+   }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for ArtifactManifest class.
+ * @author laurent
+ */
+public class ArtifactManifestTest {
+
+   @Test
+   public void testRoundTrip() throws Exception {
+      byte[] content = "openapi: 3.0.2".getBytes(StandardCharsets.UTF_8);
+      String digest = ArtifactManifest.sha256(content);
+      assertEquals(digest, ArtifactManifest.sha256(new ByteArrayInputStream(content)));
+      assertEquals(64, digest.length());
+
+      ArtifactManifest manifest = new ArtifactManifest();
+      manifest.put(ImportReport.Kind.MAIN_ARTIFACT, "apis/my api.yaml", digest);
+      manifest.put(ImportReport.Kind.SECRET, "my-secret", "0123");
+
+      ArtifactManifest read = ArtifactManifest.fromStream(new ByteArrayInputStream(manifest.toBytes()));
+      assertEquals(digest, read.get(ImportReport.Kind.MAIN_ARTIFACT, "apis/my api.yaml"));
+      assertTrue(manifest.isUnchangedIn(read, ImportReport.Kind.MAIN_ARTIFACT, "apis/my api.yaml"));
+      assertTrue(manifest.isUnchangedIn(read, ImportReport.Kind.SECRET, "my-secret"));
+
+      read.remove(ImportReport.Kind.SECRET, "my-secret");
+      assertFalse(manifest.isUnchangedIn(read, ImportReport.Kind.SECRET, "my-secret"));
+      assertFalse(manifest.isUnchangedIn(read, ImportReport.Kind.SECONDARY_ARTIFACT, "apis/my api.yaml"));
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.junit.Test;
+import org.testcontainers.lifecycle.Startable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This is a test case for ContainerStarter class.
+ * @author laurent
+ */
+public class ContainerStarterTest {
+
+   private final List<String> events = new CopyOnWriteArrayList<>();
+   private final Map<String, Long> startedAt = new ConcurrentHashMap<>();
+   private final Map<String, Long> endedAt = new ConcurrentHashMap<>();
+
+   @Test
+   public void testParallelStartRespectsDependencies() {
+      StartupTimeline timeline = new ContainerStarter(true)
+            .add("microcks", container("microcks", 200))
+            .add("postman", container("postman", 200))
+            .add("async-minion", container("async-minion", 50), "microcks")
+            .start();
+
+      assertTrue(timeline.isParallel());
+      assertEquals(3, timeline.getEntries().size());
+      // Postman does not wait for Microcks...
+      assertTrue(startedAt.get("postman") < endedAt.get("microcks"));
+      assertTrue(startedAt.get("microcks") < endedAt.get("postman"));
+      // ... but the async minion does.
+      assertTrue(startedAt.get("async-minion") >= endedAt.get("microcks"));
+      assertTrue(timeline.getDurationMillis() < 400);
+   }
+
+   @Test
+   public void testSequentialStart() {
+      StartupTimeline timeline = new ContainerStarter(false)
+            .add("microcks", container("microcks", 50))
+            .add("postman", container("postman", 50))
+            .add("async-minion", container("async-minion", 50), "microcks")
+            .start();
+
+      assertFalse(timeline.isParallel());
+      assertEquals("microcks", timeline.getEntries().get(0).getName());
+      assertEquals("postman", timeline.getEntries().get(1).getName());
+      assertEquals("async-minion", timeline.getEntries().get(2).getName());
+      assertTrue(startedAt.get("postman") >= endedAt.get("microcks"));
+      assertTrue(startedAt.get("async-minion") >= endedAt.get("postman"));
+      assertTrue(timeline.getEntries().get(2).getStartOffsetMillis() >= 100);
+   }
+
+   @Test
+   public void testDependentsOfFailedContainerAreNotStarted() {
+      ContainerStarter starter = new ContainerStarter(true)
+            .add("microcks", failingContainer("microcks"))
+            .add("postman", container("postman", 100))
+            .add("async-minion", container("async-minion", 10), "microcks");
+      try {
+         starter.start();
+         fail("Startup failure should have been thrown");
+      } catch (IllegalStateException ise) {
+         assertEquals("microcks cannot start", ise.getMessage());
+      }
+      // Independent container has been started anyway, and fully before failure is thrown.
+      assertTrue(endedAt.containsKey("postman"));
+      assertFalse(events.contains("async-minion"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testUnknownDependency() {
+      new ContainerStarter(true).add("async-minion", container("async-minion", 10), "microcks");
+   }
+
+   private Startable container(String name, long startupMillis) {
+      return new Startable() {
+         @Override
+         public void start() {
+            events.add(name);
+            startedAt.put(name, System.nanoTime());
+            try {
+               Thread.sleep(startupMillis);
+            } catch (InterruptedException ie) {
+               Thread.currentThread().interrupt();
+            }
+            endedAt.put(name, System.nanoTime());
+         }
+
+         @Override
+         public void stop() {
+         }
+      };
+   }
+
+   private Startable failingContainer(String name) {
+      return new Startable() {
+         @Override
+         public void start() {
+            events.add(name);
+            throw new IllegalStateException(name + " cannot start");
+         }
+
+         @Override
+         public void stop() {
+         }
+      };
+   }
+}
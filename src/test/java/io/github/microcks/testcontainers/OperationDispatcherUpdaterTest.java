@@ -0,0 +1,253 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.microcks.testcontainers.model.Dispatcher;
+import io.github.microcks.testcontainers.model.OperationRef;
+import io.github.microcks.testcontainers.model.OperationUpdateRequest;
+import io.github.microcks.testcontainers.util.NamedThreadFactory;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for OperationDispatcherUpdater class.
+ * @author laurent
+ */
+public class OperationDispatcherUpdaterTest {
+
+   private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(8, new NamedThreadFactory("test-dispatchers"));
+
+   @AfterClass
+   public static void shutdownExecutor() {
+      EXECUTOR.shutdownNow();
+   }
+
+   @Test
+   public void testUnchangedAndUnknownOperations() {
+      AtomicInteger lookups = new AtomicInteger();
+      AtomicInteger fetches = new AtomicInteger();
+      List<String> updated = new CopyOnWriteArrayList<>();
+
+      Map<String, OperationUpdateRequest> current = new HashMap<>();
+      current.put("GET /pastries", new OperationUpdateRequest("SCRIPT", "return \"Millefeuille\""));
+      current.put("GET /pastries/{name}", new OperationUpdateRequest("URI_PARTS", "name"));
+      current.put("PATCH /pastries/{name}", new OperationUpdateRequest(null, null));
+
+      Map<OperationRef, Dispatcher> dispatchers = new LinkedHashMap<>();
+      dispatchers.put(OperationRef.of("API Pastries", "0.0.1", "GET /pastries"), Dispatcher.script("return \"Millefeuille\""));
+      dispatchers.put(OperationRef.of("API Pastries", "0.0.1", "GET /pastries/{name}"), Dispatcher.script("return \"Eclair\""));
+      dispatchers.put(OperationRef.of("API Pastries", "0.0.1", "PATCH /pastries/{name}"), Dispatcher.script("return \"Eclair\""));
+      dispatchers.put(OperationRef.of("API Pastries", "0.0.1", "DELETE /pastries"), Dispatcher.script("return \"Eclair\""));
+      dispatchers.put(OperationRef.of("API Unknown", "1.0", "GET /unknown"), Dispatcher.script("return \"Eclair\""));
+
+      OperationUpdateReport report = new OperationDispatcherUpdater(EXECUTOR, 2,
+            (service, version) -> {
+               lookups.incrementAndGet();
+               return "API Pastries".equals(service) ? Optional.of("pastries-id") : Optional.empty();
+            },
+            serviceId -> {
+               fetches.incrementAndGet();
+               return current;
+            },
+            (serviceId, operationName, request) -> updated.add(operationName)).run(dispatchers);
+
+      assertEquals(2, lookups.get());
+      assertEquals(1, fetches.get());
+      assertEquals(2, report.getUpdatedCount());
+      assertTrue(updated.contains("GET /pastries/{name}"));
+      assertTrue(updated.contains("PATCH /pastries/{name}"));
+      assertEquals(OperationUpdateReport.Status.UNCHANGED,
+            report.get(OperationRef.of("API Pastries", "0.0.1", "GET /pastries")).getStatus());
+      assertEquals(OperationUpdateReport.Status.NOT_FOUND,
+            report.get(OperationRef.of("API Pastries", "0.0.1", "DELETE /pastries")).getStatus());
+      assertEquals(OperationUpdateReport.Status.NOT_FOUND,
+            report.get(OperationRef.of("API Unknown", "1.0", "GET /unknown")).getStatus());
+      assertEquals(2, report.getFailures().size());
+   }
+
+   @Test
+   public void testUpdatesWhenCurrentDispatchingIsUnknown() {
+      OperationRef operation = OperationRef.of("API Pastries", "0.0.1", "GET /pastries");
+      OperationUpdateReport report = new OperationDispatcherUpdater(EXECUTOR, 1,
+            (service, version) -> Optional.of("pastries-id"),
+            serviceId -> {
+               throw new MicrocksException("Service has not been correctly retrieved");
+            },
+            (serviceId, operationName, request) -> {
+               throw new MicrocksException("Operation has not been correctly updated");
+            }).run(Collections.singletonMap(operation, Dispatcher.script("return \"Eclair\"")));
+
+      assertEquals(OperationUpdateReport.Status.FAILED, report.get(operation).getStatus());
+      assertEquals("Operation has not been correctly updated", report.get(operation).getFailure().getMessage());
+   }
+
+   @Test
+   public void testAppliedDispatchersAreSkipped() {
+      AtomicInteger calls = new AtomicInteger();
+      Map<OperationRef, Dispatcher> applied = new ConcurrentHashMap<>();
+      OperationRef operation = OperationRef.of("API Pastries", "0.0.1", "GET /pastries");
+      OperationDispatcherUpdater updater = new OperationDispatcherUpdater(EXECUTOR, 1,
+            (service, version) -> {
+               calls.incrementAndGet();
+               return Optional.of("pastries-id");
+            },
+            serviceId -> {
+               calls.incrementAndGet();
+               return Collections.singletonMap("GET /pastries", new OperationUpdateRequest(null, null));
+            },
+            (serviceId, operationName, request) -> calls.incrementAndGet(),
+            applied);
+
+      OperationUpdateReport report = updater.run(Collections.singletonMap(operation, Dispatcher.script("return \"Eclair\"")));
+      assertEquals(OperationUpdateReport.Status.UPDATED, report.get(operation).getStatus());
+      assertEquals(3, calls.get());
+
+      // An equal dispatcher built again is known to be applied.
+      report = updater.run(Collections.singletonMap(operation, Dispatcher.script("return \"Eclair\"")));
+      assertEquals(OperationUpdateReport.Status.UNCHANGED, report.get(operation).getStatus());
+      assertEquals(3, calls.get());
+
+      report = updater.run(Collections.singletonMap(operation, Dispatcher.script("return \"Tartelette\"")));
+      assertEquals(OperationUpdateReport.Status.UPDATED, report.get(operation).getStatus());
+      assertEquals(6, calls.get());
+   }
+
+   @Test
+   public void testParallelismIsBoundedOnSharedExecutor() {
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+      AtomicInteger fetches = new AtomicInteger();
+      Map<String, OperationUpdateRequest> current = new HashMap<>();
+      Map<OperationRef, Dispatcher> dispatchers = new LinkedHashMap<>();
+      for (int i = 0; i < 20; i++) {
+         current.put("GET /pastries/" + i, new OperationUpdateRequest(null, null));
+         dispatchers.put(OperationRef.of("API Pastries", "0.0.1", "GET /pastries/" + i), Dispatcher.script("return \"Eclair\""));
+      }
+
+      OperationUpdateReport report = new OperationDispatcherUpdater(EXECUTOR, 3,
+            (service, version) -> Optional.of("pastries-id"),
+            serviceId -> {
+               fetches.incrementAndGet();
+               return current;
+            },
+            (serviceId, operationName, request) -> {
+               maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+               Thread.sleep(5);
+               running.decrementAndGet();
+            }).run(dispatchers);
+
+      assertEquals(20, report.getUpdatedCount());
+      assertEquals(1, fetches.get());
+      assertTrue(maxRunning.get() <= 3);
+      // Executor belongs to the caller and is left running.
+      assertFalse(EXECUTOR.isShutdown());
+   }
+
+   @Test
+   public void testForcedResponseIsNotSentTwice() throws Exception {
+      List<String> puts = new CopyOnWriteArrayList<>();
+      HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/api/services", exchange -> {
+         boolean put = "PUT".equals(exchange.getRequestMethod());
+         if (put) {
+            puts.add(exchange.getRequestURI().toString());
+         }
+         byte[] body = (put ? "" : "[{\"id\":\"pastries-id\",\"name\":\"API Pastries\",\"version\":\"0.0.1\"}]")
+               .getBytes(StandardCharsets.UTF_8);
+         exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.start();
+      MicrocksContainer microcks = stubbedContainer(server.getAddress().getPort());
+      try {
+         microcks.forceOperationResponse("API Pastries", "0.0.1", "GET /pastries", "Eclair");
+         microcks.forceOperationResponse("API Pastries", "0.0.1", "GET /pastries", "Eclair");
+         assertEquals(1, puts.size());
+
+         microcks.forceOperationResponse("API Pastries", "0.0.1", "GET /pastries", "Millefeuille");
+         assertEquals(2, puts.size());
+      } finally {
+         microcks.getMicrocksClient().close();
+         server.stop(0);
+      }
+   }
+
+   @Test
+   public void testFailedUpdateIsSentAgain() throws Exception {
+      AtomicInteger puts = new AtomicInteger();
+      HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/api/services", exchange -> {
+         boolean put = "PUT".equals(exchange.getRequestMethod());
+         // First update is refused.
+         int status = put && puts.incrementAndGet() == 1 ? 500 : 200;
+         byte[] body = (put ? "" : "[{\"id\":\"pastries-id\",\"name\":\"API Pastries\",\"version\":\"0.0.1\"}]")
+               .getBytes(StandardCharsets.UTF_8);
+         exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.start();
+      MicrocksContainer microcks = stubbedContainer(server.getAddress().getPort());
+      try {
+         Dispatcher dispatcher = Dispatcher.script("return \"Eclair\"");
+         microcks.updateOperationDispatcher("API Pastries", "0.0.1", "GET /pastries", dispatcher);
+         microcks.updateOperationDispatcher("API Pastries", "0.0.1", "GET /pastries", dispatcher);
+         microcks.updateOperationDispatcher("API Pastries", "0.0.1", "GET /pastries", dispatcher);
+         assertEquals(2, puts.get());
+      } finally {
+         microcks.getMicrocksClient().close();
+         server.stop(0);
+      }
+   }
+
+   private static MicrocksContainer stubbedContainer(int port) {
+      return new MicrocksContainer("quay.io/microcks/microcks-uber:1.8.0") {
+         @Override
+         public String getHost() {
+            return "localhost";
+         }
+
+         @Override
+         public Integer getMappedPort(int originalPort) {
+            return port;
+         }
+      };
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.Secret;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for ParallelImporter class.
+ * @author laurent
+ */
+public class ParallelImporterTest {
+
+   /** A shared executor larger than import parallelism, like the one of a container. */
+   private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+   @After
+   public void shutdownExecutor() {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testSecondariesWaitForMains() {
+      List<String> events = new CopyOnWriteArrayList<>();
+      AtomicInteger inFlight = new AtomicInteger();
+      AtomicInteger maxInFlight = new AtomicInteger();
+
+      ImportReport report = new ParallelImporter(executor, 2).run(
+            Arrays.asList("main-1.yaml", "main-2.yaml", "main-3.yaml"),
+            Arrays.asList("secondary-1.json", "secondary-2.json"),
+            Collections.singletonList(new Secret.Builder().name("my-secret").build()),
+            (artifact, main) -> {
+               maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+               Thread.sleep(main ? 50 : 10);
+               events.add(artifact);
+               inFlight.decrementAndGet();
+            },
+            secret -> events.add(secret.getName()));
+
+      assertFalse(report.hasFailures());
+      assertEquals(6, report.getEntries().size());
+      assertTrue(maxInFlight.get() <= 2);
+      int lastMain = Math.max(events.indexOf("main-1.yaml"), Math.max(events.indexOf("main-2.yaml"), events.indexOf("main-3.yaml")));
+      assertTrue(events.indexOf("secondary-1.json") > lastMain);
+      assertTrue(events.indexOf("secondary-2.json") > lastMain);
+      // Executor belongs to the caller and is left running.
+      assertFalse(executor.isShutdown());
+   }
+
+   @Test
+   public void testFailuresAreAggregated() {
+      ImportReport report = new ParallelImporter(executor, 4).run(
+            Arrays.asList("good.yaml", "bad.yaml"),
+            Collections.singletonList("secondary.json"),
+            Collections.emptyList(),
+            (artifact, main) -> {
+               if (artifact.startsWith("bad")) {
+                  throw new MicrocksException("Malformed artifact");
+               }
+            },
+            secret -> { });
+
+      assertTrue(report.hasFailures());
+      assertEquals(3, report.getEntries().size());
+      assertEquals(1, report.getFailures().size());
+      assertEquals("bad.yaml", report.getFailures().get(0).getName());
+      assertEquals("Malformed artifact", report.getFailures().get(0).getFailure().getMessage());
+   }
+
+   @Test
+   public void testFilteredImportsAreSkipped() {
+      List<String> imported = new CopyOnWriteArrayList<>();
+      ImportReport report = new ParallelImporter(executor, 2).run(
+            Arrays.asList("unchanged.yaml", "changed.yaml"),
+            Collections.singletonList("secondary.json"),
+            Collections.singletonList(new Secret.Builder().name("my-secret").build()),
+            (artifact, main) -> imported.add(artifact),
+            secret -> imported.add(secret.getName()),
+            (kind, name) -> !name.startsWith("unchanged") && kind != ImportReport.Kind.SECRET);
+
+      assertFalse(report.hasFailures());
+      assertEquals(4, report.getEntries().size());
+      assertEquals(2, report.getSkipped().size());
+      assertEquals(Arrays.asList("changed.yaml", "secondary.json"), imported);
+   }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for RepositoryReset class.
+ * @author laurent
+ */
+public class RepositoryResetTest {
+
+   private static final ImportReport NOTHING_RESTORED = new ImportReport(Collections.emptyList(), 0);
+
+   /** A shared executor larger than reset parallelism, like the one of a container. */
+   private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+   @After
+   public void shutdownExecutor() {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testOnlyNewServicesAndSecretsAreDeleted() {
+      List<String> deleted = new CopyOnWriteArrayList<>();
+      AtomicInteger inFlight = new AtomicInteger();
+      AtomicInteger maxInFlight = new AtomicInteger();
+      RepositoryReset.Baseline baseline = new RepositoryReset.Baseline(set("s1", "s2"), secrets("k1"));
+
+      ResetReport report = new RepositoryReset(executor, 2).run(baseline,
+            () -> set("s1", "s2", "s3", "s4", "s5"),
+            id -> {
+               maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+               Thread.sleep(30);
+               deleted.add(id);
+               inFlight.decrementAndGet();
+            },
+            () -> set("k1", "k2"),
+            deleted::add,
+            missingSecretNames -> {
+               // Artifacts are restored once deletions are done.
+               assertEquals(4, deleted.size());
+               assertTrue(missingSecretNames.isEmpty());
+               return NOTHING_RESTORED;
+            });
+
+      assertFalse(report.hasFailures());
+      assertEquals(3, report.getDeletedServices());
+      assertEquals(1, report.getDeletedSecrets());
+      assertEquals(set("s3", "s4", "s5", "k2"), new HashSet<>(deleted));
+      assertEquals(2, maxInFlight.get());
+   }
+
+   @Test
+   public void testFailuresAreGathered() {
+      RepositoryReset.Baseline baseline = new RepositoryReset.Baseline(set("s1"), Collections.emptyMap());
+
+      ResetReport report = new RepositoryReset(executor, 4).run(baseline,
+            () -> set("s1", "s2", "s3"),
+            id -> {
+               if ("s2".equals(id)) {
+                  throw new MicrocksException("Service s2 has not been correctly deleted");
+               }
+            },
+            () -> {
+               throw new IOException("Secrets have not been correctly listed");
+            },
+            id -> { },
+            missingSecretNames -> NOTHING_RESTORED);
+
+      assertTrue(report.hasFailures());
+      assertEquals(1, report.getDeletedServices());
+      assertEquals(0, report.getDeletedSecrets());
+      assertEquals(set("delete service s2", "list secrets"), report.getFailures().keySet());
+   }
+
+   @Test
+   public void testDeletedBaselineSecretsAreRestored() {
+      List<Set<String>> restored = new CopyOnWriteArrayList<>();
+      RepositoryReset.Baseline baseline = new RepositoryReset.Baseline(set("s1"), secrets("k1", "k2", "k3"));
+
+      ResetReport report = new RepositoryReset(executor, 2).run(baseline,
+            () -> set("s1"), id -> { },
+            () -> set("k2", "k4"), id -> { },
+            missingSecretNames -> {
+               restored.add(missingSecretNames);
+               return NOTHING_RESTORED;
+            });
+
+      assertFalse(report.hasFailures());
+      assertEquals(1, report.getDeletedSecrets());
+      assertEquals(Collections.singletonList(set("k1-name", "k3-name")), restored);
+
+      // When secrets cannot be listed, we cannot tell which are missing: none is created again.
+      restored.clear();
+      new RepositoryReset(executor, 2).run(baseline,
+            () -> set("s1"), id -> { },
+            () -> {
+               throw new IOException("Secrets have not been correctly listed");
+            },
+            id -> { },
+            missingSecretNames -> {
+               restored.add(missingSecretNames);
+               return NOTHING_RESTORED;
+            });
+      assertEquals(Collections.singletonList(Collections.<String>emptySet()), restored);
+   }
+
+   private static Map<String, String> secrets(String... ids) {
+      Map<String, String> secrets = new HashMap<>();
+      for (String id : ids) {
+         secrets.put(id, id + "-name");
+      }
+      return secrets;
+   }
+
+   private static Set<String> set(String... values) {
+      return new HashSet<>(Arrays.asList(values));
+   }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.microcks.testcontainers.client.UploadMetrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for snapshot export and import of MicrocksContainer, against a stub of Microcks API.
+ * @author laurent
+ */
+public class RepositorySnapshotTest {
+
+   private static final String IMAGE = "quay.io/microcks/microcks-uber:1.8.0";
+   private static final String SNAPSHOT = "{\"services\":[{\"id\":\"s1\"},{\"id\":\"s2\"}],\"resources\":[]}";
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private HttpServer server;
+   private final List<String> received = new CopyOnWriteArrayList<>();
+   private volatile boolean emptyRepository = false;
+
+   @Before
+   public void startMicrocks() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/api/services", exchange -> respond(exchange, 200, emptyRepository ? "[]" :
+            "[{\"id\":\"s1\",\"name\":\"API Pastries\",\"version\":\"0.0.1\"},{\"id\":\"s2\",\"name\":\"Pastry orders\",\"version\":\"0.1.0\"}]"));
+      server.createContext("/api/export", exchange -> respond(exchange, 200, SNAPSHOT));
+      server.createContext("/api/import", exchange -> respond(exchange, 201, ""));
+      server.start();
+   }
+
+   @After
+   public void stopMicrocks() {
+      server.stop(0);
+   }
+
+   @Test
+   public void testExportThenImport() throws Exception {
+      MicrocksContainer microcks = stubbedContainer();
+      Path snapshot = folder.getRoot().toPath().resolve("snapshot.json");
+      try {
+         microcks.exportSnapshot(snapshot);
+         assertEquals(SNAPSHOT, new String(Files.readAllBytes(snapshot), StandardCharsets.UTF_8));
+         String export = received.get(1);
+         assertTrue(export.startsWith("GET /api/export?"));
+         assertTrue(export.contains("serviceIds=s1"));
+         assertTrue(export.contains("serviceIds=s2"));
+
+         UploadMetrics metrics = microcks.importSnapshot(snapshot);
+         assertEquals("snapshot.json", metrics.getArtifactName());
+         String upload = received.get(2);
+         assertTrue(upload.startsWith("POST /api/import "));
+         assertTrue(upload.contains("filename=\"snapshot.json\""));
+         assertTrue(upload.contains(SNAPSHOT));
+      } finally {
+         microcks.getMicrocksClient().close();
+      }
+   }
+
+   @Test
+   public void testEmptyRepositoryIsNotExported() throws Exception {
+      emptyRepository = true;
+      MicrocksContainer microcks = stubbedContainer();
+      Path snapshot = folder.getRoot().toPath().resolve("snapshot.json");
+      try {
+         assertThrows(MicrocksException.class, () -> microcks.exportSnapshot(snapshot));
+         assertFalse(Files.exists(snapshot));
+         assertTrue(received.stream().noneMatch(request -> request.startsWith("GET /api/export")));
+      } finally {
+         microcks.getMicrocksClient().close();
+      }
+   }
+
+   @Test
+   public void testSnapshotIsPartOfSharingKey() throws IOException {
+      Path snapshot = folder.newFile("snapshot.json").toPath();
+      Files.write(snapshot, SNAPSHOT.getBytes(StandardCharsets.UTF_8));
+      Path other = folder.newFile("other.json").toPath();
+      Files.write(other, "{\"services\":[]}".getBytes(StandardCharsets.UTF_8));
+
+      assertEquals(new MicrocksContainer(IMAGE).withSnapshot(snapshot).sharingKey(),
+            new MicrocksContainer(IMAGE).withSnapshot(snapshot).sharingKey());
+      assertNotEquals(new MicrocksContainer(IMAGE).withSnapshot(snapshot).sharingKey(),
+            new MicrocksContainer(IMAGE).withSnapshot(other).sharingKey());
+      assertNotEquals(new MicrocksContainer(IMAGE).withSnapshot(snapshot).sharingKey(),
+            new MicrocksContainer(IMAGE).sharingKey());
+   }
+
+   private MicrocksContainer stubbedContainer() {
+      int port = server.getAddress().getPort();
+      return new MicrocksContainer(IMAGE) {
+         @Override
+         public String getHost() {
+            return "localhost";
+         }
+
+         @Override
+         public Integer getMappedPort(int originalPort) {
+            return port;
+         }
+      };
+   }
+
+   private void respond(HttpExchange exchange, int status, String body) throws IOException {
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      try (InputStream is = exchange.getRequestBody()) {
+         byte[] buffer = new byte[1024];
+         int read;
+         while ((read = is.read(buffer)) != -1) {
+            content.write(buffer, 0, read);
+         }
+      }
+      received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+            + new String(content.toByteArray(), StandardCharsets.UTF_8));
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+         os.write(bytes);
+      }
+   }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * This is a test case for ServiceIndex class.
+ * @author laurent
+ */
+public class ServiceIndexTest {
+
+   @Test
+   public void testLookupsAndInvalidation() throws Exception {
+      AtomicInteger loads = new AtomicInteger();
+      Map<String, String> services = new HashMap<>();
+      services.put(ServiceIndex.key("Pastry API", "1.0"), "id-1");
+
+      ServiceIndex index = new ServiceIndex(() -> {
+         loads.incrementAndGet();
+         return new HashMap<>(services);
+      });
+
+      for (int i = 0; i < 10; i++) {
+         assertEquals(Optional.of("id-1"), index.serviceId("Pastry API", "1.0"));
+      }
+      assertEquals(1, loads.get());
+      assertEquals(9, index.getMetrics().getHits());
+      assertEquals(1, index.getMetrics().getMisses());
+
+      // Unknown service triggers a reload.
+      assertFalse(index.serviceId("Pastry API", "2.0").isPresent());
+      assertEquals(2, loads.get());
+
+      services.put(ServiceIndex.key("Pastry API", "2.0"), "id-2");
+      index.invalidate();
+      assertEquals(Optional.of("id-2"), index.serviceId("Pastry API", "2.0"));
+      assertEquals(Optional.of("id-1"), index.serviceId("Pastry API", "1.0"));
+      assertEquals(3, index.getMetrics().getLoads());
+      assertEquals(2, index.getMetrics().getSize());
+   }
+
+   @Test
+   public void testLoadInFlightDuringInvalidationIsNotKept() throws Exception {
+      Map<String, String> services = new ConcurrentHashMap<>();
+      services.put(ServiceIndex.key("Pastry API", "1.0"), "id-1");
+      CountDownLatch loading = new CountDownLatch(1);
+      CountDownLatch invalidated = new CountDownLatch(1);
+      AtomicInteger loads = new AtomicInteger();
+
+      ServiceIndex index = new ServiceIndex(() -> {
+         Map<String, String> listing = new HashMap<>(services);
+         if (loads.incrementAndGet() == 1) {
+            // Services are re-imported while this listing is on its way.
+            loading.countDown();
+            try {
+               invalidated.await();
+            } catch (InterruptedException ie) {
+               Thread.currentThread().interrupt();
+            }
+         }
+         return listing;
+      });
+
+      CompletableFuture<Optional<String>> lookup = CompletableFuture.supplyAsync(() -> {
+         try {
+            return index.serviceId("Pastry API", "1.0");
+         } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+         }
+      });
+      loading.await();
+      services.put(ServiceIndex.key("Pastry API", "1.0"), "id-2");
+      index.invalidate();
+      invalidated.countDown();
+
+      assertEquals(Optional.of("id-1"), lookup.get(5, TimeUnit.SECONDS));
+      assertEquals(Optional.of("id-2"), index.serviceId("Pastry API", "1.0"));
+      assertEquals(2, loads.get());
+   }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.connection.KafkaConnection;
+import io.github.microcks.testcontainers.model.Secret;
+
+import org.junit.Test;
+import org.testcontainers.containers.Network;
+import org.testcontainers.lifecycle.Startable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * This is a test case for SharedEnsembleRegistry class.
+ * @author laurent
+ */
+public class SharedEnsembleRegistryTest {
+
+   private static final String IMAGE = "quay.io/microcks/microcks-uber:nightly";
+   private static final String ASYNC_IMAGE = "quay.io/microcks/microcks-uber-async-minion:nightly";
+
+   @Test
+   public void testSameKeyIsShared() {
+      SharedEnsembleRegistry registry = new SharedEnsembleRegistry();
+      registry.setIdleGracePeriod(0, TimeUnit.MILLISECONDS);
+      CountingStartable first = new CountingStartable();
+      CountingStartable second = new CountingStartable();
+
+      SharedEnsembleRegistry.Lease<CountingStartable> firstLease = registry.acquire("key", first);
+      SharedEnsembleRegistry.Lease<CountingStartable> secondLease = registry.acquire("key", second);
+      assertSame(first, secondLease.get());
+      assertEquals(1, first.starts.get());
+      assertEquals(0, second.starts.get());
+      assertEquals(1, registry.size());
+
+      firstLease.close();
+      // Closing twice must not release another reference.
+      firstLease.close();
+      assertEquals(0, first.stops.get());
+      secondLease.close();
+      assertEquals(1, first.stops.get());
+      assertEquals(0, registry.size());
+
+      // A new acquisition starts a new instance.
+      CountingStartable third = new CountingStartable();
+      try (SharedEnsembleRegistry.Lease<CountingStartable> lease = registry.acquire("key", third)) {
+         assertSame(third, lease.get());
+      }
+   }
+
+   @Test
+   public void testConcurrentAcquisitionsStartOnce() throws Exception {
+      SharedEnsembleRegistry registry = new SharedEnsembleRegistry();
+      registry.setIdleGracePeriod(0, TimeUnit.MILLISECONDS);
+      CountDownLatch go = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<SharedEnsembleRegistry.Lease<CountingStartable>>> leases = new ArrayList<>();
+         for (int i = 0; i < 8; i++) {
+            leases.add(executor.submit(() -> {
+               go.await();
+               return registry.acquire("key", new CountingStartable(50));
+            }));
+         }
+         go.countDown();
+         CountingStartable shared = leases.get(0).get().get();
+         for (Future<SharedEnsembleRegistry.Lease<CountingStartable>> lease : leases) {
+            assertSame(shared, lease.get().get());
+         }
+         assertEquals(1, shared.starts.get());
+         for (Future<SharedEnsembleRegistry.Lease<CountingStartable>> lease : leases) {
+            lease.get().close();
+         }
+         assertEquals(1, shared.stops.get());
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testReleasedInstanceIsKeptDuringGracePeriod() throws Exception {
+      SharedEnsembleRegistry registry = new SharedEnsembleRegistry();
+      CountingStartable first = new CountingStartable();
+
+      registry.acquire("key", first).close();
+      assertEquals(1, registry.size());
+      try (SharedEnsembleRegistry.Lease<CountingStartable> lease = registry.acquire("key", new CountingStartable())) {
+         assertSame(first, lease.get());
+      }
+      assertEquals(1, first.starts.get());
+      assertEquals(0, first.stops.get());
+
+      // Once grace period is over, instance is stopped and forgotten.
+      registry.setIdleGracePeriod(50, TimeUnit.MILLISECONDS);
+      registry.acquire("key", new CountingStartable()).close();
+      long deadline = System.currentTimeMillis() + 5000;
+      while (first.stops.get() == 0 && System.currentTimeMillis() < deadline) {
+         Thread.sleep(10);
+      }
+      assertEquals(1, first.stops.get());
+      assertEquals(0, registry.size());
+   }
+
+   @Test
+   public void testFailedStartIsNotShared() {
+      SharedEnsembleRegistry registry = new SharedEnsembleRegistry();
+      try {
+         registry.acquire("key", new CountingStartable() {
+            @Override
+            public void start() {
+               throw new IllegalStateException("Cannot start");
+            }
+         });
+         fail("Start failure should have been thrown");
+      } catch (IllegalStateException ise) {
+         assertEquals("Cannot start", ise.getMessage());
+      }
+      assertEquals(0, registry.size());
+
+      CountingStartable retry = new CountingStartable();
+      try (SharedEnsembleRegistry.Lease<CountingStartable> lease = registry.acquire("key", retry)) {
+         assertSame(retry, lease.get());
+      }
+   }
+
+   @Test
+   public void testSharingKeys() {
+      Secret secret = new Secret.Builder().name("my-secret").username("user").password("pass").build();
+      MicrocksContainer container = new MicrocksContainer(IMAGE)
+            .withMainArtifacts("a.yaml", "b.yaml").withSecondaryArtifacts("c.json").withSecret(secret);
+      MicrocksContainer same = new MicrocksContainer(IMAGE)
+            .withMainArtifacts("b.yaml", "a.yaml").withSecondaryArtifacts("c.json")
+            .withSecret(new Secret.Builder().name("my-secret").username("user").password("pass").build());
+      MicrocksContainer otherSecret = new MicrocksContainer(IMAGE)
+            .withMainArtifacts("a.yaml", "b.yaml").withSecondaryArtifacts("c.json")
+            .withSecret(new Secret.Builder().name("my-secret").username("user").password("other").build());
+      assertEquals(container.sharingKey(), same.sharingKey());
+      assertNotEquals(container.sharingKey(), otherSecret.sharingKey());
+      assertNotEquals(container.sharingKey(), new MicrocksContainer(IMAGE).withMainArtifacts("a.yaml").sharingKey());
+
+      MicrocksContainersEnsemble ensemble = new MicrocksContainersEnsemble(IMAGE).withAsyncFeature(ASYNC_IMAGE);
+      assertEquals(ensemble.sharingKey(), new MicrocksContainersEnsemble(IMAGE).withAsyncFeature(ASYNC_IMAGE).sharingKey());
+      assertNotEquals(ensemble.sharingKey(), new MicrocksContainersEnsemble(IMAGE).sharingKey());
+      assertNotEquals(ensemble.sharingKey(), new MicrocksContainersEnsemble(IMAGE).withAsyncFeature(ASYNC_IMAGE)
+            .withKafkaConnection(new KafkaConnection("kafka:19092")).sharingKey());
+   }
+
+   @Test
+   public void testSharingKeysIncludeWiring() {
+      String key = new MicrocksContainer(IMAGE).sharingKey();
+      assertEquals(key, new MicrocksContainer(IMAGE).sharingKey());
+      assertNotEquals(key, new MicrocksContainer(IMAGE).withAccessToHost(true).sharingKey());
+      assertNotEquals(key, new MicrocksContainer(IMAGE).withExposedPorts(8080, 9090, 8081).sharingKey());
+      Network network = Network.newNetwork();
+      assertNotEquals(key, new MicrocksContainer(IMAGE).withNetwork(network).sharingKey());
+      assertEquals(new MicrocksContainer(IMAGE).withNetwork(network).sharingKey(),
+            new MicrocksContainer(IMAGE).withNetwork(network).sharingKey());
+      assertNotEquals(new MicrocksContainer(IMAGE).withNetwork(network).sharingKey(),
+            new MicrocksContainer(IMAGE).withNetwork(Network.newNetwork()).sharingKey());
+
+      // Networks created by ensembles are private to them and do not prevent sharing.
+      MicrocksContainersEnsemble ensemble = new MicrocksContainersEnsemble(IMAGE).withPostman();
+      assertEquals(ensemble.sharingKey(), new MicrocksContainersEnsemble(IMAGE).withPostman().sharingKey());
+      assertNotEquals(ensemble.sharingKey(), new MicrocksContainersEnsemble(IMAGE).withPostman()
+            .withAccessToHost(true).sharingKey());
+      assertNotEquals(ensemble.sharingKey(), new MicrocksContainersEnsemble(network, IMAGE).withPostman().sharingKey());
+      assertEquals(new MicrocksContainersEnsemble(network, IMAGE).withPostman().sharingKey(),
+            new MicrocksContainersEnsemble(network, IMAGE).withPostman().sharingKey());
+      MicrocksContainersEnsemble exposed = new MicrocksContainersEnsemble(IMAGE).withPostman();
+      exposed.getMicrocksContainer().withExposedPorts(8080, 9090, 8081);
+      assertNotEquals(ensemble.sharingKey(), exposed.sharingKey());
+   }
+
+   private static class CountingStartable implements Startable {
+
+      private final long startupMillis;
+      private final AtomicInteger starts = new AtomicInteger();
+      private final AtomicInteger stops = new AtomicInteger();
+
+      CountingStartable() {
+         this(0);
+      }
+
+      CountingStartable(long startupMillis) {
+         this.startupMillis = startupMillis;
+      }
+
+      @Override
+      public void start() {
+         starts.incrementAndGet();
+         try {
+            Thread.sleep(startupMillis);
+         } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+         }
+      }
+
+      @Override
+      public void stop() {
+         stops.incrementAndGet();
+      }
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.microcks.testcontainers.client.ClientResponse;
+import io.github.microcks.testcontainers.client.MicrocksClient;
+import io.github.microcks.testcontainers.client.RequestBody;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is a test case for TestCallbackReceiver class.
+ * @author laurent
+ */
+public class TestCallbackReceiverTest {
+
+   private HttpServer microcks;
+   private final List<String> receivedByMicrocks = new CopyOnWriteArrayList<>();
+
+   @Before
+   public void startMicrocks() throws IOException {
+      microcks = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      microcks.createContext("/api/tests/", exchange -> {
+         ByteArrayOutputStream content = new ByteArrayOutputStream();
+         try (InputStream is = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+               content.write(buffer, 0, read);
+            }
+         }
+         receivedByMicrocks.add(exchange.getRequestURI().getPath() + " " + new String(content.toByteArray(), StandardCharsets.UTF_8));
+         byte[] body = "{\"success\":true}".getBytes(StandardCharsets.UTF_8);
+         exchange.sendResponseHeaders(200, body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      microcks.start();
+   }
+
+   @After
+   public void stopMicrocks() {
+      microcks.stop(0);
+   }
+
+   @Test
+   public void testCallbacksAreRelayed() throws Exception {
+      List<String> progressed = new CopyOnWriteArrayList<>();
+      try (MicrocksClient microcksClient = new MicrocksClient.Builder()
+            .endpoint("http://localhost:" + microcks.getAddress().getPort()).build()) {
+         TestCallbackReceiver receiver = new TestCallbackReceiver(() -> microcksClient, progressed::add);
+         int port = receiver.start();
+         try (MicrocksClient runner = new MicrocksClient.Builder().endpoint("http://localhost:" + port).build()) {
+            try (ClientResponse response = runner.post("/api/tests/abc123/testCaseResult",
+                  RequestBody.json("{\"operationName\":\"GET /pastries\"}"))) {
+               assertEquals(200, response.getStatusCode());
+               assertEquals("{\"success\":true}", response.getBodyAsString());
+            }
+            try (ClientResponse response = runner.get("/api/tests/abc123")) {
+               assertEquals(404, response.getStatusCode());
+            }
+         } finally {
+            receiver.stop();
+         }
+
+         assertEquals(1, receivedByMicrocks.size());
+         assertEquals("/api/tests/abc123/testCaseResult {\"operationName\":\"GET /pastries\"}", receivedByMicrocks.get(0));
+         assertEquals(1, progressed.size());
+         assertEquals("abc123", progressed.get(0));
+         assertEquals(1, receiver.getRelayedCount());
+      }
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestStepResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is a test case for TestProgressTracker class.
+ * @author laurent
+ */
+public class TestProgressTrackerTest {
+
+   @Test
+   public void testOnlyNewEntriesAreReported() {
+      List<String> events = new ArrayList<>();
+      TestProgressTracker tracker = new TestProgressTracker(new TestProgressListener() {
+         @Override
+         public void onTestCaseCompleted(TestCaseResult testCaseResult) {
+            events.add("case " + testCaseResult.getOperationName());
+         }
+
+         @Override
+         public void onTestStepCompleted(TestStepResult testStepResult) {
+            events.add("step " + testStepResult.getRequestName());
+         }
+      });
+
+      TestResult result = new TestResult();
+      TestCaseResult getPastries = testCase("GET /pastries", "pastries-1");
+      result.getTestCaseResults().add(getPastries);
+      tracker.update(result);
+      assertEquals(Arrays.asList("step pastries-1"), events);
+
+      // Nothing new: nothing reported.
+      tracker.update(result);
+      assertEquals(1, events.size());
+
+      getPastries.getTestStepResults().add(step("pastries-2"));
+      getPastries.setElapsedTime(120);
+      TestCaseResult getPastry = testCase("GET /pastries/{name}", "eclair");
+      result.getTestCaseResults().add(getPastry);
+      tracker.update(result);
+      assertEquals(Arrays.asList("step pastries-1", "step pastries-2", "case GET /pastries", "step eclair"), events);
+
+      // End of test completes running test cases.
+      result.setInProgress(false);
+      tracker.update(result);
+      tracker.update(result);
+      assertEquals(Arrays.asList("step pastries-1", "step pastries-2", "case GET /pastries", "step eclair",
+            "case GET /pastries/{name}"), events);
+   }
+
+   private static TestCaseResult testCase(String operationName, String... steps) {
+      TestCaseResult testCase = new TestCaseResult();
+      testCase.setOperationName(operationName);
+      for (String step : steps) {
+         testCase.getTestStepResults().add(step(step));
+      }
+      return testCase;
+   }
+
+   private static TestStepResult step(String requestName) {
+      TestStepResult step = new TestStepResult();
+      step.setRequestName(requestName);
+      return step;
+   }
+}
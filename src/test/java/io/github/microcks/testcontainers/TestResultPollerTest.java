@@ -0,0 +1,221 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestResult;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for TestResultPoller class.
+ * @author laurent
+ */
+public class TestResultPollerTest {
+
+   private final ExecutorService notifier = Executors.newCachedThreadPool();
+
+   @After
+   public void shutdownNotifier() {
+      notifier.shutdownNow();
+   }
+
+   @Test
+   public void testCompletesManyTests() throws Exception {
+      Map<String, AtomicInteger> pollsPerTest = new ConcurrentHashMap<>();
+      TestResultPoller poller = new TestResultPoller((id, detail) -> {
+         // Each test is done at its third refresh.
+         int count = pollsPerTest.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+         return result(id, count < 3);
+      }, notifier, 2);
+      try {
+         List<CompletableFuture<TestResult>> futures = new ArrayList<>();
+         for (int i = 0; i < 50; i++) {
+            futures.add(poller.track("test-" + i, System.currentTimeMillis(), 10000, PollingPolicy.DEFAULT));
+         }
+         CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+         for (CompletableFuture<TestResult> future : futures) {
+            assertFalse(future.get().isInProgress());
+         }
+         PollerMetrics metrics = poller.getMetrics();
+         assertEquals(0, metrics.getInFlight());
+         assertEquals(150, metrics.getPolls());
+         assertEquals(50, metrics.getCompleted());
+         assertEquals(0, metrics.getTimedOut());
+         assertEquals(3, poller.getStatistics("test-0").getPollCount());
+      } finally {
+         poller.shutdown();
+      }
+   }
+
+   @Test
+   public void testFullResultFetchedOnce() throws Exception {
+      List<TestResultReader.Detail> details = new CopyOnWriteArrayList<>();
+      AtomicInteger polls = new AtomicInteger();
+      TestResultPoller poller = new TestResultPoller((id, detail) -> {
+         details.add(detail);
+         int count = detail == TestResultReader.Detail.FULL ? polls.get() : polls.incrementAndGet();
+         return result(id, count < 3);
+      }, notifier, 1);
+      try {
+         PollingPolicy policy = new PollingPolicy.Builder().initialDelay(10).maxInterval(20).build();
+         poller.track("test-progress", System.currentTimeMillis(), 10000, policy).get(10, TimeUnit.SECONDS);
+
+         // Progression only while polling, full result once done.
+         assertEquals(Arrays.asList(TestResultReader.Detail.PROGRESS, TestResultReader.Detail.PROGRESS,
+               TestResultReader.Detail.PROGRESS, TestResultReader.Detail.FULL), details);
+      } finally {
+         poller.shutdown();
+      }
+   }
+
+   @Test
+   public void testTimeout() throws Exception {
+      TestResultPoller poller = new TestResultPoller((id, detail) -> result(id, true), notifier, 1);
+      try {
+         PollingPolicy policy = new PollingPolicy.Builder().timeoutGrace(100).build();
+         // Deadline is measured from submission, not from tracking start.
+         long submittedAt = System.currentTimeMillis() - 100;
+         TestResult result = poller.track("test-timeout", submittedAt, 300, policy).get(10, TimeUnit.SECONDS);
+         long duration = System.currentTimeMillis() - submittedAt;
+
+         assertTrue(result.isInProgress());
+         assertTrue(duration >= 400);
+         assertTrue(duration < 1000);
+         assertEquals(1, poller.getMetrics().getTimedOut());
+         TestRunStatistics statistics = poller.getStatistics("test-timeout");
+         assertTrue(statistics.isTimedOut());
+         assertTrue(statistics.getOvershootMillis() >= 0);
+      } finally {
+         poller.shutdown();
+      }
+   }
+
+   @Test
+   public void testCancellation() throws Exception {
+      AtomicInteger polls = new AtomicInteger();
+      PollingPolicy policy = new PollingPolicy.Builder().initialDelay(10).maxInterval(20).jitter(0).build();
+      TestResultPoller poller = new TestResultPoller((id, detail) -> {
+         polls.incrementAndGet();
+         return result(id, true);
+      }, notifier, 1);
+      try {
+         CompletableFuture<TestResult> future = poller.track("test-cancel", System.currentTimeMillis(), 10000, policy);
+         Thread.sleep(100);
+         assertTrue(future.cancel(true));
+
+         int pollsAtCancel = polls.get();
+         Thread.sleep(200);
+         // A refresh already running when cancelled may still complete.
+         assertTrue(polls.get() <= pollsAtCancel + 1);
+         PollerMetrics metrics = poller.getMetrics();
+         assertEquals(0, metrics.getInFlight());
+         assertEquals(1, metrics.getCancelled());
+         assertEquals(0, metrics.getCompleted());
+      } finally {
+         poller.shutdown();
+      }
+   }
+
+   @Test
+   public void testPolicyIntervals() {
+      PollingPolicy policy = new PollingPolicy.Builder().initialDelay(10).multiplier(2).maxInterval(50).jitter(0).build();
+      assertEquals(20, policy.nextInterval(10));
+      assertEquals(50, policy.nextInterval(40));
+      assertEquals(40, policy.withJitter(40));
+
+      PollingPolicy jittered = new PollingPolicy.Builder().jitter(0.5).build();
+      for (int i = 0; i < 100; i++) {
+         long interval = jittered.withJitter(100);
+         assertTrue(interval >= 50 && interval <= 150);
+      }
+   }
+
+   @Test
+   public void testSlowStageDoesNotDelayOtherTests() throws Exception {
+      Map<String, AtomicInteger> pollsPerTest = new ConcurrentHashMap<>();
+      TestResultPoller poller = new TestResultPoller((id, detail) -> {
+         int count = pollsPerTest.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+         return result(id, "test-other".equals(id) && count < 3);
+      }, notifier, 1);
+      CountDownLatch release = new CountDownLatch(1);
+      try {
+         PollingPolicy policy = new PollingPolicy.Builder().initialDelay(50).maxInterval(20).build();
+         CompletableFuture<TestResult> slow = poller.track("test-slow", System.currentTimeMillis(), 10000, policy);
+         // A dependent stage blocking the thread completing its future.
+         CompletableFuture<Void> blocked = slow.thenRun(() -> {
+            try {
+               release.await();
+            } catch (InterruptedException ie) {
+               Thread.currentThread().interrupt();
+            }
+         });
+         CompletableFuture<TestResult> other = poller.track("test-other", System.currentTimeMillis(), 10000, policy);
+
+         // Single polling thread is still free to refresh other test.
+         assertFalse(other.get(5, TimeUnit.SECONDS).isInProgress());
+         assertFalse(blocked.isDone());
+      } finally {
+         release.countDown();
+         poller.shutdown();
+      }
+   }
+
+   @Test
+   public void testWake() throws Exception {
+      AtomicInteger polls = new AtomicInteger();
+      // First refresh only happens after 5 seconds, unless test is woken up.
+      PollingPolicy policy = new PollingPolicy.Builder().initialDelay(5000).build();
+      TestResultPoller poller = new TestResultPoller((id, detail) -> {
+         if (detail == TestResultReader.Detail.PROGRESS) {
+            polls.incrementAndGet();
+         }
+         return result(id, false);
+      }, notifier, 1);
+      try {
+         CompletableFuture<TestResult> future = poller.track("test-wake", System.currentTimeMillis(), 10000, policy);
+         poller.wake("test-wake");
+         assertFalse(future.get(2, TimeUnit.SECONDS).isInProgress());
+         assertEquals(1, polls.get());
+      } finally {
+         poller.shutdown();
+      }
+   }
+
+   private static TestResult result(String id, boolean inProgress) {
+      TestResult result = new TestResult();
+      result.setId(id);
+      result.setInProgress(inProgress);
+      return result;
+   }
+}
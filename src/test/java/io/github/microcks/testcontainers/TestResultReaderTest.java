@@ -0,0 +1,197 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.microcks.testcontainers.client.ClientResponse;
+import io.github.microcks.testcontainers.client.MicrocksClient;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import io.github.microcks.testcontainers.model.TestStepResult;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for TestResultReader class.
+ * @author laurent
+ */
+public class TestResultReaderTest {
+
+   private static final String MESSAGE = "  Response does not match schema:\n    $.price: is missing\n";
+
+   @Test
+   public void testReadFull() throws IOException {
+      TestResult result = read(json(false), TestResultReader.Detail.FULL);
+
+      assertEquals("64f0a5b2c1", result.getId());
+      assertEquals(Long.valueOf(3), result.getVersion());
+      assertEquals(1693492658000L, result.getTestDate().getTime());
+      assertEquals("http://pastries:8080", result.getTestedEndpoint());
+      assertEquals("API Pastries:0.0.1", result.getServiceId());
+      assertEquals("my-secret", result.getSecretRef().getName());
+      assertEquals(TestRunnerType.OPEN_API_SCHEMA, result.getRunnerType());
+      assertEquals(2000L, result.getTimeout());
+      assertEquals(120L, result.getElapsedTime());
+      assertFalse(result.isSuccess());
+      assertFalse(result.isInProgress());
+      assertEquals(2, result.getTestCaseResults().size());
+      assertEquals("GET /pastries", result.getTestCaseResults().get(0).getOperationName());
+      assertEquals(-1L, result.getTestCaseResults().get(1).getElapsedTime());
+
+      TestStepResult step = result.getTestCaseResults().get(0).getTestStepResults().get(1);
+      assertEquals("Millefeuille", step.getRequestName());
+      assertFalse(step.isSuccess());
+      // Messages are kept verbatim.
+      assertEquals(MESSAGE, step.getMessage());
+   }
+
+   @Test
+   public void testSkipStepMessagesInProgress() throws IOException {
+      TestResult result = read(json(true), TestResultReader.Detail.NO_STEP_MESSAGES_IN_PROGRESS);
+      assertTrue(result.isInProgress());
+      TestStepResult step = result.getTestCaseResults().get(0).getTestStepResults().get(1);
+      assertEquals("Millefeuille", step.getRequestName());
+      assertNull(step.getMessage());
+
+      // Once done, messages are always read.
+      result = read(json(false), TestResultReader.Detail.NO_STEP_MESSAGES_IN_PROGRESS);
+      assertEquals(MESSAGE, result.getTestCaseResults().get(0).getTestStepResults().get(1).getMessage());
+   }
+
+   @Test
+   public void testMessagesKeptWhenProgressUnknown() throws IOException {
+      // inProgress only comes after test cases: they cannot be skipped safely.
+      String json = "{\"id\":\"t1\",\"testCaseResults\":[{\"operationName\":\"op\",\"testStepResults\":"
+            + "[{\"message\":\"boom\"}]}],\"inProgress\":true}";
+      TestResult result = read(json, TestResultReader.Detail.NO_STEP_MESSAGES_IN_PROGRESS);
+      assertEquals("boom", result.getTestCaseResults().get(0).getTestStepResults().get(0).getMessage());
+   }
+
+   @Test
+   public void testProgressOnly() throws IOException {
+      TestResult result = read(json(true), TestResultReader.Detail.PROGRESS);
+
+      assertEquals("64f0a5b2c1", result.getId());
+      assertEquals(120L, result.getElapsedTime());
+      assertFalse(result.isSuccess());
+      assertTrue(result.isInProgress());
+      assertTrue(result.getTestCaseResults().isEmpty());
+      assertFalse(TestResultReader.isComplete(result, TestResultReader.Detail.PROGRESS));
+   }
+
+   @Test
+   public void testProgressPollsReuseConnection() throws IOException {
+      // Test cases weigh far more than what a response close accepts to drain.
+      StringBuilder steps = new StringBuilder();
+      for (int i = 0; i < 2000; i++) {
+         steps.append(i > 0 ? "," : "").append("{\"success\":false,\"requestName\":\"r").append(i)
+               .append("\",\"message\":\"").append(MESSAGE.replace("\n", "\\n")).append(MESSAGE.replace("\n", "\\n"))
+               .append("\"}");
+      }
+      byte[] body = ("{\"id\":\"64f0a5b2c1\",\"elapsedTime\":120,\"success\":false,\"inProgress\":true,"
+            + "\"testCaseResults\":[{\"operationName\":\"GET /pastries\",\"testStepResults\":[" + steps + "]}]}")
+            .getBytes(StandardCharsets.UTF_8);
+      assertTrue(body.length > 128 * 1024);
+
+      HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/api/tests/64f0a5b2c1", exchange -> {
+         exchange.sendResponseHeaders(200, body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.start();
+      try (MicrocksClient client = new MicrocksClient.Builder()
+            .endpoint("http://localhost:" + server.getAddress().getPort()).build()) {
+         for (int i = 0; i < 5; i++) {
+            try (ClientResponse response = client.get("/api/tests/64f0a5b2c1")) {
+               TestResult result = TestResultReader.read(response.getBody(), TestResultReader.Detail.PROGRESS);
+               assertTrue(result.isInProgress());
+            }
+         }
+         assertEquals(5, client.getPoolMetrics().getLeased());
+         assertEquals(1, client.getPoolMetrics().getCreated());
+      } finally {
+         server.stop(0);
+      }
+   }
+
+   @Test
+   public void testErrorStatusIsReported() throws Exception {
+      AtomicBoolean launchFails = new AtomicBoolean(false);
+      HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/api/tests", exchange -> {
+         boolean launched = "POST".equals(exchange.getRequestMethod()) && !launchFails.get();
+         byte[] body = (launched ? json(true) : "Test not found").getBytes(StandardCharsets.UTF_8);
+         exchange.sendResponseHeaders(launched ? 201 : ("POST".equals(exchange.getRequestMethod()) ? 500 : 404), body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.start();
+      TestRequest request = new TestRequest.Builder().serviceId("API Pastries:0.0.1")
+            .runnerType(TestRunnerType.OPEN_API_SCHEMA.name()).testEndpoint("http://pastries:8080").timeout(500L).build();
+      String endpoint = "http://localhost:" + server.getAddress().getPort();
+      try {
+         // Refreshing a result that cannot be found.
+         IOException ioe = assertThrows(IOException.class, () -> MicrocksContainer.testEndpoint(endpoint, request));
+         assertTrue(ioe.getMessage(), ioe.getMessage().contains("status 404") && ioe.getMessage().endsWith("Test not found"));
+
+         launchFails.set(true);
+         MicrocksException me = assertThrows(MicrocksException.class, () -> MicrocksContainer.testEndpoint(endpoint, request));
+         assertTrue(me.getMessage(), me.getMessage().contains("status 500"));
+      } finally {
+         server.stop(0);
+      }
+   }
+
+   @Test(expected = IOException.class)
+   public void testNotAnObject() throws IOException {
+      read("[]", TestResultReader.Detail.FULL);
+   }
+
+   private static TestResult read(String json, TestResultReader.Detail detail) throws IOException {
+      return TestResultReader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), detail);
+   }
+
+   private static String json(boolean inProgress) {
+      return "{\"id\":\"64f0a5b2c1\",\"version\":3,\"testNumber\":1,\"testDate\":1693492658000,"
+            + "\"testedEndpoint\":\"http://pastries:8080\",\"serviceId\":\"API Pastries:0.0.1\","
+            + "\"secretRef\":{\"secretId\":\"s1\",\"name\":\"my-secret\"},\"timeout\":2000,\"elapsedTime\":120,"
+            + "\"success\":false,\"inProgress\":" + inProgress + ",\"runnerType\":\"OPEN_API_SCHEMA\","
+            + "\"unknownField\":{\"nested\":[1,2,{\"a\":null}]},\"operationHeaders\":null,"
+            + "\"testCaseResults\":["
+            + "{\"success\":false,\"elapsedTime\":100,\"operationName\":\"GET /pastries\",\"testStepResults\":["
+            + "{\"success\":true,\"elapsedTime\":40,\"requestName\":\"Tartelette\"},"
+            + "{\"success\":false,\"elapsedTime\":60,\"requestName\":\"Millefeuille\",\"message\":\""
+            + MESSAGE.replace("\n", "\\n") + "\"}]},"
+            + "{\"success\":true,\"operationName\":\"GET /pastries/{name}\",\"testStepResults\":[]}]}";
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestCaseResult;
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for TestSharding class.
+ * @author laurent
+ */
+public class TestShardingTest {
+
+   private static final List<String> OPERATIONS = Arrays.asList("GET /pastries", "GET /pastries/{name}",
+         "PATCH /pastries/{name}", "POST /orders", "GET /orders/{id}");
+
+   @Test
+   public void testSplit() {
+      TestRequest request = new TestRequest.Builder().serviceId("API Pastries:0.0.1").runnerType("OPEN_API_SCHEMA")
+            .testEndpoint("http://impl:8080").timeout(3000L).build();
+
+      List<TestRequest> shards = TestSharding.split(request, OPERATIONS, 2);
+      assertEquals(2, shards.size());
+      assertEquals(Arrays.asList("GET /pastries", "PATCH /pastries/{name}", "GET /orders/{id}"), shards.get(0).getFilteredOperations());
+      assertEquals(Arrays.asList("GET /pastries/{name}", "POST /orders"), shards.get(1).getFilteredOperations());
+      assertEquals(Long.valueOf(3000L), shards.get(1).getTimeout());
+      assertEquals("http://impl:8080", shards.get(1).getTestEndpoint());
+
+      // Never more shards than operations.
+      assertEquals(5, TestSharding.split(request, OPERATIONS, 10).size());
+      assertEquals(1, TestSharding.split(request, Collections.singletonList("GET /pastries"), 4).size());
+   }
+
+   @Test
+   public void testMerge() {
+      TestResult first = shard("id-1", true, 1000, 300, "GET /pastries", "PATCH /pastries/{name}", "GET /orders/{id}");
+      TestResult second = shard("id-2", false, 1100, 400, "GET /pastries/{name}", "POST /orders");
+
+      TestResult merged = TestSharding.merge(Arrays.asList(first, second), OPERATIONS);
+      assertEquals("id-1,id-2", merged.getId());
+      assertFalse(merged.isSuccess());
+      assertFalse(merged.isInProgress());
+      assertEquals(1000, merged.getTestDate().getTime());
+      // From first start to last end.
+      assertEquals(500, merged.getElapsedTime());
+      assertEquals(OPERATIONS, merged.getTestCaseResults().stream()
+            .map(TestCaseResult::getOperationName).collect(Collectors.toList()));
+
+      second.setSuccess(true);
+      assertTrue(TestSharding.merge(Arrays.asList(first, second), OPERATIONS).isSuccess());
+   }
+
+   private static TestResult shard(String id, boolean success, long start, long elapsed, String... operations) {
+      TestResult result = new TestResult();
+      result.setId(id);
+      result.setInProgress(false);
+      result.setSuccess(success);
+      result.setTestDate(new Date(start));
+      result.setElapsedTime(elapsed);
+      for (String operation : operations) {
+         TestCaseResult testCase = new TestCaseResult();
+         testCase.setOperationName(operation);
+         testCase.setSuccess(success);
+         result.getTestCaseResults().add(testCase);
+      }
+      return result;
+   }
+}
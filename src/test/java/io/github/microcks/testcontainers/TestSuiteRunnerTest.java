@@ -0,0 +1,154 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import io.github.microcks.testcontainers.model.TestRequest;
+import io.github.microcks.testcontainers.model.TestResult;
+import io.github.microcks.testcontainers.model.TestRunnerType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for TestSuiteRunner class.
+ * @author laurent
+ */
+public class TestSuiteRunnerTest {
+
+   @Test
+   public void testConcurrencyPerRunnerType() throws Exception {
+      ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+      Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+      Map<String, AtomicInteger> maxRunning = new ConcurrentHashMap<>();
+      try {
+         TestSuiteRunner runner = new TestSuiteRunner(request -> {
+            String type = request.getRunnerType();
+            int current = running.computeIfAbsent(type, k -> new AtomicInteger()).incrementAndGet();
+            maxRunning.computeIfAbsent(type, k -> new AtomicInteger()).accumulateAndGet(current, Math::max);
+            if (request.getTestEndpoint().endsWith("broken")) {
+               running.get(type).decrementAndGet();
+               throw new IllegalStateException("Cannot launch test");
+            }
+            CompletableFuture<TestResult> future = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+               running.get(type).decrementAndGet();
+               TestResult result = new TestResult();
+               result.setInProgress(false);
+               result.setSuccess(!request.getTestEndpoint().endsWith("bad"));
+               result.setElapsedTime(20);
+               future.complete(result);
+            }, 20, TimeUnit.MILLISECONDS);
+            return future;
+         }, TestSuiteRunner.defaultConcurrencies());
+
+         List<TestRequest> requests = new ArrayList<>();
+         for (int i = 0; i < 10; i++) {
+            requests.add(request("API Pastries:0.0.1", TestRunnerType.POSTMAN, "http://impl-" + i));
+            requests.add(request("API Beers:0.9", TestRunnerType.OPEN_API_SCHEMA, "http://impl-" + i));
+         }
+         requests.add(request("API Beers:0.9", TestRunnerType.OPEN_API_SCHEMA, "http://impl-bad"));
+         requests.add(request("API Beers:0.9", TestRunnerType.OPEN_API_SCHEMA, "http://impl-broken"));
+
+         TestSuiteResult suite = runner.run(requests).get(10, TimeUnit.SECONDS);
+
+         assertEquals(TestSuiteRunner.DEFAULT_SLOW_RUNNER_CONCURRENCY, maxRunning.get("POSTMAN").get());
+         assertTrue(maxRunning.get("OPEN_API_SCHEMA").get() <= TestSuiteRunner.DEFAULT_RUNNER_CONCURRENCY);
+         assertEquals(22, suite.getEntries().size());
+         assertFalse(suite.isSuccess());
+         assertEquals(2, suite.getFailures().size());
+
+         TestSuiteResult.ServiceSummary pastries = suite.getServiceSummaries().get("API Pastries:0.0.1");
+         assertTrue(pastries.isSuccess());
+         assertEquals(10, pastries.getSuccesses());
+         TestSuiteResult.ServiceSummary beers = suite.getServiceSummaries().get("API Beers:0.9");
+         assertEquals(12, beers.getTests());
+         assertEquals(1, beers.getFailures());
+         assertEquals(1, beers.getErrors());
+         TestSuiteResult.Entry broken = suite.getEntries().get(21);
+         assertNull(broken.getResult());
+         assertEquals("Cannot launch test", broken.getFailure().getMessage());
+      } finally {
+         scheduler.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testCancellation() throws Exception {
+      List<CompletableFuture<TestResult>> launched = new ArrayList<>();
+      TestSuiteRunner runner = new TestSuiteRunner(request -> {
+         CompletableFuture<TestResult> future = new CompletableFuture<>();
+         synchronized (launched) {
+            launched.add(future);
+         }
+         return future;
+      }, TestSuiteRunner.defaultConcurrencies());
+
+      List<TestRequest> requests = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         requests.add(request("API Pastries:0.0.1", TestRunnerType.POSTMAN, "http://impl-" + i));
+      }
+      CompletableFuture<TestSuiteResult> suite = runner.run(requests);
+      assertTrue(suite.cancel(true));
+
+      // Running tests are cancelled and waiting ones are never launched.
+      assertEquals(TestSuiteRunner.DEFAULT_SLOW_RUNNER_CONCURRENCY, launched.size());
+      for (CompletableFuture<TestResult> future : launched) {
+         assertTrue(future.isCancelled());
+      }
+   }
+
+   @Test
+   public void testSynchronousCompletionsDoNotNest() throws Exception {
+      // Once the first test completes, all the waiting ones are launched and complete right away.
+      CompletableFuture<TestResult> first = new CompletableFuture<>();
+      AtomicInteger launches = new AtomicInteger();
+      TestSuiteRunner runner = new TestSuiteRunner(request -> {
+         if (launches.getAndIncrement() == 0) {
+            return first;
+         }
+         return CompletableFuture.completedFuture(new TestResult());
+      }, Collections.singletonMap(TestRunnerType.HTTP, 1));
+
+      List<TestRequest> requests = new ArrayList<>();
+      for (int i = 0; i < 50000; i++) {
+         requests.add(request("API Pastries:0.0.1", TestRunnerType.HTTP, "http://impl-" + i));
+      }
+      CompletableFuture<TestSuiteResult> suite = runner.run(requests);
+      assertEquals(1, launches.get());
+
+      first.complete(new TestResult());
+      assertEquals(50000, suite.get(10, TimeUnit.SECONDS).getEntries().size());
+      assertEquals(50000, launches.get());
+   }
+
+   private static TestRequest request(String serviceId, TestRunnerType runnerType, String endpoint) {
+      return new TestRequest.Builder().serviceId(serviceId).runnerType(runnerType.name()).testEndpoint(endpoint).build();
+   }
+}
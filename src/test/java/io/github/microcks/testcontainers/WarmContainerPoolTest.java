@@ -0,0 +1,209 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers;
+
+import org.junit.Test;
+import org.testcontainers.lifecycle.Startable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This is a test case for WarmContainerPool class.
+ * @author laurent
+ */
+public class WarmContainerPoolTest {
+
+   private final List<FakeContainer> created = new CopyOnWriteArrayList<>();
+
+   @Test
+   public void testResetContainersAreReused() throws Exception {
+      AtomicInteger resets = new AtomicInteger();
+      try (WarmContainerPool<FakeContainer> pool = new WarmContainerPool.Builder<FakeContainer>()
+            .size(2)
+            .factory(() -> newContainer(20))
+            .resetAction(container -> resets.incrementAndGet())
+            .build()) {
+         FakeContainer first;
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            first = lease.get();
+            assertTrue(first.started);
+         }
+         waitForIdle(pool, 2);
+         assertEquals(1, resets.get());
+         assertEquals(2, created.size());
+
+         try (WarmContainerPool.Lease<FakeContainer> lease1 = pool.lease(5, TimeUnit.SECONDS);
+              WarmContainerPool.Lease<FakeContainer> lease2 = pool.lease(5, TimeUnit.SECONDS)) {
+            assertTrue(lease1.get() == first || lease2.get() == first);
+            assertEquals(2, pool.getMetrics().getLeased());
+         }
+         waitForIdle(pool, 2);
+         WarmPoolMetrics metrics = pool.getMetrics();
+         assertEquals(3, metrics.getLeases());
+         assertTrue(metrics.getUtilization() > 0);
+      }
+      created.forEach(container -> assertTrue(container.stopped));
+   }
+
+   @Test
+   public void testContainersAreReplacedWithoutReset() throws Exception {
+      try (WarmContainerPool<FakeContainer> pool = new WarmContainerPool.Builder<FakeContainer>()
+            .size(1)
+            .factory(() -> newContainer(10))
+            .build()) {
+         FakeContainer first;
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            first = lease.get();
+         }
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            assertNotSame(first, lease.get());
+            // Caller waited for the replacement to start.
+            assertTrue(pool.getMetrics().getMaxLeaseWait() > 0);
+         }
+         assertTrue(first.stopped);
+      }
+   }
+
+   @Test
+   public void testFailedResetReplacesContainer() throws Exception {
+      try (WarmContainerPool<FakeContainer> pool = new WarmContainerPool.Builder<FakeContainer>()
+            .size(1)
+            .factory(() -> newContainer(0))
+            .resetAction(container -> {
+               throw new IllegalStateException("Cannot reset");
+            })
+            .build()) {
+         FakeContainer first;
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            first = lease.get();
+         }
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            assertNotSame(first, lease.get());
+         }
+         assertTrue(first.stopped);
+         assertTrue(pool.getMetrics().getResetFailures() >= 1);
+      }
+   }
+
+   @Test
+   public void testLeaseTimeout() throws Exception {
+      try (WarmContainerPool<FakeContainer> pool = new WarmContainerPool.Builder<FakeContainer>()
+            .size(1)
+            .factory(() -> newContainer(0))
+            .resetAction(container -> { })
+            .build()) {
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            assertTrue(lease.get().started);
+            pool.lease(50, TimeUnit.MILLISECONDS);
+            fail("Lease should have timed out");
+         } catch (TimeoutException te) {
+            // Expected, single container is leased.
+         }
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            assertSame(created.get(0), lease.get());
+         }
+      }
+   }
+
+   @Test
+   public void testFailingFactoryIsReplaced() throws Exception {
+      AtomicInteger calls = new AtomicInteger();
+      try (WarmContainerPool<FakeContainer> pool = new WarmContainerPool.Builder<FakeContainer>()
+            .size(1)
+            .factory(() -> {
+               if (calls.incrementAndGet() == 1) {
+                  throw new IllegalStateException("Cannot create");
+               }
+               return newContainer(0);
+            })
+            .build()) {
+         try (WarmContainerPool.Lease<FakeContainer> lease = pool.lease(5, TimeUnit.SECONDS)) {
+            assertSame(created.get(0), lease.get());
+         }
+         assertEquals(1, pool.getMetrics().getStartFailures());
+      }
+   }
+
+   @Test
+   public void testFactoryFailureIsReported() throws Exception {
+      try (WarmContainerPool<FakeContainer> pool = new WarmContainerPool.Builder<FakeContainer>()
+            .size(1)
+            .factory(() -> {
+               throw new IllegalStateException("Cannot create");
+            })
+            .build()) {
+         try {
+            pool.lease(200, TimeUnit.MILLISECONDS);
+            fail("Lease should have timed out");
+         } catch (TimeoutException te) {
+            assertTrue(te.getCause() instanceof IllegalStateException);
+         }
+         WarmPoolMetrics metrics = pool.getMetrics();
+         // First attempt and its single replacement both failed, and nothing is left starting.
+         assertEquals(2, metrics.getStartFailures());
+         assertEquals(0, metrics.getStarting());
+      }
+   }
+
+   private FakeContainer newContainer(long startupMillis) {
+      FakeContainer container = new FakeContainer(startupMillis);
+      created.add(container);
+      return container;
+   }
+
+   private static void waitForIdle(WarmContainerPool<?> pool, int idle) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (pool.getMetrics().getIdle() < idle && System.currentTimeMillis() < deadline) {
+         Thread.sleep(10);
+      }
+   }
+
+   private static class FakeContainer implements Startable {
+
+      private final long startupMillis;
+      private volatile boolean started;
+      private volatile boolean stopped;
+
+      FakeContainer(long startupMillis) {
+         this.startupMillis = startupMillis;
+      }
+
+      @Override
+      public void start() {
+         try {
+            Thread.sleep(startupMillis);
+         } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+         }
+         started = true;
+      }
+
+      @Override
+      public void stop() {
+         stopped = true;
+      }
+   }
+}
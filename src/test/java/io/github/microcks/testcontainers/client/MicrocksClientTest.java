@@ -0,0 +1,462 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for MicrocksClient class.
+ * @author laurent
+ */
+public class MicrocksClientTest {
+
+   private HttpServer server;
+   private String endpoint;
+
+   @Before
+   public void startServer() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/fixed", exchange -> {
+         byte[] body = "{\"id\":\"123\"}".getBytes(StandardCharsets.UTF_8);
+         exchange.sendResponseHeaders(200, body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.createContext("/chunked", exchange -> {
+         // Zero length means chunked transfer encoding.
+         exchange.sendResponseHeaders(201, 0);
+         try (OutputStream os = exchange.getResponseBody()) {
+            for (int i = 0; i < 100; i++) {
+               os.write(("line-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+               os.flush();
+            }
+         }
+      });
+      server.createContext("/echo", exchange -> {
+         ByteArrayOutputStream content = new ByteArrayOutputStream();
+         try (InputStream is = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+               content.write(buffer, 0, read);
+            }
+         }
+         byte[] body = content.toByteArray();
+         exchange.sendResponseHeaders(200, body.length);
+         try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+         }
+      });
+      server.start();
+      endpoint = "http://localhost:" + server.getAddress().getPort();
+   }
+
+   @After
+   public void stopServer() {
+      server.stop(0);
+   }
+
+   @Test
+   public void testConnectionIsReused() throws Exception {
+      try (MicrocksClient client = new MicrocksClient.Builder().endpoint(endpoint).build()) {
+         for (int i = 0; i < 10; i++) {
+            try (ClientResponse response = client.get("/fixed")) {
+               assertEquals(200, response.getStatusCode());
+               assertEquals("{\"id\":\"123\"}", response.getBodyAsString());
+            }
+         }
+         PoolMetrics metrics = client.getPoolMetrics();
+         assertEquals(10, metrics.getLeased());
+         assertEquals(1, metrics.getCreated());
+         assertEquals(0, metrics.getActive());
+         assertEquals(1, metrics.getIdle());
+      }
+   }
+
+   @Test
+   public void testBuilderCanBeShared() throws Exception {
+      MicrocksClient.Builder builder = new MicrocksClient.Builder().maxConnections(2);
+      try (MicrocksClient client = builder.build(endpoint);
+           MicrocksClient other = builder.build("http://localhost:1")) {
+         assertEquals(endpoint, client.getEndpoint());
+         assertEquals("http://localhost:1", other.getEndpoint());
+         try (ClientResponse response = client.get("/fixed")) {
+            assertEquals(200, response.getStatusCode());
+         }
+      }
+      // Endpoints given at build time are not kept by the builder.
+      assertThrows(IllegalStateException.class, builder::build);
+   }
+
+   @Test
+   public void testChunkedResponseAndPostBody() throws Exception {
+      try (MicrocksClient client = new MicrocksClient.Builder().endpoint(endpoint).build()) {
+         try (ClientResponse response = client.get("/chunked")) {
+            assertEquals(201, response.getStatusCode());
+            String body = response.getBodyAsString();
+            assertEquals(100, body.split("\n").length);
+            assertEquals("line-99", body.split("\n")[99]);
+         }
+         try (ClientResponse response = client.post("/echo", RequestBody.json("{\"name\":\"Millefeuille\"}"))) {
+            assertEquals(200, response.getStatusCode());
+            assertEquals("{\"name\":\"Millefeuille\"}", response.getBodyAsString());
+         }
+         assertEquals(1, client.getPoolMetrics().getCreated());
+      }
+   }
+
+   @Test
+   public void testPoolIsBounded() throws Exception {
+      try (MicrocksClient client = new MicrocksClient.Builder().endpoint(endpoint)
+            .maxConnections(1).leaseTimeout(100L).build()) {
+         try (ClientResponse response = client.get("/fixed")) {
+            assertEquals(200, response.getStatusCode());
+            assertEquals(1, client.getPoolMetrics().getActive());
+            assertThrows(IOException.class, () -> client.get("/fixed"));
+         }
+         assertEquals(0, client.getPoolMetrics().getActive());
+         try (ClientResponse response = client.get("/fixed")) {
+            assertEquals(200, response.getStatusCode());
+         }
+      }
+   }
+
+   @Test
+   public void testStreamingUploads() throws Exception {
+      // A 1 MB artifact goes through the socket channel.
+      byte[] content = new byte[1024 * 1024];
+      Arrays.fill(content, (byte) 'a');
+      Path artifact = Files.createTempFile("artifact", ".yaml");
+      try (MicrocksClient client = new MicrocksClient.Builder().endpoint(endpoint).build()) {
+         Files.write(artifact, content);
+
+         MultipartBody fileBody = MultipartBody.ofFile("file", artifact);
+         assertEchoed(client, fileBody, content);
+         assertEquals(fileBody.getContentLength(), fileBody.getBytesWritten());
+
+         MultipartBody streamBody = MultipartBody.ofStream("file", "artifact.yaml", new ByteArrayInputStream(content), -1);
+         assertEquals(-1, streamBody.getContentLength());
+         assertEchoed(client, streamBody, content);
+
+         ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+         buffer.put(content).flip();
+         assertEchoed(client, MultipartBody.ofBuffer("file", "artifact.yaml", buffer), content);
+         assertEquals(content.length, buffer.remaining());
+
+         assertEquals(1, client.getPoolMetrics().getCreated());
+      } finally {
+         Files.delete(artifact);
+      }
+   }
+
+   @Test
+   public void testStreamShorterThanDeclaredLength() throws Exception {
+      // Small content goes through the output stream, large one through the socket channel.
+      for (int size : new int[] {1024, 1024 * 1024}) {
+         assertLengthMismatch(new byte[size], size + 10, "Content ended 10 bytes before its declared length");
+      }
+   }
+
+   @Test
+   public void testStreamLongerThanDeclaredLength() throws Exception {
+      for (int size : new int[] {1024, 1024 * 1024}) {
+         assertLengthMismatch(new byte[size], size - 10, "Content is longer than its declared length");
+      }
+   }
+
+   private void assertLengthMismatch(byte[] content, long length, String message) throws IOException {
+      Arrays.fill(content, (byte) 'a');
+      try (MicrocksClient client = new MicrocksClient.Builder().endpoint(endpoint).build()) {
+         // Exact length goes through and leaves a connection in the pool.
+         MultipartBody exact = MultipartBody.ofStream("file", "artifact.yaml", new ByteArrayInputStream(content), content.length);
+         assertEchoed(client, exact, content);
+         assertEquals(1, client.getPoolMetrics().getIdle());
+
+         MultipartBody body = MultipartBody.ofStream("file", "artifact.yaml", new ByteArrayInputStream(content), length);
+         IOException ioe = assertThrows(IOException.class, () -> client.post("/echo", body));
+         assertTrue(ioe.getMessage(), ioe.getMessage().startsWith(message));
+
+         // Connection has been dropped rather than given back to the pool.
+         PoolMetrics metrics = client.getPoolMetrics();
+         assertEquals(0, metrics.getActive());
+         assertEquals(0, metrics.getIdle());
+         assertEquals(1, metrics.getCreated());
+      }
+   }
+
+   private void assertEchoed(MicrocksClient client, MultipartBody body, byte[] content) throws IOException {
+      try (ClientResponse response = client.post("/echo", body)) {
+         assertEquals(200, response.getStatusCode());
+         ByteArrayOutputStream received = new ByteArrayOutputStream();
+         try (InputStream is = response.getBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+               received.write(buffer, 0, read);
+            }
+         }
+         String multipart = new String(received.toByteArray(), StandardCharsets.UTF_8);
+         assertEquals(body.getBytesWritten(), received.size());
+         String payload = multipart.substring(multipart.indexOf("\r\n\r\n") + 4, multipart.lastIndexOf("\r\n--"));
+         assertArrayEquals(content, payload.getBytes(StandardCharsets.UTF_8));
+      }
+   }
+
+   @Test
+   public void testStaleConnectionIsReplaced() throws Exception {
+      // A server that answers a single request per connection without telling it will close it.
+      try (ServerSocket serverSocket = new ServerSocket(0)) {
+         Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+               try (Socket socket = serverSocket.accept()) {
+                  BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                  String line;
+                  while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                     // Consume request head.
+                  }
+                  socket.getOutputStream().write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.ISO_8859_1));
+                  socket.getOutputStream().flush();
+               } catch (IOException ioe) {
+                  // Server socket has been closed.
+               }
+            }
+         });
+         acceptor.setDaemon(true);
+         acceptor.start();
+
+         try (MicrocksClient client = new MicrocksClient.Builder().endpoint("http://localhost:" + serverSocket.getLocalPort()).build()) {
+            for (int i = 0; i < 3; i++) {
+               try (ClientResponse response = client.get("/")) {
+                  assertEquals("ok", response.getBodyAsString());
+               }
+               // Let the server close its side.
+               Thread.sleep(50);
+            }
+            assertEquals(3, client.getPoolMetrics().getCreated());
+         }
+      }
+   }
+
+   @Test
+   public void testPostIsNotReplayedOnStaleConnection() throws Exception {
+      try (RawServer server = new RawServer(true, "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+           MicrocksClient client = server.client()) {
+         try (ClientResponse response = client.post("/api/tests", RequestBody.json("{}"))) {
+            assertEquals("ok", response.getBodyAsString());
+         }
+         Thread.sleep(50);
+         // Server may have processed the request before the connection dropped: it must not be sent twice.
+         assertThrows(IOException.class, () -> client.post("/api/tests", RequestBody.json("{}")));
+         assertEquals(1, server.requests.get());
+         assertEquals(0, client.getPoolMetrics().getActive());
+      }
+   }
+
+   @Test
+   public void testTruncatedChunk() throws Exception {
+      try (RawServer server = new RawServer(true,
+            "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\na\r\nhell");
+           MicrocksClient client = server.client()) {
+         ClientResponse response = client.get("/");
+         assertThrows(IOException.class, response::getBodyAsString);
+         assertDropped(client);
+      }
+   }
+
+   @Test
+   public void testBodyShorterThanContentLength() throws Exception {
+      try (RawServer server = new RawServer(true, "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nhello");
+           MicrocksClient client = server.client()) {
+         ClientResponse response = client.get("/");
+         assertThrows(IOException.class, response::getBodyAsString);
+         assertDropped(client);
+      }
+   }
+
+   @Test
+   public void testBodyLongerThanContentLength() throws Exception {
+      try (RawServer server = new RawServer(false,
+            "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nokay",
+            "HTTP/1.1 200 OK\r\nContent-Length: 4\r\n\r\nnext");
+           MicrocksClient client = server.client()) {
+         try (ClientResponse response = client.get("/")) {
+            assertEquals("ok", response.getBodyAsString());
+         }
+         // Extra bytes would be read as the next response: connection must not be reused.
+         assertDropped(client);
+         try (ClientResponse response = client.get("/")) {
+            assertEquals("next", response.getBodyAsString());
+         }
+         assertEquals(2, client.getPoolMetrics().getCreated());
+      }
+   }
+
+   @Test
+   public void testConnectionClosedWhileReadingHeaders() throws Exception {
+      try (RawServer server = new RawServer(true, "HTTP/1.1 200 OK\r\nContent-Len");
+           MicrocksClient client = server.client()) {
+         assertThrows(IOException.class, () -> client.get("/"));
+         assertDropped(client);
+      }
+   }
+
+   @Test
+   public void testMalformedResponses() throws Exception {
+      for (String raw : new String[] {"HTTP/1.1 OK\r\n\r\n", "SSH-2.0-OpenSSH\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nContent-Length: abc\r\n\r\n", "HTTP/1.1 200 OK\r\nContent-Length: -1\r\n\r\n",
+            "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n",
+            "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n-1\r\nhello\r\n0\r\n\r\n"}) {
+         try (RawServer server = new RawServer(false, raw);
+              MicrocksClient client = server.client()) {
+            IOException ioe = assertThrows(raw, IOException.class, () -> {
+               try (ClientResponse response = client.get("/")) {
+                  response.getBodyAsString();
+               }
+            });
+            assertTrue(ioe.getMessage(), ioe.getMessage().startsWith("Malformed"));
+            assertDropped(client);
+         }
+      }
+   }
+
+   @Test
+   public void testConnectionCloseFromServer() throws Exception {
+      try (RawServer server = new RawServer(true, "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nok");
+           MicrocksClient client = server.client()) {
+         for (int i = 0; i < 2; i++) {
+            try (ClientResponse response = client.get("/")) {
+               assertEquals("ok", response.getBodyAsString());
+            }
+            assertDropped(client);
+         }
+         assertEquals(2, client.getPoolMetrics().getCreated());
+         assertEquals(2, server.requests.get());
+      }
+   }
+
+   @Test
+   public void testInterimResponsesAreSkipped() throws Exception {
+      try (RawServer server = new RawServer(false,
+            "HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 102 Processing\r\n\r\nHTTP/1.1 201 Created\r\nContent-Length: 2\r\n\r\nok");
+           MicrocksClient client = server.client()) {
+         for (int i = 0; i < 2; i++) {
+            try (ClientResponse response = client.post("/api/import", RequestBody.json("{}"))) {
+               assertEquals(201, response.getStatusCode());
+               assertEquals("ok", response.getBodyAsString());
+            }
+         }
+         assertEquals(1, client.getPoolMetrics().getCreated());
+      }
+   }
+
+   private static void assertDropped(MicrocksClient client) {
+      PoolMetrics metrics = client.getPoolMetrics();
+      assertEquals(0, metrics.getActive());
+      assertEquals(0, metrics.getIdle());
+   }
+
+   /**
+    * A server writing raw scripted responses, one per request, the last one being repeated. Each connection is
+    * served by its own thread and closed after its first response if {@code closeAfterResponse} is set.
+    */
+   private static class RawServer implements AutoCloseable {
+
+      private final ServerSocket serverSocket = new ServerSocket(0);
+      private final String[] responses;
+      private final boolean closeAfterResponse;
+      private final AtomicInteger requests = new AtomicInteger();
+
+      RawServer(boolean closeAfterResponse, String... responses) throws IOException {
+         this.responses = responses;
+         this.closeAfterResponse = closeAfterResponse;
+         Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+               try {
+                  Socket socket = serverSocket.accept();
+                  Thread handler = new Thread(() -> serve(socket));
+                  handler.setDaemon(true);
+                  handler.start();
+               } catch (IOException ioe) {
+                  // Server socket has been closed.
+               }
+            }
+         });
+         acceptor.setDaemon(true);
+         acceptor.start();
+      }
+
+      MicrocksClient client() throws IOException {
+         return new MicrocksClient.Builder().endpoint("http://localhost:" + serverSocket.getLocalPort()).build();
+      }
+
+      private void serve(Socket socket) {
+         try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            String line;
+            while ((line = ResponseBodyInputStream.readLine(in)) != null) {
+               long contentLength = 0;
+               while (!line.isEmpty()) {
+                  if (line.toLowerCase().startsWith("content-length:")) {
+                     contentLength = Long.parseLong(line.substring(15).trim());
+                  }
+                  line = ResponseBodyInputStream.readLine(in);
+               }
+               in.skip(contentLength);
+               String response = responses[Math.min(requests.getAndIncrement(), responses.length - 1)];
+               // Written at once so that client receives response in a single segment.
+               s.getOutputStream().write(response.getBytes(StandardCharsets.ISO_8859_1));
+               s.getOutputStream().flush();
+               if (closeAfterResponse) {
+                  return;
+               }
+            }
+         } catch (IOException ioe) {
+            // Client went away.
+         }
+      }
+
+      @Override
+      public void close() throws IOException {
+         serverSocket.close();
+      }
+   }
+}
@@ -0,0 +1,103 @@
+package io.github.microcks.testcontainers.model.dispatchers;
+
+import io.github.microcks.testcontainers.model.Dispatcher;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+public class DispatcherEvaluatorTest {
+
+    @Test
+    public void testEqualsOperator() {
+        DispatcherEvaluator evaluator = DispatcherEvaluator.compile(Dispatcher.jsonBody("/pastry/size")
+                .equalsOperator()
+                .addCase("S", "small")
+                .addCase("L", "large")
+                .defaultCase("medium"));
+
+        assertEquals("small", evaluator.evaluate("/orders", "{\"pastry\":{\"size\":\"S\"}}"));
+        assertEquals("large", evaluator.evaluate("/orders", "{\"pastry\":{\"size\":\"L\"}}"));
+        assertEquals("medium", evaluator.evaluate("/orders", "{\"pastry\":{\"size\":\"XL\"}}"));
+        assertEquals("medium", evaluator.evaluate("/orders", "{\"other\":true}"));
+        assertEquals("medium", evaluator.evaluate("/orders", "not json"));
+        assertEquals("medium", evaluator.evaluate("/orders", null));
+    }
+
+    @Test
+    public void testRangeOperator() {
+        DispatcherEvaluator evaluator = DispatcherEvaluator.compile(Dispatcher.jsonBody("/price")
+                .rangeOperator()
+                .inclusiveFrom("0").exclusiveTo("10", "cheap")
+                .defaultCase("expensive"));
+
+        assertEquals("cheap", evaluator.evaluate("/orders", "{\"price\":0}"));
+        assertEquals("cheap", evaluator.evaluate("/orders", "{\"price\":9.99}"));
+        assertEquals("expensive", evaluator.evaluate("/orders", "{\"price\":10}"));
+        assertEquals("expensive", evaluator.evaluate("/orders", "{\"price\":-1}"));
+    }
+
+    @Test
+    public void testSizeOperator() {
+        DispatcherEvaluator evaluator = DispatcherEvaluator.compile(Dispatcher.jsonBody("/items")
+                .sizeOperator()
+                .addCase(0, 2, "few")
+                .addCase(3, 10, "many")
+                .defaultCase("too-many"));
+
+        assertEquals("few", evaluator.evaluate("/orders", "{\"items\":[]}"));
+        assertEquals("many", evaluator.evaluate("/orders", "{\"items\":[1,2,3]}"));
+        assertEquals("too-many", evaluator.evaluate("/orders", "{\"items\":[1,2,3,4,5,6,7,8,9,10,11]}"));
+    }
+
+    @Test
+    public void testRegexpAndPresenceOperators() {
+        DispatcherEvaluator regexp = DispatcherEvaluator.compile(Dispatcher.jsonBody("/name")
+                .regexpOperator()
+                .addCase("Ecl.*", "eclair")
+                .defaultCase("other"));
+        assertEquals("eclair", regexp.evaluate("/pastries", "{\"name\":\"Eclair Cafe\"}"));
+        assertEquals("other", regexp.evaluate("/pastries", "{\"name\":\"Millefeuille\"}"));
+
+        DispatcherEvaluator presence = DispatcherEvaluator.compile(Dispatcher.jsonBody("/discount")
+                .presenceOperator()
+                .ifPresent("discounted")
+                .ifAbsent("regular"));
+        assertEquals("discounted", presence.evaluate("/orders", "{\"discount\":null}"));
+        assertEquals("regular", presence.evaluate("/orders", "{}"));
+    }
+
+    @Test
+    public void testUriDispatchers() {
+        DispatcherEvaluator parts = DispatcherEvaluator.compile(Dispatcher.uri().pathParam("name").build(),
+                "GET /pastries/{name}");
+        assertEquals("/name=Eclair", parts.evaluate("/rest/API+Pastries/0.0.1/pastries/Eclair", null));
+
+        DispatcherEvaluator params = DispatcherEvaluator.compile(Dispatcher.uri().queryParam("size").queryParam("flavor").build());
+        assertEquals("?flavor=Chocolate+Cafe?size=L", params.evaluate("/pastries?size=L&flavor=Chocolate%2BCafe&other=1", null));
+        assertEquals("", params.evaluate("/pastries", null));
+
+        DispatcherEvaluator elements = DispatcherEvaluator.compile(Dispatcher.uri().pathParam("name").queryParam("size").build(),
+                "GET /pastries/:name");
+        assertEquals("/name=Eclair?size=S", elements.evaluate("/pastries/Eclair?size=S", null));
+    }
+
+    @Test
+    public void testFallback() {
+        DispatcherEvaluator evaluator = DispatcherEvaluator.compile(Dispatcher.fallback("unknown")
+                .dispatcher(Dispatcher.uri().pathParam("name").build()), "GET /pastries/{name}");
+
+        assertEquals("/name=Eclair", evaluator.evaluate("/pastries/Eclair", null));
+        assertEquals("/name=Eclair", evaluator.evaluate("/pastries/Eclair", null,
+                new HashSet<>(Arrays.asList("/name=Eclair", "/name=Millefeuille"))));
+        assertEquals("unknown", evaluator.evaluate("/pastries/Donut", null,
+                new HashSet<>(Arrays.asList("/name=Eclair", "/name=Millefeuille"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScriptCannotBeEvaluated() {
+        DispatcherEvaluator.compile(Dispatcher.script("return \"Eclair\""));
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.Test;
 import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 public class JsonBodyDispatcherTest {
 
@@ -24,6 +26,26 @@ public class JsonBodyDispatcherTest {
         );
     }
 
+    @Test
+    public void testRulesAreComputedOnce() {
+        Dispatcher dispatcher = Dispatcher
+                .jsonBody("/key")
+                .equalsOperator()
+                .addCase("first", "firstResponse")
+                .defaultCase("defaultResponse");
+        Dispatcher same = Dispatcher
+                .jsonBody("/key")
+                .equalsOperator()
+                .addCase("first", "firstResponse")
+                .defaultCase("defaultResponse");
+
+        assertSame(dispatcher.getRules(), dispatcher.getRules());
+        assertEquals(dispatcher, same);
+        assertEquals(dispatcher.getRulesHash(), same.getRulesHash());
+        assertEquals(dispatcher.hashCode(), same.hashCode());
+        assertNotEquals(dispatcher, Dispatcher.jsonBody("/key").equalsOperator().defaultCase("defaultResponse"));
+    }
+
     @Test
     public void testBuildsSizeDispatcherRules() {
         Dispatcher dispatcher = Dispatcher
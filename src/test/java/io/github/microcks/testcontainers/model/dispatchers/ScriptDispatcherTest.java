@@ -1,4 +1,18 @@
 package io.github.microcks.testcontainers.model.dispatchers;
 
+import io.github.microcks.testcontainers.model.Dispatcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
 public class ScriptDispatcherTest {
+
+    @Test
+    public void testRulesHashIsStable() {
+        Dispatcher dispatcher = Dispatcher.script("return \"Eclair\"");
+
+        assertEquals(Dispatcher.Type.SCRIPT, dispatcher.getType());
+        // Same value in every JVM: only relies on String hash codes.
+        assertEquals(31 * "SCRIPT".hashCode() + "return \"Eclair\"".hashCode(), dispatcher.getRulesHash());
+    }
 }
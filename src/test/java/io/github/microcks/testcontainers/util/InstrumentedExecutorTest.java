@@ -0,0 +1,86 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a test case for InstrumentedExecutor and TaskExecutors classes.
+ * @author laurent
+ */
+public class InstrumentedExecutorTest {
+
+   @Test
+   public void testQueuedAndInFlightCounts() throws Exception {
+      ExecutorService pool = Executors.newSingleThreadExecutor();
+      try {
+         InstrumentedExecutor executor = new InstrumentedExecutor(pool);
+         CountDownLatch started = new CountDownLatch(1);
+         CountDownLatch release = new CountDownLatch(1);
+         CountDownLatch done = new CountDownLatch(3);
+         for (int i = 0; i < 3; i++) {
+            executor.execute(() -> {
+               started.countDown();
+               try {
+                  release.await();
+               } catch (InterruptedException ie) {
+                  Thread.currentThread().interrupt();
+               }
+               done.countDown();
+            });
+         }
+         assertTrue(started.await(5, TimeUnit.SECONDS));
+         assertEquals(1, executor.getMetrics().getInFlight());
+         assertEquals(2, executor.getMetrics().getQueued());
+
+         release.countDown();
+         assertTrue(done.await(5, TimeUnit.SECONDS));
+         pool.shutdown();
+         assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+         assertEquals(0, executor.getMetrics().getInFlight());
+         assertEquals(0, executor.getMetrics().getQueued());
+         assertEquals(3, executor.getMetrics().getCompleted());
+      } finally {
+         pool.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testBlockingTaskExecutor() throws Exception {
+      TaskExecutors.Instrumented executor = TaskExecutors.newBlockingTaskExecutor("test-tasks", 2);
+      try {
+         CountDownLatch done = new CountDownLatch(1);
+         String[] threadName = new String[1];
+         executor.execute(() -> {
+            threadName[0] = Thread.currentThread().getName();
+            done.countDown();
+         });
+         assertTrue(done.await(5, TimeUnit.SECONDS));
+         assertTrue(threadName[0].startsWith("test-tasks-"));
+         assertEquals(TaskExecutors.isVirtualThreadsSupported(), executor.getMetrics().isVirtualThreads());
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
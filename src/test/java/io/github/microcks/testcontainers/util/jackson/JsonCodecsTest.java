@@ -0,0 +1,72 @@
+/*
+ * Copyright The Microcks Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.microcks.testcontainers.util.jackson;
+
+import io.github.microcks.testcontainers.model.Secret;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This is a test case for JsonCodecs class.
+ */
+class JsonCodecsTest {
+
+   @Test
+   void shouldOmitNullValues() throws Exception {
+      Secret secret = new Secret.Builder().name("my-secret").token("abc").build();
+      assertEquals("{\"name\":\"my-secret\",\"token\":\"abc\"}", JsonCodecs.SECRET_WRITER.writeValueAsString(secret));
+   }
+
+   @Test
+   void shouldKeepNullDispatcherRules() throws Exception {
+      Map<String, String> rules = new LinkedHashMap<>();
+      rules.put("dispatcher", "SCRIPT");
+      rules.put("dispatcherRules", null);
+      assertEquals("{\"dispatcher\":\"SCRIPT\",\"dispatcherRules\":null}", JsonCodecs.DISPATCHER_RULES_WRITER.writeValueAsString(rules));
+   }
+
+   @Test
+   void shouldBeSharedAcrossThreads() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<CompletableFuture<String>> results = new ArrayList<>();
+         for (int i = 0; i < 200; i++) {
+            String name = "secret-" + i;
+            results.add(CompletableFuture.supplyAsync(() -> {
+               try {
+                  return JsonCodecs.SECRET_WRITER.writeValueAsString(new Secret.Builder().name(name).build());
+               } catch (Exception e) {
+                  throw new IllegalStateException(e);
+               }
+            }, executor));
+         }
+         for (int i = 0; i < 200; i++) {
+            assertEquals("{\"name\":\"secret-" + i + "\"}", results.get(i).get());
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}